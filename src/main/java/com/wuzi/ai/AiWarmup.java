@@ -0,0 +1,180 @@
+package com.wuzi.ai;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * AiWarmup - 启动时的 JIT 预热
+ * JVM 刚启动时搜索代码先解释执行、再经 C1 编译，前几次 getNextStep 比稳态慢数倍，进程里的第一手 AI 落子明显迟钝。
+ * 预热在后台反复运行一组固定的搜索（从固定开局起自对弈若干手，走会话同步、威胁空间搜索与主搜索等真实路径），
+ * 每轮计时，直到轮耗时不再下降即认为已达稳态：
+ *  - 至少 MIN_ROUNDS 轮，且连续 STEADY_ROUNDS 轮的耗时与此前最快一轮相差都在 STEADY_RATIO 倍以内
+ *  - 到达时间上限仍未稳定时也结束（isSteady() 为 false），不让预热无限拖延可用时间
+ * 每轮开始前清空置换表，各轮的工作量完全相同，耗时只反映编译状态。
+ * 预热结束前调用方不应对外提供 AI（见 isReady），结束后通过回调报告各轮耗时。
+ */
+public final class AiWarmup {
+    // 默认的预热时间上限
+    public static final Duration DEFAULT_MAX_DURATION = Duration.ofSeconds(15);
+    static final int MIN_ROUNDS = 3;
+    static final int STEADY_ROUNDS = 2;
+    static final double STEADY_RATIO = 1.1;
+    private static final int SIZE = 15;
+    // 每轮自对弈的手数与搜索深度
+    private static final int PLIES = 12;
+    private static final int DEPTH = 4;
+    // 固定开局（行、列交替）
+    private static final int[] OPENING = {7, 7, 8, 8, 6, 8, 7, 9};
+
+    private final long maxNanos;
+    private final CountDownLatch done = new CountDownLatch(1);
+    private volatile boolean ready;
+    private volatile boolean steady;
+    private volatile int rounds;
+    private volatile long firstRoundNanos;
+    private volatile long bestRoundNanos;
+    private volatile long lastRoundNanos;
+    private volatile long totalNanos;
+
+    public AiWarmup() {
+        this(DEFAULT_MAX_DURATION);
+    }
+
+    /**
+     * @param maxDuration 预热时间上限，到达后即使尚未稳定也结束
+     */
+    public AiWarmup(Duration maxDuration) {
+        if (maxDuration == null || maxDuration.isNegative()) {
+            throw new IllegalArgumentException("预热时间上限不能为空或负数: " + maxDuration);
+        }
+        this.maxNanos = maxDuration.toNanos();
+    }
+
+    /**
+     * 在后台守护线程中预热，结束后在该线程中调用 onReady（可为 null）
+     */
+    public void start(Consumer<AiWarmup> onReady) {
+        Thread t = new Thread(() -> {
+            run();
+            if (onReady != null) onReady.accept(this);
+        }, "ai-warmup");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * 在当前线程中预热，直到达到稳态或时间上限
+     */
+    public void run() {
+        long start = System.nanoTime();
+        GomokuAI ai = new GomokuAI(1);
+        ai.setThreads(1);
+        ai.setMaxDepth(DEPTH);
+        EngineSession session = ai.newSession(SIZE, SIZE);
+        try {
+            int steadyRounds = 0;
+            while (true) {
+                long t = playRound(ai, session);
+                int n = rounds + 1;
+                if (n == 1) {
+                    firstRoundNanos = t;
+                    bestRoundNanos = t;
+                } else {
+                    // 与此前最快一轮相差不超过 STEADY_RATIO 倍（既没有明显变快，也没有明显变慢）
+                    boolean flat = t * STEADY_RATIO >= bestRoundNanos && t <= bestRoundNanos * STEADY_RATIO;
+                    steadyRounds = flat ? steadyRounds + 1 : 0;
+                    bestRoundNanos = Math.min(bestRoundNanos, t);
+                }
+                lastRoundNanos = t;
+                rounds = n;
+                if (n >= MIN_ROUNDS && steadyRounds >= STEADY_ROUNDS) {
+                    steady = true;
+                    break;
+                }
+                if (System.nanoTime() - start >= maxNanos) break;
+            }
+        } finally {
+            ai.shutdown();
+            totalNanos = System.nanoTime() - start;
+            ready = true;
+            done.countDown();
+        }
+    }
+
+    /**
+     * 一轮：清空置换表，从固定开局自对弈 PLIES 手，返回搜索耗时
+     */
+    private static long playRound(GomokuAI ai, EngineSession session) {
+        ai.clearTranspositionTable();
+        session.reset();
+        int color = 1;
+        for (int i = 0; i < OPENING.length; i += 2) {
+            session.applyMove(OPENING[i], OPENING[i + 1], color);
+            color = 3 - color;
+        }
+        long start = System.nanoTime();
+        for (int ply = 0; ply < PLIES; ply++) {
+            int[] move = session.getNextStep(color);
+            if (move[0] < 0) break;
+            session.applyMove(move[0], move[1], color);
+            color = 3 - color;
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * 预热是否已结束（达到稳态或时间上限），结束后可以对外提供 AI
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 等待预热结束，超时返回 false
+     */
+    public boolean awaitReady(Duration timeout) throws InterruptedException {
+        return done.await(timeout.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 是否因达到稳态而结束（false 表示到达时间上限时仍未稳定）
+     */
+    public boolean isSteady() {
+        return steady;
+    }
+
+    public int getRounds() {
+        return rounds;
+    }
+
+    public long getFirstRoundNanos() {
+        return firstRoundNanos;
+    }
+
+    public long getLastRoundNanos() {
+        return lastRoundNanos;
+    }
+
+    /**
+     * 预热总耗时（含各轮之间清空置换表等准备工作）
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * 首轮与最快一轮的耗时之比，即冷启动比稳态慢的倍数
+     */
+    public double getSpeedup() {
+        return bestRoundNanos == 0 ? 1.0 : (double) firstRoundNanos / bestRoundNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s：%d 轮，首轮 %.1f ms，末轮 %.1f ms（冷启动慢 %.1f 倍），共 %.0f ms",
+                steady ? "已达稳态" : "未完全稳定", rounds, firstRoundNanos / 1e6, lastRoundNanos / 1e6,
+                getSpeedup(), totalNanos / 1e6);
+    }
+}
@@ -0,0 +1,102 @@
+package com.wuzi.ai;
+
+import java.util.List;
+
+/**
+ * AlgorithmBenchmark - 搜索算法对比测试
+ * 在 ParallelBenchmark 的同一组固定局面上，分别用 Minimax 与 PVS 以相同的固定深度单线程搜索，
+ * 统计总耗时、总节点数与落子一致率（PVS 带后期着法削减，落子不要求完全一致）。
+ *
+ * 用法：java com.wuzi.ai.AlgorithmBenchmark [深度] [局面数]
+ */
+public class AlgorithmBenchmark {
+    private static final long SEED = 20240501L;
+
+    /**
+     * 单次对比的汇总结果
+     */
+    public static class Result {
+        public final int depth;
+        public final int positions;
+        public final long minimaxNanos;
+        public final long pvsNanos;
+        public final long minimaxNodes;
+        public final long pvsNodes;
+        public final int sameMoves;
+
+        Result(int depth, int positions, long minimaxNanos, long pvsNanos,
+               long minimaxNodes, long pvsNodes, int sameMoves) {
+            this.depth = depth;
+            this.positions = positions;
+            this.minimaxNanos = minimaxNanos;
+            this.pvsNanos = pvsNanos;
+            this.minimaxNodes = minimaxNodes;
+            this.pvsNodes = pvsNodes;
+            this.sameMoves = sameMoves;
+        }
+
+        /**
+         * 节点数之比 = PVS 节点数 / Minimax 节点数
+         */
+        public double nodeRatio() {
+            return minimaxNodes == 0 ? 0.0 : (double) pvsNodes / minimaxNodes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("深度=%d 局面数=%d | Minimax %.1f ms (%d 节点) | PVS %.1f ms (%d 节点) | 节点比 %.2fx | 落子一致 %d/%d",
+                    depth, positions,
+                    minimaxNanos / 1e6, minimaxNodes,
+                    pvsNanos / 1e6, pvsNodes,
+                    nodeRatio(), sameMoves, positions);
+        }
+    }
+
+    /**
+     * 在给定局面上对比两种算法的固定深度搜索。每个局面搜索前都清空置换表；
+     * 威胁空间搜索与证明数搜索与算法无关，对比时关闭。
+     */
+    public static Result measure(List<int[][]> positions, int aiColor, int depth) {
+        GomokuAI minimax = newAI(GomokuAI.SearchAlgorithm.MINIMAX, depth);
+        GomokuAI pvs = newAI(GomokuAI.SearchAlgorithm.PVS, depth);
+
+        long minimaxNanos = 0, pvsNanos = 0, minimaxNodes = 0, pvsNodes = 0;
+        int same = 0;
+        for (int[][] board : positions) {
+            minimax.clearTranspositionTable();
+            long t0 = System.nanoTime();
+            int[] a = minimax.getNextStep(board, aiColor);
+            minimaxNanos += System.nanoTime() - t0;
+            minimaxNodes += minimax.getLastNodeCount();
+
+            pvs.clearTranspositionTable();
+            long t1 = System.nanoTime();
+            int[] b = pvs.getNextStep(board, aiColor);
+            pvsNanos += System.nanoTime() - t1;
+            pvsNodes += pvs.getLastNodeCount();
+
+            if (a[0] == b[0] && a[1] == b[1]) same++;
+        }
+        return new Result(depth, positions.size(), minimaxNanos, pvsNanos, minimaxNodes, pvsNodes, same);
+    }
+
+    private static GomokuAI newAI(GomokuAI.SearchAlgorithm algorithm, int depth) {
+        GomokuAI ai = new GomokuAI();
+        ai.setSearchAlgorithm(algorithm);
+        ai.setMaxDepth(depth);
+        ai.setThreatSearchEnabled(false);
+        ai.setProofSearchEnabled(false);
+        return ai;
+    }
+
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        List<int[][]> positions = ParallelBenchmark.samplePositions(count, SEED);
+        // 预热，避免 JIT 编译时间计入第一组结果
+        measure(positions.subList(0, Math.min(3, count)), 1, Math.min(depth, 3));
+
+        System.out.println(measure(positions, 1, depth));
+    }
+}
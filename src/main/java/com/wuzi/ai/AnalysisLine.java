@@ -0,0 +1,36 @@
+package com.wuzi.ai;
+
+/**
+ * AnalysisLine - 局面分析（GomokuAI.analyze）的一条结果：一个候选着法、它的分数与主变例
+ */
+public final class AnalysisLine {
+    public final int row;
+    public final int col;
+    // AI 视角的分数，达到成五分数（Evaluator.SCORE_FIVE）表示已算出必胜，负值同理为必败
+    public final int score;
+    private final int[][] principalVariation;
+
+    AnalysisLine(int row, int col, int score, int[][] principalVariation) {
+        this.row = row;
+        this.col = col;
+        this.score = score;
+        this.principalVariation = principalVariation;
+    }
+
+    /**
+     * 主变例：从该着法开始，双方交替的着法 {row, col} 序列（由置换表回溯，可能短于搜索深度）
+     */
+    public int[][] getPrincipalVariation() {
+        int[][] copy = new int[principalVariation.length][];
+        for (int i = 0; i < copy.length; i++) copy[i] = principalVariation[i].clone();
+        return copy;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append('(').append(row).append(", ").append(col).append(") ").append(score).append(" pv");
+        for (int[] move : principalVariation) sb.append(' ').append(move[0]).append(',').append(move[1]);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,376 @@
+package com.wuzi.ai;
+
+import java.util.Arrays;
+
+/**
+ * BitBoard - AI 搜索内部使用的位棋盘
+ * 特性：
+ *  - 每种颜色按“行、列、主对角线、副对角线”四组线分别存储，每条线压缩为一个 long
+ *  - 单元格下标 cell = r * cols + c，每个方向预先算好 cell 所在的线号与线内位置
+ *  - 成五、连子长度、两端是否为空等判断全部化为移位/掩码运算，不再逐格走棋盘
+ *  - 落子/撤子时增量维护 Zobrist 哈希、各颜色的五连线数，以及 IncrementalEvaluator 的棋型得分
+ *  - 同时维护候选点集合：距任一棋子半径 2 以内（5x5 方框）的空位，以位集表示，
+ *    每格记录邻域内的棋子数作为引用计数，落子/撤子只触及该子的邻域
+ *  - 连珠规则下（setRenju），按行棋方取候选点时去掉黑棋的禁手点（见 RenjuRules）
+ *
+ * 方向编号：0 水平 {0,1}、1 垂直 {1,0}、2 右下 {1,1}、3 左下 {1,-1}。
+ * 线内位置沿方向向量递增，因此“左侧”即方向的反向。
+ */
+final class BitBoard {
+    // 单条线最多 63 个格子，保证移位运算不越过 long 的符号位
+    static final int MAX_SIZE = LineGeometry.MAX_SIZE;
+
+    static final int DIR_COUNT = LineGeometry.DIR_COUNT;
+
+    // 候选点邻域半径
+    static final int NEAR_RADIUS = 2;
+
+    final int rows;
+    final int cols;
+    final int cellCount;
+
+    // 几何信息（与 RenjuRules 的镜像共用同一套编号）：lineOf[dir][cell] 线号，posOf[dir][cell] 线内位置
+    final LineGeometry geometry;
+    final int[][] lineOf;
+    final int[][] posOf;
+    // 每条线的长度掩码：lineMask[dir][line] = (1L << len) - 1
+    final long[][] lineMask;
+    // 反查表：cellAt[dir][line][pos] 为线内位置对应的格子
+    final int[][][] cellAt;
+    // neighbors[cell]：半径 2 方框内的其他格子（不含自身）
+    final int[][] neighbors;
+
+    // stones[color][dir][line]，color 取 1/2，下标 0 不用
+    private final long[][][] stones;
+    // 每格当前颜色，0 为空
+    private final int[] cells;
+    private int stoneCount;
+    // 仅由棋子决定的 Zobrist 哈希，不含行棋方
+    private long hash;
+    // fiveLines[color]：含有五连的线的条数
+    private final int[] fiveLines;
+    private final IncrementalEvaluator evaluator;
+    // nearCount[cell]：半径 2 方框内（不含自身）的棋子数
+    private final int[] nearCount;
+    // 候选点位集：第 cell 位为 1 表示 cell 为空且 nearCount[cell] > 0
+    private final long[] candidateBits;
+    // 是否按连珠规则对黑棋排除禁手点
+    private boolean renju;
+
+    BitBoard(int rows, int cols) {
+        this.geometry = new LineGeometry(rows, cols);
+        this.rows = rows;
+        this.cols = cols;
+        this.cellCount = geometry.cellCount;
+        this.cells = new int[cellCount];
+        this.lineOf = geometry.lineOf;
+        this.posOf = geometry.posOf;
+        this.lineMask = geometry.lineMask;
+        this.cellAt = geometry.cellAt;
+        this.stones = geometry.newStones();
+        this.neighbors = new int[cellCount][];
+        int[] buf = new int[(2 * NEAR_RADIUS + 1) * (2 * NEAR_RADIUS + 1)];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                int k = 0;
+                for (int dr = -NEAR_RADIUS; dr <= NEAR_RADIUS; dr++) {
+                    for (int dc = -NEAR_RADIUS; dc <= NEAR_RADIUS; dc++) {
+                        if ((dr != 0 || dc != 0) && inBounds(r + dr, c + dc)) buf[k++] = cell(r + dr, c + dc);
+                    }
+                }
+                neighbors[cell(r, c)] = Arrays.copyOf(buf, k);
+            }
+        }
+        this.nearCount = new int[cellCount];
+        this.candidateBits = new long[(cellCount + 63) >>> 6];
+        this.fiveLines = new int[3];
+        this.evaluator = new IncrementalEvaluator(this);
+    }
+
+    /**
+     * 复制构造：几何信息不可变，直接共享；棋子与哈希深拷贝
+     */
+    private BitBoard(BitBoard other) {
+        this.rows = other.rows;
+        this.cols = other.cols;
+        this.cellCount = other.cellCount;
+        this.geometry = other.geometry;
+        this.lineOf = other.lineOf;
+        this.posOf = other.posOf;
+        this.lineMask = other.lineMask;
+        this.cellAt = other.cellAt;
+        this.neighbors = other.neighbors;
+        this.cells = other.cells.clone();
+        this.stones = new long[3][DIR_COUNT][];
+        for (int color = 1; color <= 2; color++) {
+            for (int d = 0; d < DIR_COUNT; d++) {
+                stones[color][d] = other.stones[color][d].clone();
+            }
+        }
+        this.stoneCount = other.stoneCount;
+        this.hash = other.hash;
+        this.fiveLines = other.fiveLines.clone();
+        this.nearCount = other.nearCount.clone();
+        this.candidateBits = other.candidateBits.clone();
+        this.renju = other.renju;
+        this.evaluator = new IncrementalEvaluator(this, other.evaluator);
+    }
+
+    /**
+     * 返回独立的副本，供其他搜索线程使用
+     */
+    BitBoard copy() {
+        return new BitBoard(this);
+    }
+
+    /**
+     * 从 int[][] 棋盘构造位棋盘，只识别 1/2 两种棋子。
+     */
+    static BitBoard fromArray(int[][] board) {
+        BitBoard bb = new BitBoard(board.length, board[0].length);
+        for (int r = 0; r < bb.rows; r++) {
+            for (int c = 0; c < bb.cols; c++) {
+                int v = board[r][c];
+                if (v == 1 || v == 2) bb.place(r * bb.cols + c, v);
+            }
+        }
+        return bb;
+    }
+
+    /**
+     * 把棋盘同步为 int[][] 的内容（只识别 1/2 两种棋子），只对不同的格子撤子/落子，
+     * 两次搜索之间通常只差几步，因此复用位棋盘比重新构造便宜且不分配内存。
+     */
+    void load(int[][] board) {
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                int v = board[r][c];
+                int want = (v == 1 || v == 2) ? v : 0;
+                int cell = r * cols + c;
+                if (cells[cell] == want) continue;
+                if (cells[cell] != 0) remove(cell);
+                if (want != 0) place(cell, want);
+            }
+        }
+    }
+
+    // =================== 基本读写 ===================
+
+    int cell(int r, int c) {
+        return r * cols + c;
+    }
+
+    boolean inBounds(int r, int c) {
+        return r >= 0 && r < rows && c >= 0 && c < cols;
+    }
+
+    int get(int cell) {
+        return cells[cell];
+    }
+
+    int stoneCount() {
+        return stoneCount;
+    }
+
+    long hash() {
+        return hash;
+    }
+
+    IncrementalEvaluator evaluator() {
+        return evaluator;
+    }
+
+    void place(int cell, int color) {
+        cells[cell] = color;
+        stoneCount++;
+        hash ^= Zobrist.piece(color, cell);
+        long[][] own = stones[color];
+        for (int d = 0; d < DIR_COUNT; d++) {
+            int line = lineOf[d][cell];
+            long before = own[d][line];
+            long after = before | 1L << posOf[d][cell];
+            own[d][line] = after;
+            if (fiveStarts(before) == 0 && fiveStarts(after) != 0) fiveLines[color]++;
+        }
+        candidateBits[cell >>> 6] &= ~(1L << cell);
+        for (int n : neighbors[cell]) {
+            if (++nearCount[n] == 1 && cells[n] == 0) candidateBits[n >>> 6] |= 1L << n;
+        }
+        evaluator.onChange(cell);
+    }
+
+    void remove(int cell) {
+        int color = cells[cell];
+        if (color == 0) return;
+        cells[cell] = 0;
+        stoneCount--;
+        hash ^= Zobrist.piece(color, cell);
+        long[][] own = stones[color];
+        for (int d = 0; d < DIR_COUNT; d++) {
+            int line = lineOf[d][cell];
+            long before = own[d][line];
+            long after = before & ~(1L << posOf[d][cell]);
+            own[d][line] = after;
+            if (fiveStarts(before) != 0 && fiveStarts(after) == 0) fiveLines[color]--;
+        }
+        for (int n : neighbors[cell]) {
+            if (--nearCount[n] == 0) candidateBits[n >>> 6] &= ~(1L << n);
+        }
+        if (nearCount[cell] > 0) candidateBits[cell >>> 6] |= 1L << cell;
+        evaluator.onChange(cell);
+    }
+
+    /**
+     * cell 是否为候选点（空位且半径 2 内有棋子）
+     */
+    boolean isCandidate(int cell) {
+        return (candidateBits[cell >>> 6] >>> cell & 1L) != 0;
+    }
+
+    /**
+     * 按格子下标升序把候选点写入 out，返回个数；out 长度需不小于 cellCount。
+     * 只遍历位集中为 1 的位，不分配内存。
+     */
+    int candidates(int[] out) {
+        int n = 0;
+        for (int w = 0; w < candidateBits.length; w++) {
+            long bits = candidateBits[w];
+            while (bits != 0) {
+                out[n++] = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * 行棋方 color 的候选点：连珠规则下黑棋去掉禁手点，其余与 candidates(out) 相同
+     */
+    int candidates(int[] out, int color) {
+        int n = candidates(out);
+        if (!renju || color != RenjuRules.BLACK) return n;
+        int kept = 0;
+        for (int i = 0; i < n; i++) {
+            if (!RenjuRules.isFoul(this, out[i])) out[kept++] = out[i];
+        }
+        return kept;
+    }
+
+    /**
+     * 行棋方 color 落在空位 cell 是否违反规则（只有连珠规则下的黑棋禁手）
+     */
+    boolean isForbidden(int cell, int color) {
+        return renju && color == RenjuRules.BLACK && RenjuRules.isFoul(this, cell);
+    }
+
+    void setRenju(boolean renju) {
+        this.renju = renju;
+    }
+
+    boolean isRenju() {
+        return renju;
+    }
+
+    /**
+     * color 在 dir 方向上经过 cell 的那条线
+     */
+    long line(int color, int dir, int cell) {
+        return stones[color][dir][lineOf[dir][cell]];
+    }
+
+    /**
+     * dir 方向上经过 cell 的那条线中所有空位
+     */
+    long emptyLine(int dir, int cell) {
+        return lineEmpty(dir, lineOf[dir][cell]);
+    }
+
+    /**
+     * 按线号取 color 的线位图
+     */
+    long lineStones(int color, int dir, int line) {
+        return stones[color][dir][line];
+    }
+
+    /**
+     * color 的全部线位图 [dir][line]（只读，供 RenjuRules 直接按线取窗口）
+     */
+    long[][] lines(int color) {
+        return stones[color];
+    }
+
+    /**
+     * 按线号取空位线位图（线长度以外恒为 0）
+     */
+    long lineEmpty(int dir, int line) {
+        return lineMask[dir][line] & ~(stones[1][dir][line] | stones[2][dir][line]);
+    }
+
+    /**
+     * 线内位置 pos（0..63）上的棋子颜色，越界或空位返回 0
+     */
+    int colorAt(int dir, int line, int pos) {
+        if ((stones[1][dir][line] >>> pos & 1L) != 0) return 1;
+        if ((stones[2][dir][line] >>> pos & 1L) != 0) return 2;
+        return 0;
+    }
+
+    // =================== 位运算工具 ===================
+
+    /**
+     * 位 pos 以下（不含 pos）连续为 1 的个数
+     */
+    static int runBelow(long bits, int pos) {
+        if (pos == 0) return 0;
+        return Long.numberOfLeadingZeros(~(bits << (64 - pos)));
+    }
+
+    /**
+     * 位 pos 以上（不含 pos）连续为 1 的个数
+     */
+    static int runAbove(long bits, int pos) {
+        return Long.numberOfTrailingZeros(~(bits >>> (pos + 1)));
+    }
+
+    /**
+     * 返回所有“自该位起连续 5 个 1”的起点位
+     */
+    static long fiveStarts(long bits) {
+        long x = bits & (bits >>> 1);
+        x &= x >>> 2;
+        return x & (bits >>> 4);
+    }
+
+    /**
+     * 在 cell 已有 color 棋子的前提下，判断是否经过 cell 连成五子
+     */
+    boolean isFiveAt(int cell, int color) {
+        for (int d = 0; d < DIR_COUNT; d++) {
+            int pos = posOf[d][cell];
+            long starts = fiveStarts(stones[color][d][lineOf[d][cell]]);
+            // 起点落在 [pos-4, pos] 的五连才经过 cell
+            long window = 0x1FL << Math.max(0, pos - 4) & ((2L << pos) - 1);
+            if ((starts & window) != 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * 假设在空位 cell 放 color，判断是否形成五子（不修改棋盘）
+     */
+    boolean wouldBeFive(int cell, int color) {
+        for (int d = 0; d < DIR_COUNT; d++) {
+            long own = stones[color][d][lineOf[d][cell]];
+            int pos = posOf[d][cell];
+            if (runBelow(own, pos) + 1 + runAbove(own, pos) >= 5) return true;
+        }
+        return false;
+    }
+
+    /**
+     * color 是否在棋盘任意位置已有五连（落子/撤子时增量统计）
+     */
+    boolean hasFive(int color) {
+        return fiveLines[color] > 0;
+    }
+}
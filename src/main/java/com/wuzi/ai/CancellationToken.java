@@ -0,0 +1,25 @@
+package com.wuzi.ai;
+
+/**
+ * CancellationToken - 协作式取消令牌
+ * 由发起搜索的一方持有，任意线程调用 cancel() 后，搜索在下一个节点检查到标志即逐层退出
+ * （主搜索、威胁空间搜索与证明数搜索的每个节点都会检查，取消后通常在 1 毫秒内让出 CPU）。
+ * 令牌只能取消、不能恢复；一个令牌可以同时交给多次搜索，取消时全部停止。
+ */
+public final class CancellationToken {
+    // 搜索内部使用的“永不取消”令牌，省去空值判断
+    static final CancellationToken NONE = new CancellationToken();
+
+    private volatile boolean cancelled;
+
+    /**
+     * 取消（可从任意线程调用，重复调用无副作用）
+     */
+    public void cancel() {
+        if (this != NONE) cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
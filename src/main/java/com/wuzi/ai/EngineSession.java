@@ -0,0 +1,209 @@
+package com.wuzi.ai;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * EngineSession - 绑定一局棋的 AI 会话（由 GomokuAI.newSession 创建）
+ * 调用方用 applyMove / undoMove 告诉会话每一手的变化，不必每次把整个棋盘数组交给 AI：
+ *  - 会话记录自上次搜索以来的落子与悔棋，下次搜索时只把这几手落到 AI 复用的位棋盘上，
+ *    增量评估、候选点集合与 Zobrist 哈希随之增量更新，置换表也在各手之间保留
+ *  - 同一个 GomokuAI 在期间搜索过别的局面（其他会话、int[][] 形式的 getNextStep、后台思考）时，
+ *    下次搜索自动退回到按差异同步整个棋盘，结果不受影响
+ * 会话的方法可以从不同线程调用（例如房间线程落子、计算线程搜索），内部按会话加锁；
+ * 搜索期间调用 applyMove 不影响正在进行的搜索，变化留到下一次搜索生效。
+ */
+public final class EngineSession {
+    private final GomokuAI ai;
+    private final int rows;
+    private final int cols;
+    // 当前局面与落子顺序（用于悔棋）
+    private final int[][] cells;
+    private final int[] history;
+    private int moveCount;
+    // 自上次同步到 AI 位棋盘以来的变化：cell << 2 | color，color 为 0 表示撤子
+    private final int[] pending;
+    private int pendingCount;
+    // 还没同步过、变化过多或开了新局时不再逐手重放，下次搜索按差异同步整个棋盘
+    private boolean reload = true;
+
+    EngineSession(GomokuAI ai, int rows, int cols) {
+        if (rows < 1 || cols < 1) {
+            throw new IllegalArgumentException("棋盘尺寸必须为正数: " + rows + "x" + cols);
+        }
+        this.ai = ai;
+        this.rows = rows;
+        this.cols = cols;
+        this.cells = new int[rows][cols];
+        this.history = new int[rows * cols];
+        this.pending = new int[rows * cols];
+    }
+
+    /**
+     * 在 (row, col) 落下 color（1 或 2）的棋子；坐标越界、已有棋子或颜色非法时抛出 IllegalArgumentException
+     */
+    public synchronized void applyMove(int row, int col, int color) {
+        if (row < 0 || row >= rows || col < 0 || col >= cols) {
+            throw new IllegalArgumentException("坐标越界: (" + row + ", " + col + ")");
+        }
+        if (color != 1 && color != 2) {
+            throw new IllegalArgumentException("棋子颜色必须为 1 或 2: " + color);
+        }
+        if (cells[row][col] != 0) {
+            throw new IllegalArgumentException("该位置已有棋子: (" + row + ", " + col + ")");
+        }
+        int cell = row * cols + col;
+        cells[row][col] = color;
+        history[moveCount++] = cell;
+        record(cell << 2 | color);
+    }
+
+    /**
+     * 撤销最后一手，返回其坐标 {row, col}；没有可撤销的棋时抛出 IllegalStateException
+     */
+    public synchronized int[] undoMove() {
+        if (moveCount == 0) {
+            throw new IllegalStateException("没有可撤销的落子");
+        }
+        int cell = history[--moveCount];
+        cells[cell / cols][cell % cols] = 0;
+        record(cell << 2);
+        return new int[]{cell / cols, cell % cols};
+    }
+
+    /**
+     * 清空棋盘，开始新的一局（置换表保留）
+     */
+    public synchronized void reset() {
+        for (int[] row : cells) Arrays.fill(row, 0);
+        moveCount = 0;
+        pendingCount = 0;
+        reload = true;
+    }
+
+    private void record(int op) {
+        if (reload) return;
+        if (pendingCount == pending.length) {
+            pendingCount = 0;
+            reload = true;
+            return;
+        }
+        pending[pendingCount++] = op;
+    }
+
+    public synchronized int get(int row, int col) {
+        return cells[row][col];
+    }
+
+    public synchronized int getMoveCount() {
+        return moveCount;
+    }
+
+    /**
+     * 最后一手的坐标 {row, col}，还没有落子时返回 null
+     */
+    public synchronized int[] getLastMove() {
+        if (moveCount == 0) return null;
+        int cell = history[moveCount - 1];
+        return new int[]{cell / cols, cell % cols};
+    }
+
+    /**
+     * 当前局面的副本
+     */
+    public synchronized int[][] toArray() {
+        int[][] copy = new int[rows][];
+        for (int r = 0; r < rows; r++) copy[r] = cells[r].clone();
+        return copy;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public GomokuAI getEngine() {
+        return ai;
+    }
+
+    // =================== 搜索 ===================
+
+    /**
+     * 当前局面下 AI 的最佳落子 {row, col}（固定深度模式），与 GomokuAI.getNextStep(board, aiColor) 相同；
+     * 不会自动落子，调用方确定后再 applyMove
+     */
+    public int[] getNextStep(int aiColor) {
+        return ai.sessionSearch(this, aiColor, null, null);
+    }
+
+    public int[] getNextStep(int aiColor, CancellationToken token) {
+        return ai.sessionSearch(this, aiColor, null, token);
+    }
+
+    /**
+     * 时间预算模式，与 GomokuAI.getNextStep(board, aiColor, budget) 相同
+     */
+    public int[] getNextStep(int aiColor, Duration budget) {
+        return getNextStep(aiColor, budget, null);
+    }
+
+    public int[] getNextStep(int aiColor, Duration budget, CancellationToken token) {
+        if (budget == null || budget.isNegative()) {
+            throw new IllegalArgumentException("时间预算不能为空或负数: " + budget);
+        }
+        return ai.sessionSearch(this, aiColor, budget, token);
+    }
+
+    /**
+     * 在 AI 落子（已 applyMove）后开始后台思考，与 getNextStep(aiColor) 配套
+     */
+    public void startPondering(int aiColor) {
+        ai.startPondering(toArray(), aiColor);
+    }
+
+    /**
+     * 时间预算模式的后台思考，与 getNextStep(aiColor, budget) 配套
+     */
+    public void startPondering(int aiColor, Duration budget) {
+        ai.startPondering(toArray(), aiColor, budget);
+    }
+
+    // =================== 与 AI 位棋盘的同步（调用方持有 AI 与会话的锁） ===================
+
+    /**
+     * 能否只重放变化（另需 AI 的位棋盘上一次同步的正是本会话，由 GomokuAI 判断）
+     */
+    boolean canReplay() {
+        return !reload;
+    }
+
+    /**
+     * 把记录的变化依次落到各个棋盘上并清空记录
+     */
+    void replay(BitBoard board, List<SearchWorker> helpers) {
+        for (int i = 0; i < pendingCount; i++) {
+            apply(board, pending[i]);
+            for (SearchWorker helper : helpers) apply(helper.board(), pending[i]);
+        }
+        pendingCount = 0;
+    }
+
+    private static void apply(BitBoard board, int op) {
+        int cell = op >>> 2;
+        int color = op & 3;
+        if (color == 0) board.remove(cell);
+        else board.place(cell, color);
+    }
+
+    /**
+     * 整盘同步之后调用：之后的变化可以逐手重放
+     */
+    void synced() {
+        pendingCount = 0;
+        reload = false;
+    }
+}
@@ -0,0 +1,130 @@
+package com.wuzi.ai;
+
+/**
+ * Evaluator - 棋型评估
+ * 特性：
+ *  - 单点评估：假设在某空位落子，按四个方向的 9 格窗口查 PatternTable 得到棋型分值（含跳三、跳四）
+ *  - 组合加分：双活三、活四额外加分
+ *  - 整盘评估：所有空位对双方潜力之差，已有五连直接返回极值
+ *
+ * 纯函数，不持有状态，可被多个搜索线程同时调用；
+ * 搜索中使用的单点/整盘得分由 IncrementalEvaluator 增量维护，scan* 方法为其参照实现。
+ */
+final class Evaluator {
+    // 用于评估的权重（可根据需要微调）
+    static final int SCORE_FIVE = 1_000_000;
+    static final int SCORE_OPEN_FOUR = 50_000;
+    static final int SCORE_DEAD_FOUR = 10_000;
+    static final int SCORE_OPEN_THREE = 4_000;
+    static final int SCORE_DEAD_THREE = 500;
+    static final int SCORE_OPEN_TWO = 200;
+    static final int SCORE_OTHER = 50;
+
+    // analyseDirection 返回值：低位为得分，高位为棋型标记
+    static final int FLAG_OPEN_THREE = 1 << 29;
+    static final int FLAG_OPEN_FOUR = 1 << 30;
+    static final int SCORE_MASK = FLAG_OPEN_THREE - 1;
+
+    private Evaluator() {
+    }
+
+    /**
+     * 对当前棋盘做整体评估：AI 得分 - 对手得分
+     * 各空位的得分由位棋盘上的 IncrementalEvaluator 随落子/撤子增量维护，这里只取两方总分之差，
+     * 结果与 scanBoard 的整盘扫描完全一致。
+     */
+    static int evaluateBoard(BitBoard bb, int aiColor, int oppColor) {
+        int five = fiveScore(bb, aiColor, oppColor);
+        if (five != 0) return five;
+        IncrementalEvaluator ev = bb.evaluator();
+        return ev.total(aiColor) - ev.total(oppColor);
+    }
+
+    /**
+     * 评估在 cell 放 color 的总得分（取增量维护的缓存值，与 scanPosition 一致）
+     */
+    static int evaluatePosition(BitBoard bb, int cell, int color) {
+        return bb.evaluator().score(color, cell);
+    }
+
+    /**
+     * 检测当前已有的连子（如果已存在成五则返回非常大值），没有五连返回 0。
+     * 双方都有五连时按行优先找到第一个成五的棋子决定胜负。
+     */
+    private static int fiveScore(BitBoard bb, int aiColor, int oppColor) {
+        boolean aiFive = bb.hasFive(aiColor);
+        boolean oppFive = bb.hasFive(oppColor);
+        if (!aiFive && !oppFive) return 0;
+        if (!oppFive) return SCORE_FIVE;
+        if (!aiFive) return -SCORE_FIVE;
+        for (int cell = 0; cell < bb.cellCount; cell++) {
+            int v = bb.get(cell);
+            if (v != 0 && bb.isFiveAt(cell, v)) {
+                return v == aiColor ? SCORE_FIVE : -SCORE_FIVE;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 整盘扫描版评估：遍历所有空点，计算落子后的进攻/防守潜力，累加为 heuristic。
+     * 作为增量评估的参照实现，搜索中不再调用。
+     */
+    static int scanBoard(BitBoard bb, int aiColor, int oppColor) {
+        int five = fiveScore(bb, aiColor, oppColor);
+        if (five != 0) return five;
+
+        // 遍历所有格子，针对每个空位评估对双方的潜力
+        int score = 0;
+        for (int cell = 0; cell < bb.cellCount; cell++) {
+            if (bb.get(cell) != 0) continue;
+            int a = scanPosition(bb, cell, aiColor);
+            int b = scanPosition(bb, cell, oppColor);
+            score += (a - b);
+        }
+        return score;
+    }
+
+    /**
+     * 评估在 cell 放 color 的总得分（四个方向的综合），直接从线位图计算。
+     * 该函数不修改棋盘，而是假设落子存在，按棋型给出分值。
+     */
+    static int scanPosition(BitBoard bb, int cell, int color) {
+        if (bb.get(cell) != 0) return 0;
+        return combine(analyseDirection(bb, cell, color, 0), analyseDirection(bb, cell, color, 1),
+                analyseDirection(bb, cell, color, 2), analyseDirection(bb, cell, color, 3));
+    }
+
+    /**
+     * 合并四个方向的分析结果。
+     * 通过对四个方向的细分打分可以识别活四、双三等组合：例如若在不同方向各形成活三，
+     * 则额外提升（双三）以反映其威胁性。
+     */
+    static int combine(int d0, int d1, int d2, int d3) {
+        int totalScore = (d0 & SCORE_MASK) + (d1 & SCORE_MASK) + (d2 & SCORE_MASK) + (d3 & SCORE_MASK);
+        int flags = d0 | d1 | d2 | d3;
+        int openThreeCount = ((d0 & FLAG_OPEN_THREE) >>> 29) + ((d1 & FLAG_OPEN_THREE) >>> 29)
+                + ((d2 & FLAG_OPEN_THREE) >>> 29) + ((d3 & FLAG_OPEN_THREE) >>> 29);
+
+        // 双三的识别（两个及以上方向有活三）
+        if (openThreeCount >= 2) {
+            totalScore += SCORE_OPEN_THREE * 2; // 提高双三价值
+        }
+
+        // 若存在活四，额外加分（活四极其危险）
+        if ((flags & FLAG_OPEN_FOUR) != 0) totalScore += SCORE_OPEN_FOUR / 2;
+
+        return totalScore;
+    }
+
+    /**
+     * 在单方向上分析落子后的棋型，返回该方向的得分（低位）以及活三/活四标记（高位）。
+     * 取以 cell 为中心的 9 格窗口，己方/空位两个位掩码直接查预先计算的 PatternTable。
+     */
+    static int analyseDirection(BitBoard bb, int cell, int color, int dir) {
+        int pos = bb.posOf[dir][cell];
+        int own = PatternTable.window(bb.line(color, dir, cell), pos);
+        int empty = PatternTable.window(bb.emptyLine(dir, cell), pos);
+        return PatternTable.lookup(own, empty);
+    }
+}
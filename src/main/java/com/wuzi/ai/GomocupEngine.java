@@ -0,0 +1,272 @@
+package com.wuzi.ai;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * GomocupEngine - Gomocup（Piskvork）协议的命令行引擎入口
+ * 从标准输入逐行读取对局管理器的指令，在标准输出回复，便于用常见的对局管理器与其他引擎对弈、比较强度与速度：
+ *  - START / RECTSTART 开局，RESTART 重开，BEGIN 先手落子，TURN 对手落子后应对，
+ *    BOARD ... DONE 整盘给出局面后应对，TAKEBACK 悔棋，END 退出，ABOUT 报告引擎信息
+ *  - INFO timeout_turn / timeout_match / time_left 接入时间管理：每手的时间预算取单手上限与
+ *    剩余总时间按 MATCH_MOVES_TO_GO 手平分两者中较小的一个，再留出余量，交给 getNextStep 的迭代加深
+ *  - INFO max_memory 限制置换表大小（取内存上限的四分之一，不超过默认值），下一次 START 时生效
+ *  - 棋盘通过 EngineSession 逐手同步；不在对手思考时后台思考（Gomocup 规则不允许）
+ * 协议坐标为 "x,y"，x 为列、y 为行；自己一方的棋子按颜色 1 交给 GomokuAI，对手为 2。
+ * 只实现自由规则（五连及以上获胜），INFO rule 的其他规则按自由规则下棋。
+ *
+ * 用法：java -cp target/classes com.wuzi.ai.GomocupEngine（需要可执行文件的管理器可用脚本包装这条命令）
+ */
+public class GomocupEngine {
+    private static final String ABOUT = "name=\"Wuzi\", version=\"1.0\", author=\"Wuzi\", country=\"CN\"";
+    // 协议没有给出 timeout_turn 时的单手时间（毫秒）
+    static final long DEFAULT_TIMEOUT_TURN_MS = 5_000;
+    // 有总时间限制时，剩余时间按还要下这么多手平分
+    static final int MATCH_MOVES_TO_GO = 20;
+    // 单手预算留出的余量：固定部分覆盖进程间通信与收尾，比例部分覆盖搜索检查截止时间的间隔
+    static final long RESPONSE_MARGIN_MS = 30;
+    private static final int MARGIN_PERCENT = 10;
+    private static final int AI = 1;
+    private static final int OPPONENT = 2;
+    private static final int MIN_SIZE = 5;
+
+    private final BufferedReader in;
+    private final PrintStream out;
+    private GomokuAI ai;
+    private EngineSession session;
+    // INFO 给出的时间设置（毫秒）；timeoutMatch 为 0 表示不限总时间，timeLeft 为 -1 表示尚未收到
+    private long timeoutTurn = DEFAULT_TIMEOUT_TURN_MS;
+    private long timeoutMatch;
+    private long timeLeft = -1;
+    private long maxMemory;
+
+    public GomocupEngine(BufferedReader in, PrintStream out) {
+        this.in = in;
+        this.out = out;
+    }
+
+    /**
+     * 处理指令直到 END 或输入结束
+     */
+    public void run() throws IOException {
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!handle(line.trim())) break;
+            }
+        } finally {
+            if (ai != null) ai.shutdown();
+        }
+    }
+
+    /**
+     * 处理一条指令，返回 false 表示应当退出
+     */
+    private boolean handle(String line) throws IOException {
+        if (line.isEmpty()) return true;
+        int space = line.indexOf(' ');
+        String command = (space < 0 ? line : line.substring(0, space)).toUpperCase(Locale.ROOT);
+        String args = space < 0 ? "" : line.substring(space + 1).trim();
+        switch (command) {
+            case "START": {
+                Integer size = parseInt(args);
+                start(size == null ? -1 : size, size == null ? -1 : size);
+                break;
+            }
+            case "RECTSTART": {
+                int[] wh = parsePair(args);
+                if (wh == null) start(-1, -1);
+                else start(wh[1], wh[0]);
+                break;
+            }
+            case "RESTART":
+                if (requireStarted()) {
+                    session.reset();
+                    reply("OK");
+                }
+                break;
+            case "BEGIN":
+                if (requireStarted()) playMove();
+                break;
+            case "TURN": {
+                if (!requireStarted()) break;
+                int[] xy = parsePair(args);
+                if (xy == null || !place(xy[0], xy[1], OPPONENT)) {
+                    reply("ERROR invalid move: " + args);
+                } else {
+                    playMove();
+                }
+                break;
+            }
+            case "BOARD":
+                readBoard();
+                break;
+            case "TAKEBACK": {
+                if (!requireStarted()) break;
+                int[] xy = parsePair(args);
+                int[] last = session.getLastMove();
+                // 管理器只会撤回最后一手
+                if (xy == null || last == null || last[0] != xy[1] || last[1] != xy[0]) {
+                    reply("ERROR cannot take back: " + args);
+                } else {
+                    session.undoMove();
+                    reply("OK");
+                }
+                break;
+            }
+            case "INFO":
+                info(args);
+                break;
+            case "ABOUT":
+                reply(ABOUT);
+                break;
+            case "END":
+                return false;
+            default:
+                reply("UNKNOWN " + command);
+        }
+        return true;
+    }
+
+    private void start(int rows, int cols) {
+        if (rows < MIN_SIZE || cols < MIN_SIZE || rows > BitBoard.MAX_SIZE || cols > BitBoard.MAX_SIZE) {
+            reply("ERROR unsupported board size");
+            return;
+        }
+        if (ai != null) ai.shutdown();
+        ai = new GomokuAI(ttSizeMb());
+        session = ai.newSession(rows, cols);
+        reply("OK");
+    }
+
+    /**
+     * 置换表大小：有内存上限时取其四分之一（为 JVM 本身留出余量），至少 1 MB，至多默认值
+     */
+    int ttSizeMb() {
+        if (maxMemory <= 0) return GomokuAI.DEFAULT_TT_SIZE_MB;
+        long mb = maxMemory / 4 / (1 << 20);
+        return (int) Math.max(1, Math.min(GomokuAI.DEFAULT_TT_SIZE_MB, mb));
+    }
+
+    private boolean requireStarted() {
+        if (session == null) {
+            reply("ERROR game not started");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * BOARD 之后逐行读取 "x,y,field"（field 1 为自己，2 为对手，3 视为对手），直到 DONE
+     */
+    private void readBoard() throws IOException {
+        boolean ok = session != null;
+        if (ok) session.reset();
+        String line;
+        while ((line = in.readLine()) != null) {
+            line = line.trim();
+            if (line.equalsIgnoreCase("DONE")) break;
+            if (line.isEmpty() || !ok) continue;
+            String[] parts = line.split(",");
+            Integer x = parts.length == 3 ? parseInt(parts[0]) : null;
+            Integer y = parts.length == 3 ? parseInt(parts[1]) : null;
+            Integer field = parts.length == 3 ? parseInt(parts[2]) : null;
+            if (x == null || y == null || field == null || field < 1 || field > 3
+                    || !place(x, y, field == 1 ? AI : OPPONENT)) {
+                reply("ERROR invalid board line: " + line);
+                ok = false;
+            }
+        }
+        if (session == null) {
+            reply("ERROR game not started");
+        } else if (ok) {
+            playMove();
+        }
+    }
+
+    private void info(String args) {
+        int space = args.indexOf(' ');
+        if (space < 0) return;
+        String key = args.substring(0, space).toLowerCase(Locale.ROOT);
+        String value = args.substring(space + 1).trim();
+        long v;
+        try {
+            v = Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            // 其他键（如 folder）的值不是数字，一律忽略
+            return;
+        }
+        switch (key) {
+            case "timeout_turn": timeoutTurn = Math.max(0, v); break;
+            case "timeout_match": timeoutMatch = Math.max(0, v); break;
+            case "time_left": timeLeft = Math.max(0, v); break;
+            case "max_memory": maxMemory = Math.max(0, v); break;
+            default: break;
+        }
+    }
+
+    /**
+     * 本手的时间预算：单手上限与剩余总时间的平分值中较小者，扣除余量；timeout_turn 为 0 时尽快落子
+     */
+    Duration turnBudget() {
+        long ms = timeoutTurn;
+        if (timeoutMatch > 0 && timeLeft >= 0) {
+            ms = Math.min(ms, timeLeft / MATCH_MOVES_TO_GO);
+        }
+        ms -= ms * MARGIN_PERCENT / 100 + RESPONSE_MARGIN_MS;
+        return Duration.ofMillis(Math.max(0, ms));
+    }
+
+    /**
+     * 搜索并输出自己的落子
+     */
+    private void playMove() {
+        int[] move = session.getNextStep(AI, turnBudget());
+        if (move[0] < 0) {
+            reply("ERROR no empty cell");
+            return;
+        }
+        session.applyMove(move[0], move[1], AI);
+        reply(move[1] + "," + move[0]);
+    }
+
+    private boolean place(int x, int y, int color) {
+        if (x < 0 || x >= session.getCols() || y < 0 || y >= session.getRows() || session.get(y, x) != 0) {
+            return false;
+        }
+        session.applyMove(y, x, color);
+        return true;
+    }
+
+    private void reply(String message) {
+        out.println(message);
+        out.flush();
+    }
+
+    private static Integer parseInt(String s) {
+        try {
+            return Integer.parseInt(s.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 解析 "a,b"，格式错误时返回 null
+     */
+    private static int[] parsePair(String s) {
+        String[] parts = s.split(",");
+        if (parts.length != 2) return null;
+        Integer a = parseInt(parts[0]);
+        Integer b = parseInt(parts[1]);
+        return a == null || b == null ? null : new int[]{a, b};
+    }
+
+    public static void main(String[] args) throws IOException {
+        new GomocupEngine(new BufferedReader(new InputStreamReader(System.in)), System.out).run();
+    }
+}
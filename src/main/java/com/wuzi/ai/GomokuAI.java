@@ -3,417 +3,1355 @@ package com.wuzi.ai;
 
 import com.wuzi.common.AnsiColor;
 
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * GomokuAI - 使用 Minimax + Alpha-Beta 的五子棋 AI
  * 特性：
- *  - Minimax 搜索，深度为 4（可调整 MAX_DEPTH）
- *  - Alpha-Beta 剪枝
- *  - 启发式候选点生成与排序（近邻限制 + topK）
+ *  - Minimax 搜索，默认深度为 4（可通过 setMaxDepth 调整）
+ *  - Alpha-Beta 剪枝，默认为 Negamax 形式的主变例搜索（PVS）+ 后期着法削减 + 期望窗口，
+ *    原始的全窗口 Minimax 仍可通过 setSearchAlgorithm 选用
+ *  - 启发式候选点生成与排序（近邻限制 + topK），叠加杀手着法与历史表
  *  - 强化评估函数，识别活四、双三、死四等重要棋型
+ *  - 搜索在内部位棋盘 BitBoard 上进行，棋型与成五判断均为移位/掩码运算
+ *  - Zobrist 增量哈希 + 固定大小置换表，相同局面不再重复搜索与评估
+ *  - 可选时间预算：迭代加深，超时返回最后一个完整深度的结果
+ *  - 可选开局库（OpeningBook）：开局阶段命中时直接落子，不做搜索
+ *  - 通用搜索之前先运行威胁空间搜索（ThreatSolver）：己方有 VCF/VCT 直接走，
+ *    对方有 VCF/VCT 时根节点只保留能化解的着法
+ *  - 棋盘较满时再运行证明数搜索（ProofNumberSolver），能证明胜负时不再做启发式搜索，
+ *    结果通过 getLastOutcome 报告
+ *  - 可选多线程：Lazy SMP，多个 SearchWorker 共享线程安全的置换表
+ *  - 可选后台思考（startPondering）：落子后在对手思考期间预先搜索对手最可能的几种应手，
+ *    对手走了其中之一时直接返回算好的应对；对手走了别处或调用 stopPondering 时及时取消
+ *  - 可取消：getNextStep 可传入 CancellationToken，取消后各阶段在下一个节点即退出；
+ *    newSearchTask 创建可分片执行的搜索（SearchTask），调度器可以暂停后再继续，已完成的深度不会丢失
+ *  - 可选会话（newSession）：绑定一局棋，通过 applyMove / undoMove 逐手同步，搜索时只重放变化
+ *  - 局面分析（analyze）：一次搜索给出最好的 N 个着法及各自的分数与主变例（多主变例搜索）
+ *  - 可选连珠规则（setRenju）：黑棋（颜色 1）的禁手点不进入任何一层的候选点，判断与 GameBoard 共用 RenjuRules
+ *  - 位棋盘与工作者在各次搜索间复用，单线程搜索稳态下不产生堆分配（同一实例的搜索串行执行）
  *
- * 注意：保持 public int[] getNextStep(int[][] board, int aiColor) 不变。
+ * 注意：保持 public int[] getNextStep(int[][] board, int aiColor) 不变，
+ * 它只负责把 int[][] 转换为位棋盘，不会修改调用方传入的数组。
  */
 public class GomokuAI {
-    // 用于评估的权重（可根据需要微调）
-    private static final int SCORE_FIVE = 1_000_000;
-    private static final int SCORE_OPEN_FOUR = 50_000;
-    private static final int SCORE_DEAD_FOUR = 10_000;
-    private static final int SCORE_OPEN_THREE = 4_000;
-    private static final int SCORE_DEAD_THREE = 500;
-    private static final int SCORE_OPEN_TWO = 200;
-    private static final int SCORE_OTHER = 50;
+    /**
+     * 最近一次搜索对局面的判定（AI 视角）：已证明必胜、已证明必败，或未知
+     */
+    public enum Outcome { UNKNOWN, WIN, LOSS }
+
+    /**
+     * 搜索算法：MINIMAX 为原始的 AI 视角全窗口 Alpha-Beta；
+     * PVS 为 Negamax 主变例搜索（零窗口试探 + 后期着法削减 + 迭代加深期望窗口）
+     */
+    public enum SearchAlgorithm { MINIMAX, PVS }
+
+    /**
+     * 难度等级：每手的节点预算（威胁空间搜索、证明数搜索与主搜索合计，每手 CPU 开销有上限），
+     * 以及随机选择的分数范围（与最佳着法相差不超过该值的着法中随机选一个，0 表示总走最佳着法）
+     */
+    public enum Difficulty {
+        // 浅层搜索奇偶层的分数起伏很大（常差上万），随机范围按冲四、活四的量级取才会真正起作用
+        EASY(5_000, Evaluator.SCORE_OPEN_FOUR),
+        MEDIUM(30_000, Evaluator.SCORE_DEAD_FOUR),
+        HARD(200_000, 0),
+        EXPERT(1_000_000, 0);
+
+        public final long nodeBudget;
+        public final int randomMargin;
+
+        Difficulty(long nodeBudget, int randomMargin) {
+            this.nodeBudget = nodeBudget;
+            this.randomMargin = randomMargin;
+        }
+    }
 
     // 搜索深度
     private static final int MAX_DEPTH = 4;
+    // 迭代加深的深度上限（时间预算模式）
+    static final int MAX_ITERATIVE_DEPTH = 20;
+    static final long NO_DEADLINE = Long.MAX_VALUE;
+    static final long NO_NODE_LIMIT = Long.MAX_VALUE;
+    // 威胁空间搜索的深度上限（进攻方步数）
+    static final int MAX_THREAT_DEPTH = 20;
+    // 证明数搜索的默认启用棋子数与单次求解节点上限
+    public static final int DEFAULT_PROOF_MIN_STONES = 40;
+    static final long DEFAULT_PROOF_NODE_LIMIT = 50_000;
+
+    // 默认置换表大小（MB）
+    public static final int DEFAULT_TT_SIZE_MB = 16;
+    // 后台思考默认预测的对手应手数
+    public static final int DEFAULT_PONDER_REPLIES = 3;
+
+    private final TranspositionTable tt;
+    // 固定深度模式下的搜索深度
+    private int maxDepth = MAX_DEPTH;
+    // 搜索线程数，1 为单线程（结果确定，便于测试）
+    private int threads = 1;
+    // 辅助搜索线程池，首次并行搜索时创建
+    private ExecutorService helperPool;
+
+    // 复用的位棋盘与工作者：主工作者及其棋盘在首次搜索或棋盘尺寸变化时创建，
+    // 辅助工作者各持一份棋盘，之后每次搜索只同步差异，稳态下单线程搜索不产生堆分配
+    private BitBoard board;
+    private SearchWorker mainWorker;
+    private final List<SearchWorker> helperWorkers = new ArrayList<>();
+    // 位棋盘上一次同步的会话（null 表示最近一次是按 int[][] 同步的），以及正在为之搜索的会话
+    private EngineSession boardOwner;
+    private EngineSession syncSession;
+    // 开局库：棋盘上少于 bookDepth 个棋子时先查库
+    private OpeningBook openingBook;
+    private int bookDepth = OpeningBookBuilder.DEFAULT_DEPTH;
+    private boolean lastFromBook;
+    // 威胁空间搜索（VCF/VCT）的开关与限制
+    private boolean threatSearch = true;
+    private int vcfDepth = ThreatSolver.DEFAULT_VCF_DEPTH;
+    private int vctDepth = ThreatSolver.DEFAULT_VCT_DEPTH;
+    private long threatNodeLimit = ThreatSolver.DEFAULT_NODE_LIMIT;
+    // 是否按连珠规则下棋（黑棋有禁手）
+    private boolean renju;
+    // 与复用的位棋盘绑定的求解器，以及根节点着法过滤用的缓冲区
+    private ThreatSolver threatSolver;
+    private boolean[] rootFilter;
+    private boolean rootFilterActive;
+    private int[] rootMoves;
+    // 最近一次搜索中威胁空间搜索访问的节点数
+    private long lastThreatNodes;
+    // 证明数搜索：棋盘上至少 proofMinStones 个棋子时启用，求解器与其置换表在首次使用时创建
+    private boolean proofSearch = true;
+    private int proofMinStones = DEFAULT_PROOF_MIN_STONES;
+    private long proofNodeLimit = DEFAULT_PROOF_NODE_LIMIT;
+    private ProofNumberSolver proofSolver;
+    private long lastProofNodes;
+    private Outcome lastOutcome = Outcome.UNKNOWN;
+    // 最近一次搜索访问的节点数（所有线程之和）
+    private long lastNodes;
+    // 最近一次搜索完整完成的深度
+    private int lastCompletedDepth;
+    // 杀手着法与历史表的开关；最近一次搜索的剪枝节点数及其中首个着法即剪枝的个数
+    private boolean orderingHeuristics = true;
+    private SearchAlgorithm algorithm = SearchAlgorithm.PVS;
+    // 每手的节点预算与随机选择的分数范围（见 Difficulty）
+    private Difficulty difficulty;
+    private long nodeBudget = NO_NODE_LIMIT;
+    private int randomMargin;
+    private Random random = new Random();
+    private long lastCutoffs;
+    private long lastFirstMoveCutoffs;
+    private SearchStats lastStats = SearchStats.EMPTY;
+
+    // 当前搜索的取消令牌（受对象锁保护），阶段之间据此提前返回
+    private CancellationToken searchToken = CancellationToken.NONE;
+
+    // 后台思考：单线程执行器与当前任务；取消令牌供其他线程叫停
+    private int ponderReplies = DEFAULT_PONDER_REPLIES;
+    private ExecutorService ponderPool;
+    private volatile Future<?> ponderTask;
+    private volatile CancellationToken ponderToken;
+    // 后台思考的基准局面（AI 落子后）、AI 颜色与搜索模式（预算为 null 表示固定深度），以及已算好的应对
+    private int[][] ponderBase;
+    private int ponderColor;
+    private int ponderDepth;
+    private Duration ponderBudget;
+    private final List<PonderResult> ponderResults = new ArrayList<>();
+    private boolean lastPonderHit;
+
+    /**
+     * 一次搜索的统计快照（后台思考不覆盖前台搜索的统计）
+     */
+    private static final class Stats {
+        long nodes;
+        long threatNodes;
+        long proofNodes;
+        int completedDepth;
+        Outcome outcome;
+        boolean fromBook;
+        long cutoffs;
+        long firstMoveCutoffs;
+        SearchStats search;
+    }
+
+    /**
+     * 后台思考的结果：对手走 reply 后 AI 的应对及当时的搜索统计
+     */
+    private static final class PonderResult {
+        final int reply;
+        final int[] move;
+        final Stats stats;
 
-    // 方向向量：水平、垂直、右下、左下
-    private static final int[][] DIRS = {
-            {0, 1},
-            {1, 0},
-            {1, 1},
-            {1, -1}
-    };
+        PonderResult(int reply, int[] move, Stats stats) {
+            this.reply = reply;
+            this.move = move;
+            this.stats = stats;
+        }
+    }
 
-    // 最大候选数：随深度递减，越靠上越多尝试以利于剪枝效果
-    private static int topKForDepth(int depthLeft) {
-        int d = MAX_DEPTH - depthLeft;
-        // depthLeft == MAX_DEPTH -> top 40; depthLeft == 1 -> top 6; depthLeft == 0 -> evaluate only
-        if (depthLeft == MAX_DEPTH) return 40;
-        if (depthLeft >= 3) return 20;
-        if (depthLeft >= 2) return 12;
-        if (depthLeft >= 1) return 8;
-        return 6;
+    public GomokuAI() {
+        this(DEFAULT_TT_SIZE_MB);
     }
 
     /**
-     * 返回 AI 最佳落子坐标 {row, col}，若无空位返回 {-1, -1}。
+     * @param ttSizeMb 置换表内存上限（MB），实例存活期间各次搜索共享该表
+     */
+    public GomokuAI(int ttSizeMb) {
+        this.tt = new TranspositionTable(ttSizeMb);
+    }
+
+    /**
+     * 返回 AI 最佳落子坐标 {row, col}，若无可落子的空位（连珠规则下黑棋的禁手点不算）返回 {-1, -1}。
      * board: 二维数组，0 表示空，1/2 表示棋子
      * aiColor: AI 的颜色（1 或 2）
      */
     public int[] getNextStep(int[][] board, int aiColor) {
+        return getNextStep(board, aiColor, (CancellationToken) null);
+    }
+
+    /**
+     * 可取消的 getNextStep(board, aiColor)：其他线程调用 token.cancel() 后搜索尽快退出
+     * （通常在 1 毫秒内），此时返回 {-1, -1}。token 为 null 表示不可取消。
+     */
+    public int[] getNextStep(int[][] board, int aiColor, CancellationToken token) {
         if (board == null || board.length == 0) return new int[]{-1, -1};
-        int n = board.length;
-        int m = board[0].length;
-        int oppColor = (aiColor == 1) ? 2 : 1;
+        long start = System.nanoTime();
+        stopPondering();
+        synchronized (this) {
+            int[] hit = takePonderResult(board, aiColor, fixedModeDepth(), null, start);
+            if (hit != null) return hit;
+            return search(board, aiColor, fixedModeDepth(), NO_DEADLINE, token);
+        }
+    }
 
-        // 生成候选点并排序
-        List<Point> candidates = generateCandidates(board);
-        if (candidates.isEmpty()) {
-            // 初始局面，优先落中心
-            return new int[]{n / 2, m / 2};
+    /**
+     * 在时间预算内返回 AI 最佳落子坐标 {row, col}。
+     * 采用迭代加深：从深度 1 开始逐层加深，每层以上一层的最佳着法优先搜索，
+     * 截止时间到达时放弃未完成的一层，返回最后一个完整完成的深度的结果。
+     * 预算过小、连深度 1 都未完成时，返回启发式排序第一的候选点。
+     */
+    public int[] getNextStep(int[][] board, int aiColor, Duration budget) {
+        return getNextStep(board, aiColor, budget, null);
+    }
+
+    /**
+     * 可取消的 getNextStep(board, aiColor, budget)：被取消时尽快退出并返回 {-1, -1}，token 为 null 表示不可取消
+     */
+    public int[] getNextStep(int[][] board, int aiColor, Duration budget, CancellationToken token) {
+        if (board == null || board.length == 0) return new int[]{-1, -1};
+        if (budget == null || budget.isNegative()) {
+            throw new IllegalArgumentException("时间预算不能为空或负数: " + budget);
+        }
+        long start = System.nanoTime();
+        stopPondering();
+        synchronized (this) {
+            int[] hit = takePonderResult(board, aiColor, MAX_ITERATIVE_DEPTH, budget, start);
+            if (hit != null) return hit;
+            return search(board, aiColor, MAX_ITERATIVE_DEPTH, deadlineAfter(budget), token);
         }
+    }
+
+    /**
+     * 创建绑定一局棋的会话（见 EngineSession），棋盘为 rows x cols 的空棋盘。
+     * 同一个 GomokuAI 可以有多个会话，但它们的搜索串行执行，在会话之间切换时按差异整盘同步。
+     */
+    public EngineSession newSession(int rows, int cols) {
+        return new EngineSession(this, rows, cols);
+    }
+
+    /**
+     * 会话搜索：位棋盘上一次同步的就是该会话时只重放之后的落子与悔棋，否则按差异同步整个棋盘。
+     * budget 为 null 表示固定深度模式。
+     */
+    int[] sessionSearch(EngineSession session, int aiColor, Duration budget, CancellationToken token) {
+        long start = System.nanoTime();
+        stopPondering();
+        synchronized (this) {
+            int depth = budget == null ? fixedModeDepth() : MAX_ITERATIVE_DEPTH;
+            int[][] cells = null;
+            synchronized (session) {
+                // 有后台思考的结果待比对时需要整盘局面，顺便按差异同步
+                if (boardOwner == session && session.canReplay() && ponderBase == null) {
+                    session.replay(board, helperWorkers);
+                } else {
+                    cells = session.toArray();
+                    session.synced();
+                }
+            }
+            if (cells != null) {
+                int[] hit = takePonderResult(cells, aiColor, depth, budget, start);
+                if (hit != null) {
+                    // 位棋盘没有同步到该会话，下次须整盘同步
+                    boardOwner = null;
+                    return hit;
+                }
+            }
+            syncSession = session;
+            try {
+                return search(cells, aiColor, depth, budget == null ? NO_DEADLINE : deadlineAfter(budget), token);
+            } finally {
+                syncSession = null;
+            }
+        }
+    }
 
-        // 启发式排序： attack + defend
-        for (Point p : candidates) {
-            p.score = evaluatePosition(board, p.r, p.c, aiColor) + evaluatePosition(board, p.r, p.c, oppColor);
+    /**
+     * 局面分析：一次搜索给出 AI 一方最好的 lines 个着法及其分数与主变例，按分数从高到低排列
+     * （分数为 AI 视角，第一条与同深度 getNextStep 的结果一致）。用于提示、复盘与生成开局库。
+     * 固定深度为 getMaxDepth()；不查开局库、不做威胁空间与证明数搜索，也不受节点预算与随机选择影响。
+     * 候选点不足 lines 个时返回的条数较少；棋盘已满时返回空数组。
+     */
+    public AnalysisLine[] analyze(int[][] board, int aiColor, int lines) {
+        return analyze(board, aiColor, lines, null);
+    }
+
+    /**
+     * 时间预算模式的局面分析：迭代加深直到 budget 用完，结果取最后一个完整完成的深度。
+     * budget 为 null 时与 analyze(board, aiColor, lines) 相同。
+     */
+    public AnalysisLine[] analyze(int[][] board, int aiColor, int lines, Duration budget) {
+        if (lines < 1) {
+            throw new IllegalArgumentException("分析的着法数必须为正数: " + lines);
         }
-        Collections.sort(candidates, new Comparator<Point>() {
-            @Override
-            public int compare(Point o1, Point o2) {
-                return Integer.compare(o2.score, o1.score);
+        if (budget != null && budget.isNegative()) {
+            throw new IllegalArgumentException("时间预算不能为负数: " + budget);
+        }
+        if (board == null || board.length == 0) return new AnalysisLine[0];
+        long start = System.nanoTime();
+        stopPondering();
+        synchronized (this) {
+            int depth = budget == null ? maxDepth : MAX_ITERATIVE_DEPTH;
+            long deadline = budget == null ? NO_DEADLINE : deadlineAfter(budget);
+            tt.newSearch();
+            SearchWorker main = prepareWorkers(board);
+            useToken(null);
+            lastPonderHit = false;
+            lastThreatNodes = 0;
+            lastProofNodes = 0;
+            lastOutcome = Outcome.UNKNOWN;
+            lastFromBook = false;
+            int cell = runWorkers(aiColor, 1, depth, deadline, -1, null, NO_NODE_LIMIT, lines);
+            // 参数 board 遮住了同名字段，这里取位棋盘的列数
+            int cols = this.board.cols;
+            int[] move = cell < 0 ? new int[]{-1, -1} : new int[]{cell / cols, cell % cols};
+            lastStats = collectStats(move, aiColor, System.nanoTime() - start);
+            if (cell < 0) return new AnalysisLine[0];
+
+            int n = Math.min(lines, main.scoredCount());
+            if (n == 0) {
+                // 没有完整完成任何一层（空棋盘直接落中心，或预算过小）
+                return new AnalysisLine[]{new AnalysisLine(move[0], move[1], 0, principalVariation(cell, aiColor))};
             }
-        });
-
-        // 限制候选数以控制分支
-        int limit = Math.min(candidates.size(), topKForDepth(MAX_DEPTH));
-        candidates = candidates.subList(0, limit);
-
-        int bestR = -1, bestC = -1;
-        int bestVal = Integer.MIN_VALUE;
-        int alpha = Integer.MIN_VALUE;
-        int beta = Integer.MAX_VALUE;
-
-        // 根节点：逐一尝试候选点（排序后），应用 Minimax
-        for (Point p : candidates) {
-            if (!inBounds(board, p.r, p.c) || board[p.r][p.c] != 0) continue;
-            board[p.r][p.c] = aiColor; // 落子
-            int val;
-            if (isFiveAt(board, p.r, p.c, aiColor)) {
-                val = SCORE_FIVE;
-            } else {
-                val = minimax(board, MAX_DEPTH - 1, alpha, beta, false, aiColor, oppColor);
+            AnalysisLine[] result = new AnalysisLine[n];
+            for (int i = 0; i < n; i++) {
+                int m = main.scoredMoves()[i];
+                result[i] = new AnalysisLine(m / cols, m % cols, main.scoredValues()[i],
+                        principalVariation(m, aiColor));
             }
-            board[p.r][p.c] = 0; // 撤子
+            return result;
+        }
+    }
+
+    /**
+     * 固定深度模式的搜索深度：设置了节点预算时改为逐层加深直到预算用完
+     */
+    private int fixedModeDepth() {
+        return nodeBudget == NO_NODE_LIMIT ? maxDepth : MAX_ITERATIVE_DEPTH;
+    }
+
+    /**
+     * 从现在起经过 budget 的截止时刻（溢出时视为无截止）
+     */
+    private static long deadlineAfter(Duration budget) {
+        long start = System.nanoTime();
+        long nanos = budget.toNanos();
+        return (nanos > NO_DEADLINE - start) ? NO_DEADLINE : start + nanos;
+    }
+
+    /**
+     * 搜索最佳落子，并把本次的统计汇总到 lastStats；被取消时返回 {-1, -1}
+     */
+    private int[] search(int[][] cells, int aiColor, int depth, long deadline, CancellationToken token) {
+        long start = System.nanoTime();
+        int[] move = runSearch(cells, aiColor, depth, deadline, token);
+        if (token != null && token.isCancelled()) move = new int[]{-1, -1};
+        lastStats = collectStats(move, aiColor, System.nanoTime() - start);
+        return move;
+    }
+
+    /**
+     * 把棋盘同步到复用的位棋盘上并搜索最佳落子。
+     * 单线程时只运行主工作者；多线程时辅助工作者在线程池中搜索各自的棋盘副本，
+     * 共享置换表，主工作者结束后叫停并等待所有辅助工作者，结果只取主工作者的。
+     */
+    private int[] runSearch(int[][] cells, int aiColor, int depth, long deadline, CancellationToken token) {
+        tt.newSearch();
+        SearchWorker main = prepareWorkers(cells);
+        useToken(token);
+        lastPonderHit = false;
+        lastThreatNodes = 0;
+        lastProofNodes = 0;
+        lastOutcome = Outcome.UNKNOWN;
+        lastFromBook = false;
+        lastCutoffs = 0;
+        lastFirstMoveCutoffs = 0;
+        int direct = presearch(aiColor, deadline);
+        if (direct >= 0) {
+            lastNodes = lastThreatNodes + lastProofNodes;
+            lastCompletedDepth = 0;
+            return new int[]{direct / board.cols, direct % board.cols};
+        }
+        if (searchToken.isCancelled()) return new int[]{-1, -1};
+        // 已证明必败：不再深搜，只按一层搜索选择应手
+        int searchDepth = lastOutcome == Outcome.LOSS ? 1 : depth;
+        // 节点预算扣除求解器已用的部分后由各工作者平分
+        long workerNodes = NO_NODE_LIMIT;
+        if (nodeBudget != NO_NODE_LIMIT) {
+            workerNodes = Math.max(1, (nodeBudget - lastThreatNodes - lastProofNodes) / threads);
+        }
+        int cell = runWorkers(aiColor, 1, searchDepth, deadline, -1, rootFilterActive ? rootFilter : null, workerNodes,
+                rootScoringLines());
+        if (cell < 0) return new int[]{-1, -1};
+        if (randomMargin > 0) cell = pickNearBest(main.scoredMoves(), main.scoredValues(), main.scoredCount(), cell);
+        return new int[]{cell / board.cols, cell % board.cols};
+    }
+
+    /**
+     * 让本次搜索的工作者与求解器都检查 token（null 表示不可取消）
+     */
+    private void useToken(CancellationToken token) {
+        searchToken = token == null ? CancellationToken.NONE : token;
+        mainWorker.setToken(searchToken);
+        for (int i = 0; i < threads - 1; i++) helperWorkers.get(i).setToken(searchToken);
+        threatSolver.setToken(searchToken);
+        if (proofSolver != null) proofSolver.setToken(searchToken);
+    }
 
-            if (val > bestVal) {
-                bestVal = val;
-                bestR = p.r;
-                bestC = p.c;
+    /**
+     * 通用搜索之前的阶段：开局库、威胁空间搜索、证明数搜索。
+     * 命中开局库或找到必胜着法时返回其格子下标，否则返回 -1；
+     * 对方有杀法时 rootFilterActive 置位，通用搜索只在 rootFilter 标记的着法中选择。
+     */
+    private int presearch(int aiColor, long deadline) {
+        rootFilterActive = false;
+        if (openingBook != null && board.stoneCount() < bookDepth) {
+            int cell = openingBook.probe(board, aiColor);
+            // 开局库按自由规则生成，库中的着法可能是禁手
+            if (cell >= 0 && !board.isForbidden(cell, aiColor)) {
+                lastFromBook = true;
+                return cell;
             }
-            alpha = Math.max(alpha, bestVal);
-            if (alpha >= beta) {
-                // 根节点剪枝
-                break;
+        }
+        if (threatSearch && board.stoneCount() > 0) {
+            // 威胁空间搜索最多使用剩余时间的四分之一
+            int win = solveThreats(aiColor, shareOf(deadline));
+            if (win >= 0) {
+                lastOutcome = Outcome.WIN;
+                return win;
             }
         }
+        if (searchToken.isCancelled()) return -1;
+        if (proofSearch && board.stoneCount() >= proofMinStones) {
+            return solveProof(aiColor, shareOf(deadline));
+        }
+        return -1;
+    }
 
-        if (bestR == -1) {
-            // 兜底，返回第一个空位
-            for (int i = 0; i < n; i++) {
-                for (int j = 0; j < m; j++) {
-                    if (board[i][j] == 0) return new int[]{i, j};
-                }
+    /**
+     * 运行主工作者（以及辅助工作者）从 firstDepth 层迭代到 depth 层，返回主工作者的结果。
+     * 单线程时只运行主工作者；多线程时辅助工作者在线程池中搜索各自的棋盘副本，
+     * 共享置换表，主工作者结束后叫停并等待所有辅助工作者，节点数等计数汇总到 lastNodes 等字段。
+     * 主工作者在根节点为最好的 multiPv 个着法求精确分数，辅助工作者总是普通搜索。
+     */
+    private int runWorkers(int aiColor, int firstDepth, int depth, long deadline, int firstMove,
+                           boolean[] filter, long workerNodes, int multiPv) {
+        SearchWorker main = mainWorker;
+        main.restrictRoot(filter);
+        main.setNodeLimit(workerNodes);
+        main.setMultiPv(multiPv);
+        for (int i = 0; i < threads - 1; i++) {
+            helperWorkers.get(i).restrictRoot(filter);
+            helperWorkers.get(i).setNodeLimit(workerNodes);
+        }
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 1; i < threads; i++) {
+            SearchWorker helper = helperWorkers.get(i - 1);
+            futures.add(helperPool().submit(() -> helper.search(aiColor, firstDepth, depth, deadline, firstMove)));
+        }
+        try {
+            return main.search(aiColor, firstDepth, depth, deadline, firstMove);
+        } finally {
+            long total = main.nodes();
+            lastCutoffs = main.cutoffs();
+            lastFirstMoveCutoffs = main.firstMoveCutoffs();
+            for (int i = 0; i < futures.size(); i++) helperWorkers.get(i).stop();
+            for (int i = 0; i < futures.size(); i++) {
+                awaitHelper(futures.get(i));
+                SearchWorker helper = helperWorkers.get(i);
+                total += helper.nodes();
+                lastCutoffs += helper.cutoffs();
+                lastFirstMoveCutoffs += helper.firstMoveCutoffs();
             }
+            lastNodes = total + lastThreatNodes + lastProofNodes;
+            lastCompletedDepth = main.completedDepth();
         }
+    }
 
-        return new int[]{bestR, bestC};
+    /**
+     * 普通搜索在根节点要精确打分的着法数：启用随机选择时每个根着法都要，否则只要最佳着法
+     */
+    private int rootScoringLines() {
+        return randomMargin > 0 ? SearchWorker.ALL_ROOT_MOVES : 1;
     }
 
     /**
-     * Minimax 搜索（带 Alpha-Beta）
-     * depthLeft: 剩余深度
-     * maximizing: 当前节点是否为最大化（AI）
+     * 在根节点打过分的着法（moves、values 的前 n 个）中，随机选一个与最佳分数相差不超过 randomMargin 的着法；
+     * 已找到必胜或必败（分数达到成五）时不随机，仍走搜索给出的着法
      */
-    private int minimax(int[][] board, int depthLeft, int alpha, int beta, boolean maximizing, int aiColor, int oppColor) {
-        // 终止条件
-        if (depthLeft <= 0) {
-            return evaluateBoard(board, aiColor, oppColor);
+    private int pickNearBest(int[] moves, int[] values, int n, int cell) {
+        if (n == 0) return cell;
+        int best = Integer.MIN_VALUE;
+        for (int i = 0; i < n; i++) best = Math.max(best, values[i]);
+        if (Math.abs(best) >= Evaluator.SCORE_FIVE) return cell;
+        int near = 0;
+        for (int i = 0; i < n; i++) {
+            if (values[i] >= best - randomMargin) near++;
         }
+        int k = random.nextInt(near);
+        for (int i = 0; i < n; i++) {
+            if (values[i] >= best - randomMargin && k-- == 0) return moves[i];
+        }
+        return cell;
+    }
 
-        // 生成候选点并按启发式排序
-        List<Point> candidates = generateCandidates(board);
-        if (candidates.isEmpty()) {
-            return evaluateBoard(board, aiColor, oppColor);
+    /**
+     * 汇总各工作者的计数（辅助工作者此时都已结束），并沿置换表回溯主变例
+     */
+    private SearchStats collectStats(int[] move, int aiColor, long elapsedNanos) {
+        long leafEvals = 0, ttProbes = 0, ttHits = 0;
+        long[] byIndex = new long[SearchWorker.CUTOFF_BUCKETS];
+        for (int i = 0; i < threads; i++) {
+            SearchWorker w = i == 0 ? mainWorker : helperWorkers.get(i - 1);
+            leafEvals += w.leafEvals();
+            ttProbes += w.ttProbes();
+            ttHits += w.ttHits();
+            w.addCutoffsByIndex(byIndex);
         }
+        int[][] pv = move[0] < 0 ? new int[0][] : principalVariation(move[0] * board.cols + move[1], aiColor);
+        return new SearchStats(lastNodes, lastThreatNodes, lastProofNodes, leafEvals, ttProbes, ttHits,
+                byIndex, lastCutoffs, lastCompletedDepth, mainWorker.maxPly(), pv, elapsedNanos,
+                lastOutcome, lastFromBook, false);
+    }
 
-        // 为当前角色计算启发式分数（对最大化使用 aiColor 的评估，否则使用 oppColor）
-        int currentColor = maximizing ? aiColor : oppColor;
-        int opponentColor = maximizing ? oppColor : aiColor;
-        for (Point p : candidates) {
-            p.score = evaluatePosition(board, p.r, p.c, currentColor) + evaluatePosition(board, p.r, p.c, opponentColor);
+    /**
+     * 从 AI 的落子 first 开始沿置换表中各局面的最佳着法回溯主变例，最多 completedDepth 手
+     * （至少 1 手），遇到缺失、已占用或成五的着法即停止。结束后棋盘恢复原状。
+     */
+    private int[][] principalVariation(int first, int aiColor) {
+        int limit = Math.max(1, lastCompletedDepth);
+        int[] line = new int[limit];
+        int length = 0;
+        int color = aiColor;
+        int cell = first;
+        while (true) {
+            line[length++] = cell;
+            board.place(cell, color);
+            if (length >= limit || board.isFiveAt(cell, color)) break;
+            color = 3 - color;
+            long entry = tt.peek(board.hash() ^ Zobrist.side(color));
+            cell = entry == 0 ? -1 : TranspositionTable.moveOf(entry);
+            if (cell < 0 || cell >= board.cellCount || board.get(cell) != 0) break;
         }
-        Collections.sort(candidates, new Comparator<Point>() {
-            @Override
-            public int compare(Point o1, Point o2) {
-                return Integer.compare(o2.score, o1.score);
-            }
-        });
-
-        int limit = Math.min(candidates.size(), topKForDepth(depthLeft));
-        candidates = candidates.subList(0, limit);
-
-        if (maximizing) {
-            int value = Integer.MIN_VALUE;
-            for (Point p : candidates) {
-                if (!inBounds(board, p.r, p.c) || board[p.r][p.c] != 0) continue;
-                board[p.r][p.c] = currentColor;
-                int childVal;
-                if (isFiveAt(board, p.r, p.c, currentColor)) {
-                    childVal = SCORE_FIVE;
-                } else {
-                    childVal = minimax(board, depthLeft - 1, alpha, beta, false, aiColor, oppColor);
-                }
-                board[p.r][p.c] = 0;
-                value = Math.max(value, childVal);
-                alpha = Math.max(alpha, value);
-                if (alpha >= beta) break; // 剪枝
-            }
-            return value;
+        for (int i = length - 1; i >= 0; i--) board.remove(line[i]);
+
+        int[][] pv = new int[length][];
+        for (int i = 0; i < length; i++) pv[i] = new int[]{line[i] / board.cols, line[i] % board.cols};
+        return pv;
+    }
+
+    /**
+     * 准备本次搜索的工作者：棋盘尺寸变化时重建，否则只同步棋子差异并清零计数。
+     * cells 为 null 表示会话已把变化直接重放到各个棋盘上，无需同步。
+     */
+    private SearchWorker prepareWorkers(int[][] cells) {
+        boolean synced = cells == null;
+        if (synced) {
+            // 棋盘已由会话重放
+        } else if (board == null || board.rows != cells.length || board.cols != cells[0].length) {
+            board = BitBoard.fromArray(cells);
+            mainWorker = new SearchWorker(tt, board, 0);
+            helperWorkers.clear();
+            threatSolver = new ThreatSolver(board, MAX_THREAT_DEPTH);
+            proofSolver = null;
+            rootFilter = new boolean[board.cellCount];
+            rootMoves = new int[board.cellCount];
         } else {
-            int value = Integer.MAX_VALUE;
-            for (Point p : candidates) {
-                if (!inBounds(board, p.r, p.c) || board[p.r][p.c] != 0) continue;
-                board[p.r][p.c] = currentColor;
-                int childVal;
-                if (isFiveAt(board, p.r, p.c, currentColor)) {
-                    childVal = -SCORE_FIVE;
-                } else {
-                    childVal = minimax(board, depthLeft - 1, alpha, beta, true, aiColor, oppColor);
-                }
-                board[p.r][p.c] = 0;
-                value = Math.min(value, childVal);
-                beta = Math.min(beta, value);
-                if (alpha >= beta) break; // 剪枝
-            }
-            return value;
+            board.load(cells);
+            // 暂时不用的辅助工作者也同步，保证会话逐手重放时所有棋盘一致
+            for (SearchWorker helper : helperWorkers) helper.board().load(cells);
         }
+        boardOwner = syncSession;
+        board.setRenju(renju);
+        mainWorker.reset();
+        mainWorker.setOrderingHeuristics(orderingHeuristics);
+        mainWorker.setAlgorithm(algorithm);
+        for (int i = helperWorkers.size() + 1; i < threads; i++) {
+            helperWorkers.add(new SearchWorker(tt, board.copy(), i));
+        }
+        for (int i = 0; i < threads - 1; i++) {
+            SearchWorker helper = helperWorkers.get(i);
+            helper.board().setRenju(renju);
+            helper.reset();
+            helper.setOrderingHeuristics(orderingHeuristics);
+            helper.setAlgorithm(algorithm);
+        }
+        return mainWorker;
     }
 
     /**
-     * 对当前棋盘做整体评估：AI 得分 - 对手得分
-     * 逻辑：遍历所有空点，计算落子后的进攻/防守潜力，累加为 heuristic。
+     * 威胁空间搜索：
+     *  1. 己方有 VCF 直接返回第一步；
+     *  2. 对方没有 VCF（否则己方活三会被对方连续冲四反杀）时，己方有 VCT 也直接返回；
+     *  3. 对方有 VCF/VCT 时，逐个试走根节点候选点，标记走后对方不再有同类杀法的着法，
+     *     rootFilterActive 置位，通用搜索只在这些着法中选择。
+     * 返回必胜着法的格子下标，没有返回 -1。
      */
-    private int evaluateBoard(int[][] board, int aiColor, int oppColor) {
-        int n = board.length;
-        int m = (n > 0 ? board[0].length : 0);
-        int score = 0;
+    private int solveThreats(int aiColor, long deadline) {
+        int oppColor = 3 - aiColor;
+        rootFilterActive = false;
 
-        // 遍历所有格子，针对每个空位评估对双方的潜力
-        for (int r = 0; r < n; r++) {
-            for (int c = 0; c < m; c++) {
-                if (board[r][c] != 0) continue;
-                int a = evaluatePosition(board, r, c, aiColor);
-                int b = evaluatePosition(board, r, c, oppColor);
-                score += (a - b);
-            }
+        int win = threatSolver.findVcf(aiColor, vcfDepth, threatLimit(), deadline);
+        lastThreatNodes += threatSolver.nodes();
+        if (win >= 0) return win;
+
+        boolean oppVct = false;
+        boolean oppWins = threatSolver.findVcf(oppColor, vcfDepth, threatLimit(), deadline) >= 0;
+        lastThreatNodes += threatSolver.nodes();
+        if (!oppWins) {
+            win = threatSolver.findVct(aiColor, vctDepth, threatLimit(), deadline);
+            lastThreatNodes += threatSolver.nodes();
+            if (win >= 0) return win;
+            oppWins = oppVct = threatSolver.findVct(oppColor, vctDepth, threatLimit(), deadline) >= 0;
+            lastThreatNodes += threatSolver.nodes();
         }
+        if (!oppWins) return -1;
 
-        // 额外：检测当前已有的连子（如果已存在成五则返回非常大值）
-        // 遍历所有已有棋子，若发现任意一方已成五，则直接返回极值
-        for (int r = 0; r < n; r++) {
-            for (int c = 0; c < m; c++) {
-                int v = board[r][c];
-                if (v == 0) continue;
-                if (isFiveAt(board, r, c, v)) {
-                    if (v == aiColor) return SCORE_FIVE;
-                    else return -SCORE_FIVE;
-                }
+        // 防守：找出走后能化解对方杀法的着法
+        Arrays.fill(rootFilter, false);
+        int n = board.candidates(rootMoves, aiColor);
+        for (int i = 0; i < n; i++) {
+            if (searchToken.isCancelled()) return -1;
+            // 节点预算或时间用完时放弃过滤，交给通用搜索
+            if (threatLimit() <= 0) return -1;
+            if (deadline != NO_DEADLINE && System.nanoTime() >= deadline) return -1;
+            int cell = rootMoves[i];
+            board.place(cell, aiColor);
+            boolean stillWins = oppVct
+                    ? threatSolver.findVct(oppColor, vctDepth, threatLimit(), deadline) >= 0
+                    : threatSolver.findVcf(oppColor, vcfDepth, threatLimit(), deadline) >= 0;
+            lastThreatNodes += threatSolver.nodes();
+            board.remove(cell);
+            rootFilter[cell] = !stillWins;
+        }
+        rootFilterActive = true;
+        return -1;
+    }
+
+    /**
+     * 证明数搜索：先证明 AI 能否取胜（找到则返回第一步），再证明对方能否在 AI 任意应手后取胜。
+     * 结果写入 lastOutcome；返回必胜着法的格子下标，没有返回 -1。
+     */
+    private int solveProof(int aiColor, long deadline) {
+        if (proofSolver == null) {
+            proofSolver = new ProofNumberSolver(board, ProofNumberSolver.DEFAULT_TABLE_MB);
+            proofSolver.setToken(searchToken);
+        }
+        int result = proofSolver.solve(aiColor, aiColor, proofLimit(), deadline);
+        lastProofNodes += proofSolver.nodes();
+        if (result == ProofNumberSolver.PROVEN) {
+            int move = proofSolver.provenMove(aiColor);
+            if (move >= 0) {
+                lastOutcome = Outcome.WIN;
+                return move;
             }
         }
+        result = proofSolver.solve(3 - aiColor, aiColor, proofLimit(), deadline);
+        lastProofNodes += proofSolver.nodes();
+        if (result == ProofNumberSolver.PROVEN) lastOutcome = Outcome.LOSS;
+        return -1;
+    }
+
+    /**
+     * 威胁空间搜索单次求解的节点上限：有节点预算时，威胁空间搜索合计最多用预算的四分之一
+     */
+    private long threatLimit() {
+        if (nodeBudget == NO_NODE_LIMIT) return threatNodeLimit;
+        return Math.min(threatNodeLimit, Math.max(0, nodeBudget / 4 - lastThreatNodes));
+    }
 
-        return score;
+    /**
+     * 证明数搜索单次求解的节点上限：有节点预算时，证明数搜索合计最多用预算的四分之一
+     */
+    private long proofLimit() {
+        if (nodeBudget == NO_NODE_LIMIT) return proofNodeLimit;
+        return Math.min(proofNodeLimit, Math.max(0, nodeBudget / 4 - lastProofNodes));
     }
 
     /**
-     * 评估在 (row, col) 放 color 的总得分（四个方向的综合）。
-     * 该函数不修改 board，而是假设落子存在，按棋型给出分值。
-     *
-     * 通过对四个方向的细分打分可以识别活四、双三等组合：例如若在不同方向各形成活三，
-     * 则额外提升（双三）以反映其威胁性。
+     * 辅助求解器可用的截止时间：剩余时间的四分之一
      */
-    private int evaluatePosition(int[][] board, int row, int col, int color) {
-        int n = board.length;
-        int m = board[0].length;
-        if (!inBounds(board, row, col)) return 0;
-        if (board[row][col] != 0) return 0;
+    private static long shareOf(long deadline) {
+        if (deadline == NO_DEADLINE) return NO_DEADLINE;
+        long now = System.nanoTime();
+        return now + Math.max(0, deadline - now) / 4;
+    }
 
-        int totalScore = 0;
-        int openThreeCount = 0;
-        boolean hasOpenFour = false;
+    // =================== 后台思考 ===================
 
-        for (int[] d : DIRS) {
-            DirectionPattern dp = analyseDirection(board, row, col, color, d[0], d[1]);
-            totalScore += dp.score;
-            if (dp.isOpenThree) openThreeCount++;
-            if (dp.isOpenFour) hasOpenFour = true;
+    /**
+     * 在 AI 落子后开始后台思考（固定深度模式，与 getNextStep(board, aiColor) 配套）。
+     * board 为 AI 落子后的局面，aiColor 为 AI 颜色；会复制 board，调用方可以继续修改它。
+     * 已有的后台思考会先被取消。
+     */
+    public void startPondering(int[][] board, int aiColor) {
+        startPondering(board, aiColor, fixedModeDepth(), null);
+    }
+
+    /**
+     * 在 AI 落子后开始后台思考（时间预算模式，与 getNextStep(board, aiColor, budget) 配套），
+     * 每种预测应手各用 budget 搜索
+     */
+    public void startPondering(int[][] board, int aiColor, Duration budget) {
+        if (budget == null || budget.isNegative()) {
+            throw new IllegalArgumentException("时间预算不能为空或负数: " + budget);
         }
+        startPondering(board, aiColor, MAX_ITERATIVE_DEPTH, budget);
+    }
 
-        // 双三的识别（两个及以上方向有活三）
-        if (openThreeCount >= 2) {
-            totalScore += SCORE_OPEN_THREE * 2; // 提高双三价值
+    private void startPondering(int[][] board, int aiColor, int depth, Duration budget) {
+        if (board == null || board.length == 0) return;
+        stopPondering();
+        int[][] base = new int[board.length][];
+        for (int i = 0; i < board.length; i++) base[i] = board[i].clone();
+        synchronized (this) {
+            ponderBase = base;
+            ponderColor = aiColor;
+            ponderDepth = depth;
+            ponderBudget = budget;
+            ponderResults.clear();
+            CancellationToken token = new CancellationToken();
+            ponderToken = token;
+            ponderTask = ponderPool().submit(() -> ponder(base, aiColor, depth, budget, token));
         }
+    }
 
-        // 若存在活四，额外加分（活四极其危险）
-        if (hasOpenFour) totalScore += SCORE_OPEN_FOUR / 2;
+    /**
+     * 取消后台思考并等待其结束（已算好的应对保留，供下一次 getNextStep 使用）。没有后台思考时直接返回。
+     */
+    public void stopPondering() {
+        Future<?> task = ponderTask;
+        if (task == null) return;
+        ponderToken.cancel();
+        awaitHelper(task);
+        ponderTask = null;
+    }
 
-        return totalScore;
+    /**
+     * 后台思考是否仍在进行
+     */
+    public boolean isPondering() {
+        Future<?> task = ponderTask;
+        return task != null && !task.isDone();
     }
 
     /**
-     * 在单方向上分析落子后的棋型，返回该方向的得分以及是否为活三/活四等信息。
+     * 设置后台思考预测的对手应手数（默认 3，0 表示后台思考什么也不做）
      */
-    private DirectionPattern analyseDirection(int[][] board, int row, int col, int color, int dx, int dy) {
-        int n = board.length;
-        int m = board[0].length;
+    public void setPonderReplies(int replies) {
+        if (replies < 0) {
+            throw new IllegalArgumentException("预测应手数不能为负数: " + replies);
+        }
+        this.ponderReplies = replies;
+    }
 
-        int leftCount = 0, rightCount = 0;
+    public int getPonderReplies() {
+        return ponderReplies;
+    }
 
-        int r = row - dx, c = col - dy;
-        while (inBounds(board, r, c) && board[r][c] == color) {
-            leftCount++;
-            r -= dx;
-            c -= dy;
-        }
-        boolean leftOpen = inBounds(board, r, c) && board[r][c] == 0;
+    /**
+     * 最近一次 getNextStep 是否命中后台思考的预测、直接返回了算好的应对
+     */
+    public boolean isLastMovePondered() {
+        return lastPonderHit;
+    }
 
-        r = row + dx; c = col + dy;
-        while (inBounds(board, r, c) && board[r][c] == color) {
-            rightCount++;
-            r += dx;
-            c += dy;
+    /**
+     * 后台思考任务：预测对手应手，逐个摆上并完整搜索 AI 的应对（与前台搜索相同的流程），结果存入 ponderResults。
+     * 每个应手单独持锁，前台调用 stopPondering 后最多等待当前这一次搜索退出。
+     */
+    private void ponder(int[][] cells, int aiColor, int depth, Duration budget, CancellationToken token) {
+        int human = 3 - aiColor;
+        int[] replies;
+        synchronized (this) {
+            if (token.isCancelled()) return;
+            replies = predictReplies(cells, human);
+        }
+        int cols = cells[0].length;
+        for (int reply : replies) {
+            synchronized (this) {
+                if (token.isCancelled()) return;
+                Stats saved = captureStats();
+                cells[reply / cols][reply % cols] = human;
+                try {
+                    long deadline = budget == null ? NO_DEADLINE : deadlineAfter(budget);
+                    int[] move = search(cells, aiColor, depth, deadline, token);
+                    if (!token.isCancelled()) ponderResults.add(new PonderResult(reply, move, captureStats()));
+                } finally {
+                    cells[reply / cols][reply % cols] = 0;
+                    restoreStats(saved);
+                }
+            }
         }
-        boolean rightOpen = inBounds(board, r, c) && board[r][c] == 0;
+    }
 
-        int total = leftCount + 1 + rightCount;
-        DirectionPattern dp = new DirectionPattern();
+    /**
+     * 预测对手最可能的应手：置换表中该局面的最佳着法（即 AI 上一次搜索的主变例）在前，
+     * 其余按进攻 + 防守的启发分取前几名，共 ponderReplies 个，返回格子下标
+     */
+    private int[] predictReplies(int[][] cells, int human) {
+        prepareWorkers(cells);
+        int n = board.candidates(rootMoves, human);
+        int k = Math.min(ponderReplies, n);
+        if (k == 0) return new int[0];
+        int[] moves = Arrays.copyOf(rootMoves, n);
+        int[] scores = new int[n];
+        for (int i = 0; i < n; i++) {
+            scores[i] = Evaluator.evaluatePosition(board, moves[i], human) + Evaluator.evaluatePosition(board, moves[i], 3 - human);
+        }
+        int top = SearchWorker.selectTop(moves, scores, n, k);
 
-        if (total >= 5) {
-            dp.score = SCORE_FIVE;
-            return dp;
+        int[] replies = new int[k];
+        int count = 0;
+        long entry = tt.probe(board.hash() ^ Zobrist.side(human));
+        int ttMove = entry == 0 ? -1 : TranspositionTable.moveOf(entry);
+        if (ttMove >= 0 && board.get(ttMove) == 0 && board.isCandidate(ttMove)) {
+            replies[count++] = ttMove;
         }
-        if (total == 4) {
-            if (leftOpen && rightOpen) {
-                dp.score = SCORE_OPEN_FOUR;
-                dp.isOpenFour = true;
-            } else {
-                dp.score = SCORE_DEAD_FOUR;
+        for (int i = 0; i < top && count < k; i++) {
+            if (moves[i] != ttMove) replies[count++] = moves[i];
+        }
+        return replies;
+    }
+
+    /**
+     * 若 board 恰为后台思考的基准局面加上对手的一手、且该应手已算好，返回算好的应对并恢复当时的统计；
+     * 否则返回 null。无论是否命中，后台思考的结果都只用这一次。
+     */
+    private int[] takePonderResult(int[][] cells, int aiColor, int depth, Duration budget, long start) {
+        int[][] base = ponderBase;
+        ponderBase = null;
+        if (base == null || ponderResults.isEmpty()) return null;
+        List<PonderResult> results = new ArrayList<>(ponderResults);
+        ponderResults.clear();
+        if (aiColor != ponderColor || depth != ponderDepth || !Objects.equals(budget, ponderBudget)) return null;
+        if (cells.length != base.length || cells[0].length != base[0].length) return null;
+
+        int reply = -1;
+        for (int r = 0; r < cells.length; r++) {
+            for (int c = 0; c < cells[r].length; c++) {
+                if (cells[r][c] == base[r][c]) continue;
+                if (reply >= 0 || base[r][c] != 0 || cells[r][c] != 3 - aiColor) return null;
+                reply = r * cells[0].length + c;
             }
-            return dp;
-        }
-        if (total == 3) {
-            if (leftOpen && rightOpen) {
-                dp.score = SCORE_OPEN_THREE;
-                dp.isOpenThree = true;
-            } else if (leftOpen || rightOpen) {
-                dp.score = SCORE_DEAD_THREE;
-            } else {
-                dp.score = 0;
+        }
+        for (PonderResult result : results) {
+            if (result.reply == reply) {
+                restoreStats(result.stats);
+                lastStats = lastStats.asPondered(System.nanoTime() - start);
+                lastPonderHit = true;
+                return result.move.clone();
             }
-            return dp;
         }
-        if (total == 2) {
-            if (leftOpen && rightOpen) dp.score = SCORE_OPEN_TWO;
-            else if (leftOpen || rightOpen) dp.score = SCORE_OTHER;
-            else dp.score = 0;
-            return dp;
+        return null;
+    }
+
+    /**
+     * 后台思考已算好应对的对手应手（格子下标），供测试使用
+     */
+    synchronized int[] ponderedReplies() {
+        int[] replies = new int[ponderResults.size()];
+        for (int i = 0; i < replies.length; i++) replies[i] = ponderResults.get(i).reply;
+        return replies;
+    }
+
+    private Stats captureStats() {
+        Stats s = new Stats();
+        s.nodes = lastNodes;
+        s.threatNodes = lastThreatNodes;
+        s.proofNodes = lastProofNodes;
+        s.completedDepth = lastCompletedDepth;
+        s.outcome = lastOutcome;
+        s.fromBook = lastFromBook;
+        s.cutoffs = lastCutoffs;
+        s.firstMoveCutoffs = lastFirstMoveCutoffs;
+        s.search = lastStats;
+        return s;
+    }
+
+    private void restoreStats(Stats s) {
+        lastNodes = s.nodes;
+        lastThreatNodes = s.threatNodes;
+        lastProofNodes = s.proofNodes;
+        lastCompletedDepth = s.completedDepth;
+        lastOutcome = s.outcome;
+        lastFromBook = s.fromBook;
+        lastCutoffs = s.cutoffs;
+        lastFirstMoveCutoffs = s.firstMoveCutoffs;
+        lastStats = s.search;
+    }
+
+    private synchronized ExecutorService ponderPool() {
+        if (ponderPool == null) {
+            ponderPool = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "gomoku-ai-ponder");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return ponderPool;
+    }
+
+    private void awaitHelper(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // 辅助线程只负责填充置换表，其异常不影响主线程结果
+        }
+    }
+
+    private synchronized ExecutorService helperPool() {
+        if (helperPool == null) {
+            helperPool = Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "gomoku-ai-helper");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return helperPool;
+    }
+
+    // =================== 分片搜索 ===================
+
+    /**
+     * 创建一次可分片执行的搜索（见 SearchTask），由调用方反复调用 runSlice 直到结束。
+     * budget 为合计的搜索时间预算（只计入执行中的时间）；为 null 时按固定深度模式搜满 getMaxDepth() 层
+     * （设置了节点预算时逐层加深直到预算用完）。会复制 board，调用方可以继续修改它。
+     */
+    public SearchTask newSearchTask(int[][] board, int aiColor, Duration budget) {
+        if (board == null || board.length == 0) {
+            throw new IllegalArgumentException("棋盘不能为空");
         }
-        if (total == 1) {
-            if (leftOpen && rightOpen) dp.score = SCORE_OTHER / 2;
-            else if (leftOpen || rightOpen) dp.score = SCORE_OTHER / 4;
-            else dp.score = 0;
-            return dp;
+        if (budget != null && budget.isNegative()) {
+            throw new IllegalArgumentException("时间预算不能为负数: " + budget);
         }
-        dp.score = 0;
-        return dp;
+        return budget == null
+                ? new SearchTask(this, board, aiColor, fixedModeDepth(), NO_DEADLINE)
+                : new SearchTask(this, board, aiColor, MAX_ITERATIVE_DEPTH, budget.toNanos());
     }
 
     /**
-     * 判断在 (r,c) 放 color 是否直接形成五子（用于终止）
+     * 执行 task 的一片，最多 sliceNanos（不超过剩余预算），返回任务是否已结束。
+     * 与 getNextStep 一样先取消后台思考；分片搜索不覆盖 getLastSearchStats 等最近一次搜索的统计。
      */
-    private boolean isFiveAt(int[][] board, int r, int c, int color) {
-        if (!inBounds(board, r, c)) return false;
-        for (int[] d : DIRS) {
-            int cnt = 1;
-            int x = r + d[0], y = c + d[1];
-            while (inBounds(board, x, y) && board[x][y] == color) {
-                cnt++; x += d[0]; y += d[1];
+    boolean runSlice(SearchTask task, long sliceNanos) {
+        stopPondering();
+        synchronized (this) {
+            if (task.done) return true;
+            CancellationToken slice = new CancellationToken();
+            task.setSliceToken(slice);
+            // 先登记再检查，与 cancel() 的“先置标志再叫停这一片”配合，不会漏掉取消
+            if (task.isCancelled()) slice.cancel();
+            long start = System.nanoTime();
+            long remaining = task.budgetNanos == NO_DEADLINE ? NO_DEADLINE : task.budgetNanos - task.usedNanos;
+            long nanos = Math.min(sliceNanos, remaining);
+            long deadline = nanos > NO_DEADLINE - start ? NO_DEADLINE : start + nanos;
+            Stats saved = captureStats();
+            try {
+                if (!task.isCancelled()) runSliceSearch(task, slice, deadline);
+            } finally {
+                restoreStats(saved);
+                task.setSliceToken(null);
+                task.usedNanos += System.nanoTime() - start;
+                task.slices++;
+                boolean outOfTime = task.budgetNanos != NO_DEADLINE && task.usedNanos >= task.budgetNanos;
+                boolean outOfNodes = nodeBudget != NO_NODE_LIMIT && task.nodes >= nodeBudget;
+                if (!task.done && (task.isCancelled() || outOfTime || outOfNodes)) finishTask(task, task.bestCell);
             }
-            x = r - d[0]; y = c - d[1];
-            while (inBounds(board, x, y) && board[x][y] == color) {
-                cnt++; x -= d[0]; y -= d[1];
+            return task.done;
+        }
+    }
+
+    /**
+     * 一片的搜索：第一片先走开局库与求解器，之后从已完成深度的下一层接着迭代加深
+     */
+    private void runSliceSearch(SearchTask task, CancellationToken slice, long deadline) {
+        SearchWorker main = prepareWorkers(task.cells);
+        useToken(slice);
+        lastThreatNodes = 0;
+        lastProofNodes = 0;
+        if (!task.prepared) {
+            tt.newSearch();
+            task.prepared = true;
+            lastOutcome = Outcome.UNKNOWN;
+            lastFromBook = false;
+            int direct = presearch(task.aiColor, deadline);
+            task.nodes += lastThreatNodes + lastProofNodes;
+            task.outcome = lastOutcome;
+            if (direct >= 0) {
+                finishTask(task, direct);
+                return;
             }
-            if (cnt >= 5) return true;
-        }
-        return false;
-    }
-
-    /**
-     * 生成候选点集合：只保留与已有棋子近邻的空位（半径 2），以减少不必要的搜索。
-     * 若棋盘几乎为空，则返回中心点作为候选。
-     */
-    private List<Point> generateCandidates(int[][] board) {
-        int n = board.length;
-        int m = board[0].length;
-        boolean any = false;
-        List<Point> list = new ArrayList<Point>();
-        boolean[][] mark = new boolean[n][m];
-
-        for (int r = 0; r < n; r++) {
-            for (int c = 0; c < m; c++) {
-                if (board[r][c] != 0) {
-                    any = true;
-                    // 半径 2 内的空格作为候选
-                    for (int dr = -2; dr <= 2; dr++) {
-                        for (int dc = -2; dc <= 2; dc++) {
-                            int nr = r + dr, nc = c + dc;
-                            if (inBounds(board, nr, nc) && board[nr][nc] == 0 && !mark[nr][nc]) {
-                                mark[nr][nc] = true;
-                                list.add(new Point(nr, nc));
-                            }
-                        }
-                    }
-                }
+            if (rootFilterActive) task.rootFilter = rootFilter.clone();
+            if (slice.isCancelled()) return;
+            lastThreatNodes = 0;
+            lastProofNodes = 0;
+        }
+        int depth = task.outcome == Outcome.LOSS ? 1 : task.maxDepth;
+        long workerNodes = NO_NODE_LIMIT;
+        if (nodeBudget != NO_NODE_LIMIT) {
+            workerNodes = Math.max(1, (nodeBudget - task.nodes) / threads);
+        }
+        int cell = runWorkers(task.aiColor, task.completedDepth + 1, depth, deadline, task.bestCell,
+                task.rootFilter, workerNodes, rootScoringLines());
+        task.nodes += lastNodes;
+        if (main.completedDepth() > task.completedDepth) {
+            if (randomMargin > 0) {
+                task.scoredCount = main.scoredCount();
+                task.scoredMoves = Arrays.copyOf(main.scoredMoves(), task.scoredCount);
+                task.scoredValues = Arrays.copyOf(main.scoredValues(), task.scoredCount);
             }
+            task.bestCell = cell;
+            task.completedDepth = main.completedDepth();
+        } else if (task.bestCell < 0) {
+            // 一层都没完成时暂用启发式排序第一的着法
+            task.bestCell = cell;
         }
+        // 工作者没有中止，说明已搜满深度或已分出胜负
+        if (!main.isStopped() || cell < 0) finishTask(task, task.bestCell);
+    }
 
-        if (!any) {
-            // 初始空盘，落中心
-            list.add(new Point(n / 2, m / 2));
+    private void finishTask(SearchTask task, int cell) {
+        if (cell >= 0 && randomMargin > 0 && task.scoredCount > 0) {
+            cell = pickNearBest(task.scoredMoves, task.scoredValues, task.scoredCount, cell);
         }
+        task.resultCell = cell;
+        task.done = true;
+    }
 
-        return list;
+    // =================== 搜索配置 ===================
+
+    /**
+     * 设置搜索线程数。1 为单线程（默认，结果确定）；大于 1 时启用 Lazy SMP 并行搜索。
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("线程数必须至少为 1: " + threads);
+        }
+        this.threads = threads;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * 设置固定深度模式（getNextStep(board, aiColor)）的搜索深度，默认 4
+     */
+    public void setMaxDepth(int maxDepth) {
+        if (maxDepth < 1 || maxDepth > MAX_ITERATIVE_DEPTH) {
+            throw new IllegalArgumentException("搜索深度超出范围: " + maxDepth);
+        }
+        this.maxDepth = maxDepth;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * 开关杀手着法与历史表排序（默认开启）。关闭后只按静态启发分排序，便于对比节点数。
+     */
+    public void setOrderingHeuristicsEnabled(boolean enabled) {
+        this.orderingHeuristics = enabled;
+    }
+
+    public boolean isOrderingHeuristicsEnabled() {
+        return orderingHeuristics;
     }
 
     /**
-     * 安全边界判断
+     * 设置难度等级（节点预算与随机选择范围），传 null 恢复默认：不限节点、总走最佳着法。
+     * 设置后固定深度模式（getNextStep(board, aiColor)）改为在预算内逐层加深，maxDepth 不再起作用；
+     * 时间预算模式下时间与节点预算同时生效，先到者为准。
      */
-    private boolean inBounds(int[][] board, int r, int c) {
-        if (board == null) return false;
-        if (r < 0 || r >= board.length) return false;
-        if (board.length == 0) return false;
-        if (c < 0 || c >= board[0].length) return false;
-        return true;
+    public void setDifficulty(Difficulty difficulty) {
+        this.difficulty = difficulty;
+        this.nodeBudget = difficulty == null ? NO_NODE_LIMIT : difficulty.nodeBudget;
+        this.randomMargin = difficulty == null ? 0 : difficulty.randomMargin;
     }
 
-    // 简单的点类用于候选点排序
-    private static class Point {
-        int r, c;
-        int score;
-        Point(int r, int c) { this.r = r; this.c = c; this.score = 0; }
+    public Difficulty getDifficulty() {
+        return difficulty;
     }
 
-    // 单方向分析结果
-    private static class DirectionPattern {
-        int score = 0;
-        boolean isOpenThree = false;
-        boolean isOpenFour = false;
+    /**
+     * 单独设置每手的节点预算（含各求解器），必须为正数
+     */
+    public void setNodeBudget(long nodeBudget) {
+        if (nodeBudget <= 0) {
+            throw new IllegalArgumentException("节点预算必须为正数: " + nodeBudget);
+        }
+        this.nodeBudget = nodeBudget;
     }
 
+    public long getNodeBudget() {
+        return nodeBudget;
+    }
+
+    /**
+     * 单独设置随机选择的分数范围，0 表示总走最佳着法。大于 0 时根节点放弃剪枝以得到每个着法的精确分数。
+     */
+    public void setRandomMargin(int randomMargin) {
+        if (randomMargin < 0) {
+            throw new IllegalArgumentException("随机选择范围不能为负数: " + randomMargin);
+        }
+        this.randomMargin = randomMargin;
+    }
+
+    public int getRandomMargin() {
+        return randomMargin;
+    }
+
+    /**
+     * 固定随机选择的种子（便于测试与复盘）
+     */
+    public void setRandomSeed(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * 选择搜索算法（默认 PVS）。MINIMAX 保留原始实现，用于对比节点数与落子。
+     */
+    public void setSearchAlgorithm(SearchAlgorithm algorithm) {
+        if (algorithm == null) {
+            throw new IllegalArgumentException("搜索算法不能为空");
+        }
+        this.algorithm = algorithm;
+    }
+
+    public SearchAlgorithm getSearchAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * 取消后台思考，关闭辅助搜索与后台思考线程池（线程为守护线程，不调用也不会阻止 JVM 退出）
+     */
+    public void shutdown() {
+        stopPondering();
+        synchronized (this) {
+            if (helperPool != null) {
+                helperPool.shutdownNow();
+                helperPool = null;
+            }
+            if (ponderPool != null) {
+                ponderPool.shutdownNow();
+                ponderPool = null;
+            }
+        }
+    }
+
+    /**
+     * 设置开局库（可为 null 表示不用）。开局库只读，可在多个实例间共享。
+     */
+    public void setOpeningBook(OpeningBook book) {
+        this.openingBook = book;
+    }
+
+    public OpeningBook getOpeningBook() {
+        return openingBook;
+    }
+
+    /**
+     * 设置开局库的使用范围：棋盘上少于 bookDepth 个棋子时查库，默认 8
+     */
+    public void setBookDepth(int bookDepth) {
+        if (bookDepth < 0) {
+            throw new IllegalArgumentException("开局库手数不能为负数: " + bookDepth);
+        }
+        this.bookDepth = bookDepth;
+    }
+
+    public int getBookDepth() {
+        return bookDepth;
+    }
+
+    /**
+     * 开关威胁空间搜索（默认开启）。关闭后只运行通用的 Minimax 搜索。
+     */
+    public void setThreatSearchEnabled(boolean enabled) {
+        this.threatSearch = enabled;
+    }
+
+    public boolean isThreatSearchEnabled() {
+        return threatSearch;
+    }
+
+    /**
+     * 开关连珠规则（默认关闭，即自由规则）。开启后黑棋（颜色 1）不走三三、四四、长连禁手，
+     * 白棋照常；规则不同时同一局面的分数不同，切换时清空置换表。
+     */
+    public void setRenju(boolean renju) {
+        if (this.renju == renju) return;
+        this.renju = renju;
+        clearTranspositionTable();
+    }
+
+    public boolean isRenju() {
+        return renju;
+    }
+
+    /**
+     * 设置威胁空间搜索的限制
+     * @param vcfDepth  连续冲四的最大进攻步数
+     * @param vctDepth  冲四/活三连续进攻的最大进攻步数
+     * @param nodeLimit 单次求解的节点上限（一次 getNextStep 可能求解多次）
+     */
+    public void setThreatSearchLimits(int vcfDepth, int vctDepth, long nodeLimit) {
+        if (vcfDepth < 0 || vcfDepth > MAX_THREAT_DEPTH || vctDepth < 0 || vctDepth > MAX_THREAT_DEPTH) {
+            throw new IllegalArgumentException("威胁搜索深度超出范围: " + vcfDepth + "/" + vctDepth);
+        }
+        if (nodeLimit < 1) {
+            throw new IllegalArgumentException("节点上限必须为正数: " + nodeLimit);
+        }
+        this.vcfDepth = vcfDepth;
+        this.vctDepth = vctDepth;
+        this.threatNodeLimit = nodeLimit;
+    }
+
+    /**
+     * 开关证明数搜索（默认开启）
+     */
+    public void setProofSearchEnabled(boolean enabled) {
+        this.proofSearch = enabled;
+    }
+
+    public boolean isProofSearchEnabled() {
+        return proofSearch;
+    }
+
+    /**
+     * 设置证明数搜索的启用条件与限制
+     * @param minStones 棋盘上至少有多少个棋子时启用
+     * @param nodeLimit 单次求解的节点上限（一次 getNextStep 最多求解两次）
+     */
+    public void setProofSearchLimits(int minStones, long nodeLimit) {
+        if (minStones < 1) {
+            throw new IllegalArgumentException("启用棋子数必须为正数: " + minStones);
+        }
+        if (nodeLimit < 1) {
+            throw new IllegalArgumentException("节点上限必须为正数: " + nodeLimit);
+        }
+        this.proofMinStones = minStones;
+        this.proofNodeLimit = nodeLimit;
+    }
+
+    // =================== 搜索统计 ===================
+
+    /**
+     * 最近一次 getNextStep 的完整统计：节点数、叶子评估次数、按着法序号的剪枝次数、置换表命中、
+     * 完成深度与最大层数、主变例、耗时等。每次调用返回新的只读快照，可以跨线程保存。
+     */
+    public synchronized SearchStats getLastSearchStats() {
+        return lastStats;
+    }
+
+    /**
+     * 最近一次 getNextStep 访问的搜索节点数（并行模式下为所有线程之和）
+     */
+    public long getLastNodeCount() {
+        return lastNodes;
+    }
+
+    /**
+     * 最近一次 getNextStep 对局面的判定：威胁空间搜索或证明数搜索证明了 AI 必胜时为 WIN，
+     * 证明数搜索证明了 AI 无论怎么走都会输时为 LOSS，否则为 UNKNOWN
+     */
+    public Outcome getLastOutcome() {
+        return lastOutcome;
+    }
+
+    /**
+     * 最近一次 getNextStep 的落子是否来自开局库
+     */
+    public boolean isLastMoveFromBook() {
+        return lastFromBook;
+    }
+
+    /**
+     * 最近一次 getNextStep 中威胁空间搜索访问的节点数（已计入 getLastNodeCount）
+     */
+    public long getLastThreatNodeCount() {
+        return lastThreatNodes;
+    }
+
+    /**
+     * 最近一次 getNextStep 完整完成的搜索深度（固定深度模式下即 maxDepth；威胁空间搜索直接找到杀法时为 0）
+     */
+    public int getLastCompletedDepth() {
+        return lastCompletedDepth;
+    }
+
+    /**
+     * 最近一次 getNextStep 中发生剪枝的节点里，第一个着法就引起剪枝的比例（0~1），
+     * 越接近 1 说明着法排序越好；没有剪枝时为 0
+     */
+    public double getLastFirstMoveCutoffRate() {
+        return lastCutoffs == 0 ? 0.0 : (double) lastFirstMoveCutoffs / lastCutoffs;
+    }
+
+    /**
+     * 置换表命中率（探测到相同局面的比例），自创建或上次 resetTranspositionStats 起累计
+     */
+    public double getTranspositionHitRate() {
+        return tt.hitRate();
+    }
+
+    /**
+     * 置换表冲突率（槽位被其他局面占用的比例）
+     */
+    public double getTranspositionCollisionRate() {
+        return tt.collisionRate();
+    }
+
+    public void resetTranspositionStats() {
+        tt.resetStats();
+    }
+
+    /**
+     * 清空置换表（例如开始新的一局）
+     */
+    public void clearTranspositionTable() {
+        tt.clear();
+        if (proofSolver != null) proofSolver.clear();
+    }
 
     /**
      * 渲染棋盘为彩色字符串（和人人对战风格一致）
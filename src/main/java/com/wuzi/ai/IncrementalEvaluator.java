@@ -0,0 +1,155 @@
+package com.wuzi.ai;
+
+/**
+ * IncrementalEvaluator - 增量维护的棋型得分
+ * 特性：
+ *  - 缓存每个空位、每种颜色、每个方向的 analyseDirection 结果，以及合并后的单点得分
+ *  - 维护每种颜色所有空位得分之和，整盘评估因此为 O(1)
+ *  - 同时记录每个空位的威胁等级（成五/活四或双四/成四/成活三）与各颜色成五点的个数，
+ *    供 ThreatSolver 与 ProofNumberSolver 使用
+ *  - 落子/撤子后只更新受影响的格子：该子本身，以及四条线上距它 4 格以内的空位
+ *
+ * 为什么只有这些格子会变：空位在某方向上的棋型只取决于以它为中心的 9 格窗口（PatternTable），
+ * 一个格子变化只会影响窗口覆盖它的空位，即同一条线上距离不超过 4 的空位。
+ *
+ * 由所属 BitBoard 在落子/撤子后回调，得分与 Evaluator.scanPosition 逐格扫描完全一致。
+ */
+final class IncrementalEvaluator {
+    // 威胁等级：在该空位落子后四个方向中最强的棋型
+    static final int THREAT_NONE = 0;
+    static final int THREAT_THREE = 1;
+    static final int THREAT_FOUR = 2;
+    // 活四或双四：对方只能堵住其中一个成五点
+    static final int THREAT_OPEN_FOUR = 3;
+    static final int THREAT_FIVE = 4;
+
+    private final BitBoard bb;
+    // dirPattern[color][dir][cell]：analyseDirection 的打包结果，非空位为 0
+    private final int[][][] dirPattern;
+    // cellScore[color][cell]：合并四个方向后的单点得分，非空位为 0
+    private final int[][] cellScore;
+    // total[color]：所有格子 cellScore 之和
+    private final int[] total;
+    // threat[color][cell]：威胁等级，非空位为 THREAT_NONE
+    private final int[][] threat;
+    // fivePoints[color]：落子即成五的空位个数
+    private final int[] fivePoints;
+
+    IncrementalEvaluator(BitBoard bb) {
+        this.bb = bb;
+        this.dirPattern = new int[3][BitBoard.DIR_COUNT][bb.cellCount];
+        this.cellScore = new int[3][bb.cellCount];
+        this.total = new int[3];
+        this.threat = new int[3][bb.cellCount];
+        this.fivePoints = new int[3];
+        for (int cell = 0; cell < bb.cellCount; cell++) {
+            for (int d = 0; d < BitBoard.DIR_COUNT; d++) {
+                refreshDirection(d, cell);
+            }
+            refreshCell(cell);
+        }
+    }
+
+    /**
+     * 复制构造：用于 BitBoard.copy，绑定到新的位棋盘
+     */
+    IncrementalEvaluator(BitBoard bb, IncrementalEvaluator other) {
+        this.bb = bb;
+        this.dirPattern = new int[3][BitBoard.DIR_COUNT][];
+        this.cellScore = new int[3][];
+        this.threat = new int[3][];
+        for (int color = 1; color <= 2; color++) {
+            for (int d = 0; d < BitBoard.DIR_COUNT; d++) {
+                dirPattern[color][d] = other.dirPattern[color][d].clone();
+            }
+            cellScore[color] = other.cellScore[color].clone();
+            threat[color] = other.threat[color].clone();
+        }
+        this.total = other.total.clone();
+        this.fivePoints = other.fivePoints.clone();
+    }
+
+    int score(int color, int cell) {
+        return cellScore[color][cell];
+    }
+
+    int total(int color) {
+        return total[color];
+    }
+
+    int threat(int color, int cell) {
+        return threat[color][cell];
+    }
+
+    int fivePoints(int color) {
+        return fivePoints[color];
+    }
+
+    /**
+     * cell 的棋子刚被放下或移除（位棋盘已更新）
+     */
+    void onChange(int cell) {
+        for (int d = 0; d < BitBoard.DIR_COUNT; d++) {
+            refreshDirection(d, cell);
+            int line = bb.lineOf[d][cell];
+            int pos = bb.posOf[d][cell];
+            // 窗口半径内的空位（不含 cell 自身）
+            int shift = pos - PatternTable.RADIUS;
+            long window = shift >= 0 ? (long) PatternTable.WINDOW_MASK << shift : (long) PatternTable.WINDOW_MASK >>> -shift;
+            long near = bb.lineEmpty(d, line) & window & ~(1L << pos);
+            while (near != 0) {
+                refreshNeighbor(d, line, Long.numberOfTrailingZeros(near));
+                near &= near - 1;
+            }
+        }
+        refreshCell(cell);
+    }
+
+    private void refreshNeighbor(int dir, int line, int pos) {
+        int cell = bb.cellAt[dir][line][pos];
+        refreshDirection(dir, cell);
+        refreshCell(cell);
+    }
+
+    private void refreshDirection(int dir, int cell) {
+        if (bb.get(cell) != 0) {
+            dirPattern[1][dir][cell] = 0;
+            dirPattern[2][dir][cell] = 0;
+        } else {
+            dirPattern[1][dir][cell] = Evaluator.analyseDirection(bb, cell, 1, dir);
+            dirPattern[2][dir][cell] = Evaluator.analyseDirection(bb, cell, 2, dir);
+        }
+    }
+
+    private void refreshCell(int cell) {
+        boolean occupied = bb.get(cell) != 0;
+        for (int color = 1; color <= 2; color++) {
+            int[][] p = dirPattern[color];
+            int s = occupied ? 0 : Evaluator.combine(p[0][cell], p[1][cell], p[2][cell], p[3][cell]);
+            total[color] += s - cellScore[color][cell];
+            cellScore[color][cell] = s;
+
+            int t = occupied ? THREAT_NONE : threatLevel(p[0][cell], p[1][cell], p[2][cell], p[3][cell]);
+            int old = threat[color][cell];
+            if (old == THREAT_FIVE) fivePoints[color]--;
+            if (t == THREAT_FIVE) fivePoints[color]++;
+            threat[color][cell] = t;
+        }
+    }
+
+    private static int threatLevel(int d0, int d1, int d2, int d3) {
+        int best = Math.max(Math.max(d0 & Evaluator.SCORE_MASK, d1 & Evaluator.SCORE_MASK),
+                Math.max(d2 & Evaluator.SCORE_MASK, d3 & Evaluator.SCORE_MASK));
+        if (best >= Evaluator.SCORE_FIVE) return THREAT_FIVE;
+        if (best >= Evaluator.SCORE_DEAD_FOUR) {
+            int fours = ((d0 & Evaluator.SCORE_MASK) >= Evaluator.SCORE_DEAD_FOUR ? 1 : 0)
+                    + ((d1 & Evaluator.SCORE_MASK) >= Evaluator.SCORE_DEAD_FOUR ? 1 : 0)
+                    + ((d2 & Evaluator.SCORE_MASK) >= Evaluator.SCORE_DEAD_FOUR ? 1 : 0)
+                    + ((d3 & Evaluator.SCORE_MASK) >= Evaluator.SCORE_DEAD_FOUR ? 1 : 0);
+            boolean open = ((d0 | d1 | d2 | d3) & Evaluator.FLAG_OPEN_FOUR) != 0;
+            return (open || fours >= 2) ? THREAT_OPEN_FOUR : THREAT_FOUR;
+        }
+        if (((d0 | d1 | d2 | d3) & Evaluator.FLAG_OPEN_THREE) != 0) return THREAT_THREE;
+        return THREAT_NONE;
+    }
+}
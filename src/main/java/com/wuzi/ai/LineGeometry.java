@@ -0,0 +1,96 @@
+package com.wuzi.ai;
+
+/**
+ * LineGeometry - 棋盘四组线的几何信息（格子所在的线号、线内位置、线长掩码与反查表）
+ * 只取决于棋盘尺寸、创建后不可变。BitBoard 与 RenjuRules 的轻量镜像共用这套编号，
+ * 因此同一套按线位图计算的棋型代码可以同时用于两者。
+ *
+ * 方向编号：0 水平 {0,1}、1 垂直 {1,0}、2 右下 {1,1}、3 左下 {1,-1}。
+ * 线内位置沿方向向量递增，因此“左侧”即方向的反向。
+ */
+final class LineGeometry {
+    // 单条线最多 63 个格子，保证移位运算不越过 long 的符号位
+    static final int MAX_SIZE = 63;
+
+    static final int DIR_COUNT = 4;
+
+    final int rows;
+    final int cols;
+    final int cellCount;
+
+    // 各方向的线数
+    final int[] lineCount;
+    // lineOf[dir][cell] 线号，posOf[dir][cell] 线内位置
+    final int[][] lineOf;
+    final int[][] posOf;
+    // 每条线的长度掩码：lineMask[dir][line] = (1L << len) - 1
+    final long[][] lineMask;
+    // 反查表：cellAt[dir][line][pos] 为线内位置对应的格子
+    final int[][][] cellAt;
+
+    LineGeometry(int rows, int cols) {
+        if (rows <= 0 || cols <= 0 || rows > MAX_SIZE || cols > MAX_SIZE) {
+            throw new IllegalArgumentException("棋盘尺寸超出位棋盘支持范围: " + rows + "x" + cols);
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.cellCount = rows * cols;
+
+        int diagCount = rows + cols - 1;
+        this.lineCount = new int[]{rows, cols, diagCount, diagCount};
+        this.lineOf = new int[DIR_COUNT][cellCount];
+        this.posOf = new int[DIR_COUNT][cellCount];
+        int[][] lineLen = new int[DIR_COUNT][];
+        for (int d = 0; d < DIR_COUNT; d++) lineLen[d] = new int[lineCount[d]];
+
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                int cell = r * cols + c;
+                // 水平：第 r 行，位置 c
+                lineOf[0][cell] = r;
+                posOf[0][cell] = c;
+                // 垂直：第 c 列，位置 r
+                lineOf[1][cell] = c;
+                posOf[1][cell] = r;
+                // 右下：r - c 恒定，位置 min(r, c)
+                lineOf[2][cell] = r - c + cols - 1;
+                posOf[2][cell] = Math.min(r, c);
+                // 左下：r + c 恒定，位置为 r 减去线起点行号
+                lineOf[3][cell] = r + c;
+                posOf[3][cell] = r - Math.max(0, r + c - (cols - 1));
+                for (int d = 0; d < DIR_COUNT; d++) {
+                    lineLen[d][lineOf[d][cell]]++;
+                }
+            }
+        }
+
+        this.lineMask = new long[DIR_COUNT][];
+        this.cellAt = new int[DIR_COUNT][][];
+        for (int d = 0; d < DIR_COUNT; d++) {
+            lineMask[d] = new long[lineCount[d]];
+            cellAt[d] = new int[lineCount[d]][];
+            for (int i = 0; i < lineCount[d]; i++) {
+                lineMask[d][i] = (1L << lineLen[d][i]) - 1;
+                cellAt[d][i] = new int[lineLen[d][i]];
+            }
+        }
+        for (int cell = 0; cell < cellCount; cell++) {
+            for (int d = 0; d < DIR_COUNT; d++) {
+                cellAt[d][lineOf[d][cell]][posOf[d][cell]] = cell;
+            }
+        }
+    }
+
+    /**
+     * 每种颜色、每个方向一组线位图：返回 [3][DIR_COUNT][]，颜色取 1/2，下标 0 不用
+     */
+    long[][][] newStones() {
+        long[][][] stones = new long[3][DIR_COUNT][];
+        for (int color = 1; color <= 2; color++) {
+            for (int d = 0; d < DIR_COUNT; d++) {
+                stones[color][d] = new long[lineCount[d]];
+            }
+        }
+        return stones;
+    }
+}
@@ -0,0 +1,208 @@
+package com.wuzi.ai;
+
+/**
+ * MovePicker - 分阶段、惰性的着法生成
+ * 按阶段逐个给出着法，节点在前面的着法上剪枝时，后面阶段的生成与打分都不会发生：
+ *  1. 强制着法：己方有成五点时只走成五点；否则对方有成五点时只走堵点（其余着法必输），到此为止
+ *  2. 置换表着法
+ *  3. 战术着法：任一方在该点能成三以上的候选点，只对它们打分，按分数逐个选出
+ *  4. 杀手着法（两个槽位，已作为战术着法给出的跳过）
+ *  5. 其余平静着法：此时才计算静态启发分（进攻 + 防守）加历史表加分，每次选出剩余中最高的一个
+ * 各阶段的着法都计入着法上限 limit。连珠规则下黑棋的禁手点在各阶段都不给出。
+ *
+ * 每层一个实例，使用搜索工作者预分配的该层缓冲区，不产生堆分配。
+ */
+final class MovePicker {
+    private static final int STAGE_FORCED = 0;
+    private static final int STAGE_HASH = 1;
+    private static final int STAGE_TACTICAL_GEN = 2;
+    private static final int STAGE_TACTICAL = 3;
+    private static final int STAGE_KILLER_1 = 4;
+    private static final int STAGE_KILLER_2 = 5;
+    private static final int STAGE_QUIET_GEN = 6;
+    private static final int STAGE_QUIET = 7;
+    private static final int STAGE_DONE = 8;
+
+    private final BitBoard bb;
+    private final IncrementalEvaluator ev;
+    private final int[] moves;
+    private final int[] scores;
+
+    private int stage;
+    private int color;
+    private int ttMove;
+    private int killer1;
+    private int killer2;
+    // 历史表（null 表示不加分）
+    private int[] history;
+    private int limit;
+    // 已给出的着法数
+    private int picked;
+    // moves 中待给出区间 [next, count)
+    private int next;
+    private int count;
+
+    MovePicker(BitBoard bb, int[] moves, int[] scores) {
+        this.bb = bb;
+        this.ev = bb.evaluator();
+        this.moves = moves;
+        this.scores = scores;
+    }
+
+    /**
+     * 为 color 行棋的节点准备生成。ttMove、killer1、killer2 为 -1 表示没有。
+     */
+    void init(int color, int ttMove, int killer1, int killer2, int[] history, int limit) {
+        this.color = color;
+        this.ttMove = ttMove;
+        this.killer1 = killer1;
+        this.killer2 = killer2;
+        this.history = history;
+        this.limit = limit;
+        this.picked = 0;
+        this.next = 0;
+        this.count = 0;
+        this.stage = STAGE_FORCED;
+    }
+
+    /**
+     * 返回下一个着法，没有更多着法或已达上限时返回 -1
+     */
+    int next() {
+        if (picked >= limit) return -1;
+        int move = pick();
+        if (move >= 0) picked++;
+        return move;
+    }
+
+    /**
+     * 任一方在 cell 落子能成三以上（含冲四、活四）的着法视为战术着法，其余为平静着法
+     */
+    static boolean isTactical(IncrementalEvaluator ev, int color, int cell) {
+        return ev.threat(color, cell) >= IncrementalEvaluator.THREAT_THREE
+                || ev.threat(3 - color, cell) >= IncrementalEvaluator.THREAT_THREE;
+    }
+
+    private int pick() {
+        while (true) {
+            switch (stage) {
+                case STAGE_FORCED:
+                    if (generateForced()) {
+                        stage = STAGE_DONE;
+                        if (next < count) return moves[next++];
+                        return -1;
+                    }
+                    stage = STAGE_HASH;
+                    break;
+                case STAGE_HASH:
+                    stage = STAGE_TACTICAL_GEN;
+                    if (playable(ttMove)) return ttMove;
+                    break;
+                case STAGE_TACTICAL_GEN:
+                    generate(true);
+                    stage = STAGE_TACTICAL;
+                    break;
+                case STAGE_TACTICAL:
+                    if (next < count) return selectBest();
+                    stage = STAGE_KILLER_1;
+                    break;
+                case STAGE_KILLER_1:
+                    stage = STAGE_KILLER_2;
+                    if (quietKiller(killer1)) return killer1;
+                    break;
+                case STAGE_KILLER_2:
+                    stage = STAGE_QUIET_GEN;
+                    if (killer2 != killer1 && quietKiller(killer2)) return killer2;
+                    break;
+                case STAGE_QUIET_GEN:
+                    generate(false);
+                    stage = STAGE_QUIET;
+                    break;
+                case STAGE_QUIET:
+                    if (next < count) return selectBest();
+                    stage = STAGE_DONE;
+                    return -1;
+                default:
+                    if (next < count) return moves[next++];
+                    return -1;
+            }
+        }
+    }
+
+    /**
+     * 有成五点时把强制着法写入 moves 并返回 true：己方成五点只取一个，对方成五点全部列出。
+     * 黑棋的长连点是禁手，不在候选点中，只有这类成五点时按没有己方成五点处理；
+     * 对方的成五点都是禁手时返回 true 且没有着法（无法阻挡）。
+     */
+    private boolean generateForced() {
+        int opp = 3 - color;
+        boolean own = ev.fivePoints(color) > 0;
+        if (!own && ev.fivePoints(opp) == 0) return false;
+
+        int n = bb.candidates(moves, color);
+        next = 0;
+        if (own) {
+            for (int i = 0; i < n; i++) {
+                if (ev.threat(color, moves[i]) == IncrementalEvaluator.THREAT_FIVE) {
+                    moves[0] = moves[i];
+                    count = 1;
+                    return true;
+                }
+            }
+            if (ev.fivePoints(opp) == 0) return false;
+        }
+        count = 0;
+        for (int i = 0; i < n; i++) {
+            if (ev.threat(opp, moves[i]) == IncrementalEvaluator.THREAT_FIVE) moves[count++] = moves[i];
+        }
+        return true;
+    }
+
+    private boolean playable(int cell) {
+        return cell >= 0 && bb.get(cell) == 0 && bb.isCandidate(cell) && !bb.isForbidden(cell, color);
+    }
+
+    private boolean quietKiller(int cell) {
+        return cell != ttMove && playable(cell) && !isTactical(ev, color, cell);
+    }
+
+    /**
+     * 生成并打分一类候选点（战术或平静），去掉已给出的置换表着法与杀手着法。
+     * 候选集合由位棋盘维护，重新取一次只是位扫描，打分只针对这一类。
+     */
+    private void generate(boolean tactical) {
+        int opp = 3 - color;
+        int n = bb.candidates(moves, color);
+        count = 0;
+        for (int i = 0; i < n; i++) {
+            int cell = moves[i];
+            if (cell == ttMove || isTactical(ev, color, cell) != tactical) continue;
+            if (!tactical && (cell == killer1 || cell == killer2)) continue;
+            int score = Evaluator.evaluatePosition(bb, cell, color) + Evaluator.evaluatePosition(bb, cell, opp);
+            if (history != null) score += SearchWorker.historyBonus(history[cell]);
+            moves[count] = cell;
+            scores[count] = score;
+            count++;
+        }
+        next = 0;
+    }
+
+    /**
+     * 选择排序的一步：把 [next, count) 中得分最高者（同分取靠前者）移到 next 处并返回，
+     * 其余保持相对顺序，结果与按得分稳定排序后依次取出相同
+     */
+    private int selectBest() {
+        int best = next;
+        for (int i = next + 1; i < count; i++) {
+            if (scores[i] > scores[best]) best = i;
+        }
+        int move = moves[best];
+        int score = scores[best];
+        System.arraycopy(moves, next, moves, next + 1, best - next);
+        System.arraycopy(scores, next, scores, next + 1, best - next);
+        moves[next] = move;
+        scores[next] = score;
+        next++;
+        return move;
+    }
+}
@@ -0,0 +1,199 @@
+package com.wuzi.ai;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * OpeningBook - 开局库
+ * 特性：
+ *  - 局面键为 8 种棋盘对称（旋转 + 翻转）下 Zobrist 哈希的最小值再异或行棋方，
+ *    对称的局面共用一条记录，着法以取到最小值的那个对称变换下的坐标存储
+ *  - 文件为按键排序的定长记录，通过内存映射的 FileChannel 二分查找，查询不读整个文件
+ *  - 只支持正方形棋盘（8 种对称），由 OpeningBookBuilder 生成
+ *
+ * 文件格式（大端）：
+ *   头部 16 字节：魔数 "GKB1"、版本、棋盘边长、记录数
+ *   记录 12 字节：long 局面键、short 着法格子（规范坐标）、short 权重（对局数）
+ *
+ * 只读，可被多个 GomokuAI 实例同时查询。
+ */
+public final class OpeningBook implements Closeable {
+    static final int MAGIC = 0x474B_4231; // "GKB1"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int ENTRY_BYTES = 12;
+    // 对称变换个数
+    static final int SYMMETRIES = 8;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int boardSize;
+    private final int count;
+    // perm[t][cell]：变换 t 下 cell 的像；inverse[t] 为其逆变换
+    private final int[][] perm;
+    private final int[][] inverse;
+
+    private OpeningBook(FileChannel channel, MappedByteBuffer buffer, int boardSize, int count) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.boardSize = boardSize;
+        this.count = count;
+        this.perm = symmetries(boardSize);
+        this.inverse = new int[SYMMETRIES][boardSize * boardSize];
+        for (int t = 0; t < SYMMETRIES; t++) {
+            for (int cell = 0; cell < perm[t].length; cell++) {
+                inverse[t][perm[t][cell]] = cell;
+            }
+        }
+    }
+
+    /**
+     * 以只读方式映射开局库文件
+     * @throws IOException 文件不存在、无法读取或格式不正确
+     */
+    public static OpeningBook open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException("开局库文件过短: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            int magic = buffer.getInt(0);
+            int version = buffer.getInt(4);
+            int boardSize = buffer.getInt(8);
+            int count = buffer.getInt(12);
+            if (magic != MAGIC || version != VERSION) {
+                throw new IOException("不是开局库文件或版本不支持: " + path);
+            }
+            if (boardSize <= 0 || boardSize > BitBoard.MAX_SIZE || count < 0
+                    || size != HEADER_BYTES + (long) count * ENTRY_BYTES) {
+                throw new IOException("开局库文件已损坏: " + path);
+            }
+            return new OpeningBook(channel, buffer, boardSize, count);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 文件存在时打开，不存在或无法读取时返回 null（用于可选的默认开局库）
+     */
+    public static OpeningBook openIfExists(Path path) {
+        if (!Files.isRegularFile(path)) return null;
+        try {
+            return open(path);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int getBoardSize() {
+        return boardSize;
+    }
+
+    /**
+     * 查询开局库，返回 {row, col}；局面不在库中时返回 null
+     * @param toMove 行棋方颜色（1 或 2）
+     */
+    public int[] probe(int[][] board, int toMove) {
+        if (board == null || board.length != boardSize || board[0].length != boardSize) return null;
+        int cell = probe(BitBoard.fromArray(board), toMove);
+        return cell < 0 ? null : new int[]{cell / boardSize, cell % boardSize};
+    }
+
+    /**
+     * 查询开局库，返回格子下标；不在库中、棋盘尺寸不符或库中着法已被占用时返回 -1
+     */
+    int probe(BitBoard bb, int toMove) {
+        if (bb.rows != boardSize || bb.cols != boardSize || count == 0) return -1;
+        int t = canonicalTransform(bb, perm);
+        int canonicalMove = find(hashUnder(bb, perm[t]) ^ Zobrist.side(toMove));
+        if (canonicalMove < 0 || canonicalMove >= bb.cellCount) return -1;
+        int cell = inverse[t][canonicalMove];
+        return bb.get(cell) == 0 ? cell : -1;
+    }
+
+    /**
+     * 二分查找局面键，返回规范坐标下的着法，未找到返回 -1
+     */
+    private int find(long key) {
+        int lo = 0, hi = count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int offset = HEADER_BYTES + mid * ENTRY_BYTES;
+            long k = buffer.getLong(offset);
+            if (k < key) lo = mid + 1;
+            else if (k > key) hi = mid - 1;
+            else return buffer.getShort(offset + 8) & 0xFFFF;
+        }
+        return -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // =================== 对称变换（与 OpeningBookBuilder 共用） ===================
+
+    /**
+     * 8 种对称变换的格子置换表：4 种旋转，以及各自的左右翻转
+     */
+    static int[][] symmetries(int n) {
+        int[][] p = new int[SYMMETRIES][n * n];
+        for (int r = 0; r < n; r++) {
+            for (int c = 0; c < n; c++) {
+                int cell = r * n + c;
+                int[][] images = {
+                        {r, c}, {c, n - 1 - r}, {n - 1 - r, n - 1 - c}, {n - 1 - c, r},
+                        {r, n - 1 - c}, {c, r}, {n - 1 - r, c}, {n - 1 - c, n - 1 - r}
+                };
+                for (int t = 0; t < SYMMETRIES; t++) {
+                    p[t][cell] = images[t][0] * n + images[t][1];
+                }
+            }
+        }
+        return p;
+    }
+
+    /**
+     * 取 8 个对称局面中哈希最小者作为规范局面，返回对应的变换编号
+     */
+    static int canonicalTransform(BitBoard bb, int[][] perm) {
+        long best = 0;
+        int bestT = -1;
+        for (int t = 0; t < SYMMETRIES; t++) {
+            long h = hashUnder(bb, perm[t]);
+            if (bestT < 0 || h < best) {
+                best = h;
+                bestT = t;
+            }
+        }
+        return bestT;
+    }
+
+    /**
+     * 局面经置换 perm 变换后的 Zobrist 哈希
+     */
+    static long hashUnder(BitBoard bb, int[] perm) {
+        long h = 0;
+        for (int cell = 0; cell < bb.cellCount; cell++) {
+            int v = bb.get(cell);
+            if (v != 0) h ^= Zobrist.piece(v, perm[cell]);
+        }
+        return h;
+    }
+}
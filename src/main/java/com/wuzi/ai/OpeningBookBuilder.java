@@ -0,0 +1,245 @@
+package com.wuzi.ai;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * OpeningBookBuilder - 开局库生成工具
+ * 从对局（自我对弈或棋谱文件）中统计前若干手每个局面下各着法的得分，
+ * 每个局面取平均得分最高的着法写入 OpeningBook 文件。
+ *
+ * 棋谱文件格式：每行一局，着法为 "行,列"，以空格分隔，黑棋（1）先行；空行与 # 开头的行忽略。
+ * 胜负由重放棋谱判定（先连成五子者胜，未分胜负为和）。
+ *
+ * 用法：java com.wuzi.ai.OpeningBookBuilder 输出文件 [--depth N] [--selfplay 局数] [--search-depth N] [--archive 棋谱文件]...
+ */
+public class OpeningBookBuilder {
+    // 默认收录的手数
+    public static final int DEFAULT_DEPTH = 8;
+    // 入库所需的最少对局数
+    private static final int MIN_GAMES = 1;
+
+    private final int boardSize;
+    private final int depth;
+    private final int[][] perm;
+    // 局面键 -> (规范着法 -> {对局数, 得分}），得分为 胜 2 / 和 1 / 负 0
+    private final Map<Long, Map<Integer, int[]>> stats = new HashMap<>();
+    private int games;
+
+    /**
+     * @param boardSize 棋盘边长
+     * @param depth     只收录棋盘上少于 depth 个棋子的局面
+     */
+    public OpeningBookBuilder(int boardSize, int depth) {
+        if (boardSize <= 0 || boardSize > BitBoard.MAX_SIZE) {
+            throw new IllegalArgumentException("棋盘尺寸超出范围: " + boardSize);
+        }
+        if (depth < 1) {
+            throw new IllegalArgumentException("开局库手数必须为正数: " + depth);
+        }
+        this.boardSize = boardSize;
+        this.depth = depth;
+        this.perm = OpeningBook.symmetries(boardSize);
+    }
+
+    public int getGameCount() {
+        return games;
+    }
+
+    /**
+     * 收录的局面数
+     */
+    public int getPositionCount() {
+        return stats.size();
+    }
+
+    /**
+     * 加入一局棋：moves 为依次落子的 {行, 列}，黑棋先行。
+     * firstRecorded 之前的着法（例如随机开局）只用于摆出局面，不作为库中着法。
+     */
+    public void addGame(List<int[]> moves, int firstRecorded) {
+        BitBoard bb = new BitBoard(boardSize, boardSize);
+        int winner = 0;
+        int color = 1;
+        for (int[] m : moves) {
+            if (m[0] < 0 || m[0] >= boardSize || m[1] < 0 || m[1] >= boardSize) {
+                throw new IllegalArgumentException("着法越界: " + m[0] + "," + m[1]);
+            }
+            int cell = bb.cell(m[0], m[1]);
+            if (bb.get(cell) != 0) {
+                throw new IllegalArgumentException("重复落子: " + m[0] + "," + m[1]);
+            }
+            bb.place(cell, color);
+            if (bb.isFiveAt(cell, color)) {
+                winner = color;
+                break;
+            }
+            color = 3 - color;
+        }
+
+        bb = new BitBoard(boardSize, boardSize);
+        color = 1;
+        for (int i = 0; i < moves.size() && i < depth; i++) {
+            int cell = bb.cell(moves.get(i)[0], moves.get(i)[1]);
+            if (i >= firstRecorded) {
+                int t = OpeningBook.canonicalTransform(bb, perm);
+                long key = OpeningBook.hashUnder(bb, perm[t]) ^ Zobrist.side(color);
+                int[] s = stats.computeIfAbsent(key, k -> new HashMap<>())
+                        .computeIfAbsent(perm[t][cell], k -> new int[2]);
+                s[0]++;
+                s[1] += winner == 0 ? 1 : (winner == color ? 2 : 0);
+            }
+            bb.place(cell, color);
+            if (bb.isFiveAt(cell, color)) break;
+            color = 3 - color;
+        }
+        games++;
+    }
+
+    /**
+     * 读入棋谱文件，返回读入的对局数
+     */
+    public int addArchive(Path file) throws IOException {
+        int added = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                List<int[]> moves = new ArrayList<>();
+                for (String token : line.split("\\s+")) {
+                    String[] rc = token.split(",");
+                    if (rc.length != 2) {
+                        throw new IOException("无法解析着法 \"" + token + "\": " + file);
+                    }
+                    moves.add(new int[]{Integer.parseInt(rc[0].trim()), Integer.parseInt(rc[1].trim())});
+                }
+                addGame(moves, 0);
+                added++;
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("棋谱中的坐标不是数字: " + file, e);
+        }
+        return added;
+    }
+
+    /**
+     * 自我对弈 count 局：前两手在天元附近随机落子，之后双方都用固定深度搜索（不使用开局库）
+     */
+    public void addSelfPlay(int count, int searchDepth, long seed) {
+        Random rnd = new Random(seed);
+        GomokuAI ai = new GomokuAI();
+        ai.setMaxDepth(searchDepth);
+        int center = boardSize / 2;
+        for (int g = 0; g < count; g++) {
+            int[][] board = new int[boardSize][boardSize];
+            List<int[]> moves = new ArrayList<>();
+            board[center][center] = 1;
+            moves.add(new int[]{center, center});
+            int r, c;
+            do {
+                r = center - 1 + rnd.nextInt(3);
+                c = center - 1 + rnd.nextInt(3);
+            } while (board[r][c] != 0);
+            board[r][c] = 2;
+            moves.add(new int[]{r, c});
+
+            int color = 1;
+            BitBoard bb = BitBoard.fromArray(board);
+            while (moves.size() < boardSize * boardSize) {
+                int[] m = ai.getNextStep(board, color);
+                if (m[0] < 0) break;
+                board[m[0]][m[1]] = color;
+                moves.add(m);
+                int cell = bb.cell(m[0], m[1]);
+                bb.place(cell, color);
+                if (bb.isFiveAt(cell, color)) break;
+                color = 3 - color;
+            }
+            addGame(moves, 2);
+        }
+        ai.shutdown();
+    }
+
+    /**
+     * 写出开局库文件：每个局面取平均得分最高（同分取对局数多）的着法，
+     * 平均得分低于和棋的局面不收录，交给搜索处理。返回写入的记录数。
+     */
+    public int write(Path out) throws IOException {
+        List<long[]> entries = new ArrayList<>();
+        for (Map.Entry<Long, Map<Integer, int[]>> e : stats.entrySet()) {
+            int bestMove = -1;
+            int[] best = null;
+            for (Map.Entry<Integer, int[]> m : e.getValue().entrySet()) {
+                int[] s = m.getValue();
+                if (s[0] < MIN_GAMES) continue;
+                // 比较平均得分 s[1]/s[0]，交叉相乘避免浮点
+                if (best == null || (long) s[1] * best[0] > (long) best[1] * s[0]
+                        || ((long) s[1] * best[0] == (long) best[1] * s[0] && s[0] > best[0])) {
+                    best = s;
+                    bestMove = m.getKey();
+                }
+            }
+            if (best == null || best[1] < best[0]) continue;
+            entries.add(new long[]{e.getKey(), bestMove, Math.min(best[0], 0xFFFF)});
+        }
+        entries.sort((a, b) -> Long.compare(a[0], b[0]));
+
+        try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(out)))) {
+            dos.writeInt(OpeningBook.MAGIC);
+            dos.writeInt(OpeningBook.VERSION);
+            dos.writeInt(boardSize);
+            dos.writeInt(entries.size());
+            for (long[] e : entries) {
+                dos.writeLong(e[0]);
+                dos.writeShort((int) e[1]);
+                dos.writeShort((int) e[2]);
+            }
+        }
+        return entries.size();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("用法：java com.wuzi.ai.OpeningBookBuilder 输出文件 [--depth N] [--selfplay 局数] [--search-depth N] [--archive 棋谱文件]...");
+            return;
+        }
+        Path out = Paths.get(args[0]);
+        int depth = DEFAULT_DEPTH;
+        int selfPlay = 0;
+        int searchDepth = 2;
+        List<Path> archives = new ArrayList<>();
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--depth": depth = Integer.parseInt(args[i + 1]); break;
+                case "--selfplay": selfPlay = Integer.parseInt(args[i + 1]); break;
+                case "--search-depth": searchDepth = Integer.parseInt(args[i + 1]); break;
+                case "--archive": archives.add(Paths.get(args[i + 1])); break;
+                default: throw new IllegalArgumentException("未知参数: " + args[i]);
+            }
+        }
+
+        OpeningBookBuilder builder = new OpeningBookBuilder(15, depth);
+        for (Path archive : archives) {
+            System.out.println("读入棋谱 " + archive + "：" + builder.addArchive(archive) + " 局");
+        }
+        if (selfPlay > 0) {
+            builder.addSelfPlay(selfPlay, searchDepth, System.nanoTime());
+            System.out.println("自我对弈 " + selfPlay + " 局");
+        }
+        int written = builder.write(out);
+        System.out.println("共 " + builder.getGameCount() + " 局、" + builder.getPositionCount()
+                + " 个局面，写入 " + written + " 条记录到 " + out);
+    }
+}
@@ -0,0 +1,105 @@
+package com.wuzi.ai;
+
+import java.util.List;
+
+/**
+ * OrderingBenchmark - 着法排序效果测试
+ * 在 ParallelBenchmark 的同一组固定局面上，分别关闭与开启杀手着法/历史表，
+ * 以相同的算法与固定深度单线程搜索，统计总节点数、首着剪枝率与落子一致率。
+ * PVS 分阶段生成着法时大部分剪枝来自置换表着法与战术着法，杀手着法/历史表的作用比在 Minimax 中小。
+ *
+ * 用法：java com.wuzi.ai.OrderingBenchmark [深度] [局面数] [MINIMAX|PVS]
+ */
+public class OrderingBenchmark {
+    private static final long SEED = 20240501L;
+
+    /**
+     * 单次对比的汇总结果
+     */
+    public static class Result {
+        public final GomokuAI.SearchAlgorithm algorithm;
+        public final int depth;
+        public final int positions;
+        public final long baselineNodes;
+        public final long orderedNodes;
+        // 各局面首着剪枝率的平均值
+        public final double baselineFirstCutoffRate;
+        public final double orderedFirstCutoffRate;
+        public final int sameMoves;
+
+        Result(GomokuAI.SearchAlgorithm algorithm, int depth, int positions, long baselineNodes, long orderedNodes,
+               double baselineFirstCutoffRate, double orderedFirstCutoffRate, int sameMoves) {
+            this.algorithm = algorithm;
+            this.depth = depth;
+            this.positions = positions;
+            this.baselineNodes = baselineNodes;
+            this.orderedNodes = orderedNodes;
+            this.baselineFirstCutoffRate = baselineFirstCutoffRate;
+            this.orderedFirstCutoffRate = orderedFirstCutoffRate;
+            this.sameMoves = sameMoves;
+        }
+
+        /**
+         * 节点节省比例 = 1 - 开启后节点数 / 关闭时节点数
+         */
+        public double nodeSavings() {
+            return baselineNodes == 0 ? 0.0 : 1.0 - (double) orderedNodes / baselineNodes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s 深度=%d 局面数=%d | 静态排序 %d 节点, 首着剪枝 %.1f%% | 杀手+历史 %d 节点, 首着剪枝 %.1f%% | 节点减少 %.1f%% | 落子一致 %d/%d",
+                    algorithm, depth, positions,
+                    baselineNodes, baselineFirstCutoffRate * 100,
+                    orderedNodes, orderedFirstCutoffRate * 100,
+                    nodeSavings() * 100, sameMoves, positions);
+        }
+    }
+
+    /**
+     * 在给定局面上对比关闭与开启排序启发的固定深度搜索。
+     * 每个局面搜索前都清空置换表；历史表在同一实例的各次搜索间保留，与对局中的用法一致。
+     * 威胁空间搜索与证明数搜索的节点与排序无关，对比时关闭。
+     */
+    public static Result measure(List<int[][]> positions, int aiColor, int depth, GomokuAI.SearchAlgorithm algorithm) {
+        GomokuAI baseline = new GomokuAI();
+        baseline.setOrderingHeuristicsEnabled(false);
+        GomokuAI ordered = new GomokuAI();
+        for (GomokuAI ai : new GomokuAI[]{baseline, ordered}) {
+            ai.setMaxDepth(depth);
+            ai.setSearchAlgorithm(algorithm);
+            ai.setThreatSearchEnabled(false);
+            ai.setProofSearchEnabled(false);
+        }
+
+        long baselineNodes = 0, orderedNodes = 0;
+        double baselineRate = 0, orderedRate = 0;
+        int same = 0;
+        for (int[][] board : positions) {
+            baseline.clearTranspositionTable();
+            int[] a = baseline.getNextStep(board, aiColor);
+            baselineNodes += baseline.getLastNodeCount();
+            baselineRate += baseline.getLastFirstMoveCutoffRate();
+
+            ordered.clearTranspositionTable();
+            int[] b = ordered.getNextStep(board, aiColor);
+            orderedNodes += ordered.getLastNodeCount();
+            orderedRate += ordered.getLastFirstMoveCutoffRate();
+
+            if (a[0] == b[0] && a[1] == b[1]) same++;
+        }
+        int n = Math.max(1, positions.size());
+        return new Result(algorithm, depth, positions.size(), baselineNodes, orderedNodes,
+                baselineRate / n, orderedRate / n, same);
+    }
+
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        GomokuAI.SearchAlgorithm algorithm = args.length > 2
+                ? GomokuAI.SearchAlgorithm.valueOf(args[2]) : GomokuAI.SearchAlgorithm.PVS;
+
+        List<int[][]> positions = ParallelBenchmark.samplePositions(count, SEED);
+        System.out.println(measure(positions, 1, depth, algorithm));
+    }
+}
@@ -0,0 +1,132 @@
+package com.wuzi.ai;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * ParallelBenchmark - 并行搜索加速比测试
+ * 在同一组固定局面上，分别用单线程与多线程、以相同的固定深度搜索，
+ * 统计总耗时、总节点数与落子一致率，输出加速比。
+ *
+ * 用法：java com.wuzi.ai.ParallelBenchmark [线程数] [深度] [局面数]
+ */
+public class ParallelBenchmark {
+    private static final int BOARD_SIZE = 15;
+    private static final long SEED = 20240501L;
+
+    /**
+     * 单次对比的汇总结果
+     */
+    public static class Result {
+        public final int threads;
+        public final int depth;
+        public final int positions;
+        public final long singleNanos;
+        public final long parallelNanos;
+        public final long singleNodes;
+        public final long parallelNodes;
+        public final int sameMoves;
+
+        Result(int threads, int depth, int positions, long singleNanos, long parallelNanos,
+               long singleNodes, long parallelNodes, int sameMoves) {
+            this.threads = threads;
+            this.depth = depth;
+            this.positions = positions;
+            this.singleNanos = singleNanos;
+            this.parallelNanos = parallelNanos;
+            this.singleNodes = singleNodes;
+            this.parallelNodes = parallelNodes;
+            this.sameMoves = sameMoves;
+        }
+
+        /**
+         * 加速比 = 单线程总耗时 / 多线程总耗时
+         */
+        public double speedup() {
+            return parallelNanos == 0 ? 0.0 : (double) singleNanos / parallelNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("线程数=%d 深度=%d 局面数=%d | 单线程 %.1f ms (%d 节点) | 并行 %.1f ms (%d 节点) | 加速比 %.2fx | 落子一致 %d/%d",
+                    threads, depth, positions,
+                    singleNanos / 1e6, singleNodes,
+                    parallelNanos / 1e6, parallelNodes,
+                    speedup(), sameMoves, positions);
+        }
+    }
+
+    /**
+     * 在给定局面上对比单线程与 threads 线程的固定深度搜索。
+     * 每个局面搜索前都清空置换表，避免前一次搜索的结果影响计时。
+     */
+    public static Result measure(List<int[][]> positions, int aiColor, int depth, int threads) {
+        GomokuAI single = new GomokuAI();
+        single.setMaxDepth(depth);
+        GomokuAI parallel = new GomokuAI();
+        parallel.setMaxDepth(depth);
+        parallel.setThreads(threads);
+
+        long singleNanos = 0, parallelNanos = 0, singleNodes = 0, parallelNodes = 0;
+        int same = 0;
+        try {
+            for (int[][] board : positions) {
+                single.clearTranspositionTable();
+                long t0 = System.nanoTime();
+                int[] a = single.getNextStep(board, aiColor);
+                singleNanos += System.nanoTime() - t0;
+                singleNodes += single.getLastNodeCount();
+
+                parallel.clearTranspositionTable();
+                long t1 = System.nanoTime();
+                int[] b = parallel.getNextStep(board, aiColor);
+                parallelNanos += System.nanoTime() - t1;
+                parallelNodes += parallel.getLastNodeCount();
+
+                if (a[0] == b[0] && a[1] == b[1]) same++;
+            }
+        } finally {
+            parallel.shutdown();
+        }
+        return new Result(threads, depth, positions.size(), singleNanos, parallelNanos,
+                singleNodes, parallelNodes, same);
+    }
+
+    /**
+     * 生成一组确定的中局局面：在中心区域随机交替落子
+     */
+    public static List<int[][]> samplePositions(int count, long seed) {
+        Random rnd = new Random(seed);
+        List<int[][]> list = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int[][] board = new int[BOARD_SIZE][BOARD_SIZE];
+            int stones = 6 + rnd.nextInt(10);
+            int color = 1;
+            for (int k = 0; k < stones; k++) {
+                int r, c;
+                do {
+                    r = 4 + rnd.nextInt(7);
+                    c = 4 + rnd.nextInt(7);
+                } while (board[r][c] != 0);
+                board[r][c] = color;
+                color = 3 - color;
+            }
+            list.add(board);
+        }
+        return list;
+    }
+
+    public static void main(String[] args) {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int count = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        List<int[][]> positions = samplePositions(count, SEED);
+        // 预热，避免 JIT 编译时间计入第一组结果
+        measure(positions.subList(0, Math.min(3, count)), 1, Math.min(depth, 3), threads);
+
+        Result result = measure(positions, 1, depth, threads);
+        System.out.println(result);
+    }
+}
@@ -0,0 +1,144 @@
+package com.wuzi.ai;
+
+/**
+ * PatternTable - 单方向棋型查找表
+ * 特性：
+ *  - 以落子点为中心、沿一个方向取 9 格窗口（两侧各 4 格），中心之外的 8 格各为 空/己方/阻挡 三态，
+ *    编码为三进制下标（共 3^8 = 6561 种），类加载时一次性算好每种窗口的得分与活三/活四标记
+ *  - 棋型按“再下几手能成五”定义，因此跳三（X_XX）、跳四（X_XXX、XX_XX）与连续棋型同等识别：
+ *      五：已有经过中心的五连
+ *      活四：有两个以上成五点；冲四：恰有一个成五点
+ *      活三：再下一手可成活四；眠三：再下一手可成冲四
+ *      活二 / 眠二：再下一手可成活三 / 眠三；其余按能否成二给少量分
+ *  - 只统计经过中心的五连，窗口外的棋子不影响结果
+ *
+ * 对手棋子与棋盘边界同样视为阻挡。
+ */
+final class PatternTable {
+    // 窗口半径与宽度
+    static final int RADIUS = 4;
+    static final int WIDTH = 2 * RADIUS + 1;
+    static final int WINDOW_MASK = (1 << WIDTH) - 1;
+    private static final int CENTER = 1 << RADIUS;
+
+    // 棋型等级（越大越强）
+    private static final int NONE = 0;
+    private static final int DEAD_ONE = 1;
+    private static final int OPEN_ONE = 2;
+    private static final int DEAD_TWO = 3;
+    private static final int OPEN_TWO = 4;
+    private static final int DEAD_THREE = 5;
+    private static final int OPEN_THREE = 6;
+    private static final int DEAD_FOUR = 7;
+    private static final int OPEN_FOUR = 8;
+    private static final int FIVE = 9;
+
+    // 9 位窗口掩码 -> 除中心外 8 位的三进制数值（每位 0/1）
+    private static final int[] TERNARY = new int[1 << WIDTH];
+    // 三进制下标 -> analyseDirection 的打包结果
+    private static final int[] TABLE;
+
+    static {
+        for (int mask = 0; mask < TERNARY.length; mask++) {
+            int v = 0;
+            int weight = 1;
+            for (int i = 0; i < WIDTH; i++) {
+                if (i == RADIUS) continue;
+                if ((mask >>> i & 1) != 0) v += weight;
+                weight *= 3;
+            }
+            TERNARY[mask] = v;
+        }
+
+        int size = 1;
+        for (int i = 0; i < WIDTH - 1; i++) size *= 3;
+        TABLE = new int[size];
+        int outer = WINDOW_MASK & ~CENTER;
+        // 枚举所有“己方 / 阻挡”互不重叠的窗口，中心视为已落己方棋子
+        for (int own = 0; own <= outer; own++) {
+            if ((own & CENTER) != 0) continue;
+            int rest = outer & ~own;
+            for (int blocked = rest; ; blocked = (blocked - 1) & rest) {
+                int empty = rest & ~blocked;
+                TABLE[TERNARY[own] + 2 * TERNARY[blocked]] = packed(classify(own | CENTER, empty));
+                if (blocked == 0) break;
+            }
+        }
+    }
+
+    private PatternTable() {
+    }
+
+    /**
+     * 查表：own 为己方棋子、empty 为空位，均为以落子点为第 4 位的 9 位窗口；
+     * 中心位被忽略（视为落子），不在两者中的位视为阻挡。
+     */
+    static int lookup(int own, int empty) {
+        int blocked = ~(own | empty) & WINDOW_MASK;
+        return TABLE[TERNARY[own & WINDOW_MASK] + 2 * TERNARY[blocked]];
+    }
+
+    /**
+     * 取线位图中以 pos 为中心的 9 位窗口，越过线首的部分补 0
+     */
+    static int window(long bits, int pos) {
+        int shift = pos - RADIUS;
+        return (int) ((shift >= 0 ? bits >>> shift : bits << -shift) & WINDOW_MASK);
+    }
+
+    private static int packed(int level) {
+        switch (level) {
+            case FIVE: return Evaluator.SCORE_FIVE;
+            case OPEN_FOUR: return Evaluator.SCORE_OPEN_FOUR | Evaluator.FLAG_OPEN_FOUR;
+            case DEAD_FOUR: return Evaluator.SCORE_DEAD_FOUR;
+            case OPEN_THREE: return Evaluator.SCORE_OPEN_THREE | Evaluator.FLAG_OPEN_THREE;
+            case DEAD_THREE: return Evaluator.SCORE_DEAD_THREE;
+            case OPEN_TWO: return Evaluator.SCORE_OPEN_TWO;
+            case DEAD_TWO: return Evaluator.SCORE_OTHER;
+            case OPEN_ONE: return Evaluator.SCORE_OTHER / 2;
+            case DEAD_ONE: return Evaluator.SCORE_OTHER / 4;
+            default: return 0;
+        }
+    }
+
+    /**
+     * 按定义递归分类（只在建表时调用）
+     */
+    private static int classify(int own, int empty) {
+        if (hasFive(own)) return FIVE;
+        int wins = 0;
+        for (int e = empty; e != 0; e &= e - 1) {
+            if (hasFive(own | (e & -e))) wins++;
+        }
+        if (wins >= 2) return OPEN_FOUR;
+        if (wins == 1) return DEAD_FOUR;
+
+        // 再下一手能达到的最强棋型，降一级即为当前棋型
+        int best = NONE;
+        for (int e = empty; e != 0; e &= e - 1) {
+            int bit = e & -e;
+            best = Math.max(best, classify(own | bit, empty & ~bit));
+            if (best == OPEN_FOUR) break;
+        }
+        switch (best) {
+            case OPEN_FOUR: return OPEN_THREE;
+            case DEAD_FOUR: return DEAD_THREE;
+            case OPEN_THREE: return OPEN_TWO;
+            case DEAD_THREE: return DEAD_TWO;
+            case OPEN_TWO: return OPEN_ONE;
+            case DEAD_TWO: return DEAD_ONE;
+            default: return NONE;
+        }
+    }
+
+    /**
+     * 是否有经过中心的连续五子
+     */
+    private static boolean hasFive(int own) {
+        for (int start = 0; start <= RADIUS; start++) {
+            int five = 0x1F << start;
+            if ((own & five) == five) return true;
+        }
+        return false;
+    }
+}
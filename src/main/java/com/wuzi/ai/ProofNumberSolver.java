@@ -0,0 +1,309 @@
+package com.wuzi.ai;
+
+import java.util.Arrays;
+
+/**
+ * ProofNumberSolver - 深度优先证明数搜索（df-pn）
+ * 特性：
+ *  - 证明“进攻方能否强制取胜”，结果只有 已证明 / 已否证 / 未知（超限）三种，不给启发式分数
+ *  - 进攻方只走威胁着法（成四、活三），对方有成五点时只能去堵、且这一步本身须为威胁；
+ *    防守方在进攻方有活四点时只需考虑进攻方的成四点与自己的冲四，否则考虑全部候选点
+ *    （这些限制只会让证明变难，不会把输棋证明成赢棋）
+ *  - 证明数/否证数存放在固定大小的独立置换表中，内存占用有上限，表满时直接覆盖
+ *  - 受节点数与截止时间限制，搜索过程中不分配内存
+ *  - 连珠规则下黑棋不走禁手，黑棋只算不是禁手的成五点（长连点不算），不会把长连证明成胜利
+ *
+ * 返回前棋盘恢复原状。
+ */
+final class ProofNumberSolver {
+    // 默认置换表大小（MB）
+    static final int DEFAULT_TABLE_MB = 8;
+
+    // 求解结果
+    static final int UNKNOWN = 0;
+    static final int PROVEN = 1;
+    static final int DISPROVEN = 2;
+
+    // 证明数上限（视为无穷大）
+    private static final int INF = 100_000_000;
+    // 每个表项：8 字节键 + 4 字节证明数 + 4 字节否证数
+    static final int ENTRY_BYTES = 16;
+    // 搜索路径的最大长度（半步）
+    private static final int MAX_PLY = 120;
+    private static final int TIME_CHECK_INTERVAL = 64;
+    // 进攻方为 2 时混入键中，区分同一局面下不同进攻方的证明
+    private static final long ATTACKER_KEY = 0x6A09_E667_F3BC_C909L;
+
+    private final BitBoard bb;
+    private final IncrementalEvaluator ev;
+    private final long[] keys;
+    private final int[] proof;
+    private final int[] disproof;
+    private final int mask;
+    // 每层的子节点缓冲区
+    private final int[][] moveBuf;
+
+    private int attacker;
+    private long nodes;
+    private long nodeLimit;
+    private long deadline;
+    private boolean aborted;
+    // 取消令牌：每个节点检查一次
+    private CancellationToken token = CancellationToken.NONE;
+
+    ProofNumberSolver(BitBoard bb, int tableMb) {
+        if (tableMb < 1) {
+            throw new IllegalArgumentException("证明数表大小必须至少为 1MB: " + tableMb);
+        }
+        this.bb = bb;
+        this.ev = bb.evaluator();
+        long entries = (long) tableMb * 1024 * 1024 / ENTRY_BYTES;
+        int capacity = Integer.highestOneBit((int) Math.min(entries, 1 << 30));
+        this.keys = new long[capacity];
+        this.proof = new int[capacity];
+        this.disproof = new int[capacity];
+        this.mask = capacity - 1;
+        this.moveBuf = new int[MAX_PLY + 1][bb.cellCount];
+    }
+
+    int capacity() {
+        return keys.length;
+    }
+
+    long nodes() {
+        return nodes;
+    }
+
+    boolean aborted() {
+        return aborted;
+    }
+
+    /**
+     * 设置之后各次求解的取消令牌，null 表示不可取消；被取消的求解按中止处理
+     */
+    void setToken(CancellationToken token) {
+        this.token = token == null ? CancellationToken.NONE : token;
+    }
+
+    void clear() {
+        Arrays.fill(keys, 0L);
+    }
+
+    /**
+     * 轮到 toMove 走，证明 attacker 能否强制取胜。
+     * toMove == attacker 时根节点为“或”节点（存在一步能赢），否则为“与”节点（对方怎么走都输）。
+     */
+    int solve(int attacker, int toMove, long nodeLimit, long deadline) {
+        this.attacker = attacker;
+        this.nodes = 0;
+        this.nodeLimit = nodeLimit;
+        this.deadline = deadline;
+        this.aborted = false;
+        if (bb.stoneCount() == 0) return UNKNOWN;
+
+        mid(toMove, 0, INF, INF);
+        long key = keyOf(toMove);
+        int slot = (int) key & mask;
+        if (keys[slot] == key) {
+            if (proof[slot] == 0) return PROVEN;
+            if (disproof[slot] == 0) return DISPROVEN;
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * 在已证明的“或”节点上，返回证明路线的第一步；未证明返回 -1
+     */
+    int provenMove(int toMove) {
+        if (toMove != attacker) return -1;
+        int n = generate(0, toMove);
+        int[] moves = moveBuf[0];
+        if (ev.fivePoints(attacker) > 0) {
+            for (int i = 0; i < n; i++) {
+                if (ev.threat(attacker, moves[i]) == IncrementalEvaluator.THREAT_FIVE) return moves[i];
+            }
+        }
+        long base = bb.hash() ^ Zobrist.side(3 - toMove) ^ attackerKey();
+        for (int i = 0; i < n; i++) {
+            long childKey = base ^ Zobrist.piece(toMove, moves[i]);
+            int slot = (int) childKey & mask;
+            if (keys[slot] == childKey && proof[slot] == 0) return moves[i];
+        }
+        return -1;
+    }
+
+    private long attackerKey() {
+        return attacker == 2 ? ATTACKER_KEY : 0L;
+    }
+
+    private long keyOf(int toMove) {
+        return bb.hash() ^ Zobrist.side(toMove) ^ attackerKey();
+    }
+
+    private boolean limitReached() {
+        nodes++;
+        if (nodes >= nodeLimit || token.isCancelled()) {
+            aborted = true;
+        } else if ((nodes & (TIME_CHECK_INTERVAL - 1)) == 0 && deadline != GomokuAI.NO_DEADLINE
+                && System.nanoTime() >= deadline) {
+            aborted = true;
+        }
+        return aborted;
+    }
+
+    private void store(long key, int pn, int dn) {
+        int slot = (int) key & mask;
+        keys[slot] = key;
+        proof[slot] = pn;
+        disproof[slot] = dn;
+    }
+
+    /**
+     * df-pn 的 MID 过程：在阈值 (thPn, thDn) 内展开当前节点，结果写入置换表
+     */
+    private void mid(int toMove, int ply, int thPn, int thDn) {
+        long key = keyOf(toMove);
+        if (limitReached()) return;
+        boolean orNode = toMove == attacker;
+
+        // 终局与强制判断
+        int terminal = terminal(ply, toMove);
+        if (terminal != UNKNOWN || ply >= MAX_PLY) {
+            // 超出路径长度时保守地视为否证（只影响能否证明，不会产生错误的证明）
+            if (terminal == PROVEN) store(key, 0, INF);
+            else store(key, INF, 0);
+            return;
+        }
+        int n = generate(ply, toMove);
+        if (n == 0) {
+            // 防守方必须堵进攻方唯一的成五点而堵点是禁手：进攻方胜；
+            // 其余没有着法的情况（棋盘已满）是和棋，与进攻方无路可走一样视为否证
+            if (!orNode && fivePoints(ply, attacker) == 1) store(key, 0, INF);
+            else store(key, INF, 0);
+            return;
+        }
+
+        int[] moves = moveBuf[ply];
+        int next = 3 - toMove;
+        long childBase = bb.hash() ^ Zobrist.side(next) ^ attackerKey();
+        while (true) {
+            // 汇总子节点：或节点 pn 取最小、dn 求和；与节点反之
+            int best = -1;
+            int bestPn = INF, bestDn = INF;
+            int second = INF;
+            int sumPn = 0, sumDn = 0;
+            for (int i = 0; i < n; i++) {
+                long childKey = childBase ^ Zobrist.piece(toMove, moves[i]);
+                int slot = (int) childKey & mask;
+                int cpn = 1, cdn = 1;
+                if (keys[slot] == childKey) {
+                    cpn = proof[slot];
+                    cdn = disproof[slot];
+                }
+                int sel = orNode ? cpn : cdn;
+                if (sel < (orNode ? bestPn : bestDn)) {
+                    second = orNode ? bestPn : bestDn;
+                    best = i;
+                    bestPn = cpn;
+                    bestDn = cdn;
+                } else if (sel < second) {
+                    second = sel;
+                }
+                sumPn = Math.min(INF, sumPn + cpn);
+                sumDn = Math.min(INF, sumDn + cdn);
+            }
+            int pn = orNode ? bestPn : sumPn;
+            int dn = orNode ? sumDn : bestDn;
+            if (pn >= thPn || dn >= thDn || aborted) {
+                store(key, pn, dn);
+                return;
+            }
+
+            int childThPn, childThDn;
+            if (orNode) {
+                childThPn = Math.min(thPn, second == INF ? INF : second + 1);
+                childThDn = Math.min(INF, thDn - dn + bestDn);
+            } else {
+                childThPn = Math.min(INF, thPn - pn + bestPn);
+                childThDn = Math.min(thDn, second == INF ? INF : second + 1);
+            }
+            int move = moves[best];
+            bb.place(move, toMove);
+            mid(next, ply + 1, childThPn, childThDn);
+            bb.remove(move);
+        }
+    }
+
+    /**
+     * 不展开即可判定的局面：返回 PROVEN / DISPROVEN，否则 UNKNOWN
+     */
+    private int terminal(int ply, int toMove) {
+        int other = 3 - toMove;
+        // 行棋方有成五点：行棋方胜
+        if (fivePoints(ply, toMove) > 0) return toMove == attacker ? PROVEN : DISPROVEN;
+        // 对方有两个以上成五点：堵不住
+        if (fivePoints(ply, other) > 1) return other == attacker ? PROVEN : DISPROVEN;
+        return UNKNOWN;
+    }
+
+    /**
+     * color 的成五点个数；连珠规则下的黑棋只数不是禁手的成五点（借用 moveBuf[ply] 作临时缓冲区）
+     */
+    private int fivePoints(int ply, int color) {
+        int f = ev.fivePoints(color);
+        if (f == 0 || !bb.isRenju() || color != RenjuRules.BLACK) return f;
+        int[] cells = moveBuf[ply];
+        int n = bb.candidates(cells, color);
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            if (ev.threat(color, cells[i]) == IncrementalEvaluator.THREAT_FIVE) count++;
+        }
+        return count;
+    }
+
+    /**
+     * 生成子节点着法，写入 moveBuf[ply]，返回个数
+     */
+    private int generate(int ply, int toMove) {
+        int[] moves = moveBuf[ply];
+        int other = 3 - toMove;
+        boolean mustBlockFive = fivePoints(ply, other) == 1;
+        int n = bb.candidates(moves, toMove);
+        int count = 0;
+        if (mustBlockFive) {
+            // 只能堵唯一的成五点；进攻方的这一步还须同时是威胁
+            for (int i = 0; i < n; i++) {
+                int cell = moves[i];
+                if (ev.threat(other, cell) != IncrementalEvaluator.THREAT_FIVE) continue;
+                if (toMove == attacker && ev.threat(toMove, cell) < IncrementalEvaluator.THREAT_THREE) return 0;
+                moves[0] = cell;
+                return 1;
+            }
+            return 0;
+        }
+        if (toMove == attacker) {
+            for (int i = 0; i < n; i++) {
+                int cell = moves[i];
+                if (ev.threat(toMove, cell) >= IncrementalEvaluator.THREAT_THREE) moves[count++] = cell;
+            }
+            return count;
+        }
+        // 防守方：进攻方有活四点时，只有堵成四点或自己冲四才可能不输
+        boolean mustBlock = false;
+        for (int i = 0; i < n; i++) {
+            if (ev.threat(other, moves[i]) >= IncrementalEvaluator.THREAT_OPEN_FOUR) {
+                mustBlock = true;
+                break;
+            }
+        }
+        if (!mustBlock) return n;
+        for (int i = 0; i < n; i++) {
+            int cell = moves[i];
+            if (ev.threat(other, cell) >= IncrementalEvaluator.THREAT_FOUR
+                    || ev.threat(toMove, cell) >= IncrementalEvaluator.THREAT_FOUR) {
+                moves[count++] = cell;
+            }
+        }
+        return count;
+    }
+}
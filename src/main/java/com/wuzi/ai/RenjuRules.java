@@ -0,0 +1,328 @@
+package com.wuzi.ai;
+
+import java.util.Arrays;
+
+/**
+ * RenjuRules - 连珠规则的黑棋禁手判断（三三、四四、长连），由 GameBoard 与 GomokuAI 共用
+ * 禁手只取决于经过落点的四条线，因此判断从落点附近的棋型出发，不做逐格方向扫描：
+ *  - 每个方向取落点左右各 5 格（共 11 格）的窗口，直接从位棋盘的线位图移位得到，越出棋盘的格子视为白子
+ *  - 窗口（中心视为已落黑子）编码为三进制下标，查预先算好的 3^10 项棋型表，得到该方向是否成五、长连、
+ *    四的个数（冲四与活四各算一个，同一条线上两个互不相同的四算两个），以及能把它变成活四的活三延伸点
+ *  - 四个方向各查一次表，代价与 checkWin 的四方向计数同一量级；只有两个以上方向同时有活三时，
+ *    才递归检查延伸点本身是否为禁手（延伸点是禁手的三不算活三），递归不修改棋盘
+ * 成五优先：落子同时成五时不算禁手。白棋没有禁手，白棋长连也算五连。
+ *
+ * 独立使用时（例如 GameBoard 校验落子）创建实例并用 place / remove / load 同步棋盘。实例只保存判断所需的
+ * 线位图（与 BitBoard 同一套线编号），落子只改四个 long，不维护评估与候选点；
+ * GomokuAI 在自己的位棋盘上直接调用 foulAt。
+ */
+public final class RenjuRules {
+    /**
+     * 禁手类型
+     */
+    public enum Foul { NONE, DOUBLE_THREE, DOUBLE_FOUR, OVERLINE }
+
+    // 有禁手的一方
+    public static final int BLACK = 1;
+    // 窗口半径与中心下标
+    private static final int RADIUS = 5;
+    private static final int WIDTH = 2 * RADIUS + 1;
+    private static final int WINDOW_MASK = (1 << WIDTH) - 1;
+    // 递归检查延伸点的最大深度，到达后不再细究延伸点，直接按三三处理
+    private static final int MAX_RECURSION = 3;
+    // 递归时视为已落黑子的格子压缩在一个 long 里，每个占 12 位（棋盘最多 63x63 格）
+    private static final int CELL_BITS = 12;
+
+    // 棋型表项：bit0 成五，bit1 长连，bit2-3 四的个数，bit4 起为活三延伸点在窗口中的下标位集
+    private static final int FIVE = 1;
+    private static final int OVERLINE = 2;
+    private static final int FOUR_SHIFT = 2;
+    private static final int THREE_SHIFT = 4;
+    private static final int[] TABLE = new int[pow3(WIDTH - 1)];
+    // TERNARY[m]：10 位掩码 m 中各位 i 的 3^i 之和，黑、白掩码分别乘 1、2 相加即为表下标
+    private static final int[] TERNARY = new int[1 << (WIDTH - 1)];
+
+    static {
+        for (int m = 0; m < TERNARY.length; m++) {
+            int v = 0;
+            for (int i = 0; i < WIDTH - 1; i++) {
+                if ((m >>> i & 1) != 0) v += pow3(i);
+            }
+            TERNARY[m] = v;
+        }
+        int[] line = new int[WIDTH];
+        for (int idx = 0; idx < TABLE.length; idx++) {
+            int rest = idx;
+            for (int i = 0; i < WIDTH; i++) {
+                if (i == RADIUS) {
+                    line[i] = 1;
+                    continue;
+                }
+                line[i] = rest % 3;
+                rest /= 3;
+            }
+            TABLE[idx] = analyze(line);
+        }
+    }
+
+    private final LineGeometry geometry;
+    // stones[color][dir][line]，color 取 1/2
+    private final long[][][] stones;
+
+    /**
+     * 创建 rows x cols 的空棋盘，之后用 place / remove / load 同步
+     */
+    public RenjuRules(int rows, int cols) {
+        this.geometry = new LineGeometry(rows, cols);
+        this.stones = geometry.newStones();
+    }
+
+    /**
+     * 在 (row, col) 放 color（1 或 2）的棋子，原有棋子被替换
+     */
+    public void place(int row, int col, int color) {
+        if (color != 1 && color != 2) {
+            throw new IllegalArgumentException("棋子颜色必须为 1 或 2: " + color);
+        }
+        int cell = cellOf(row, col);
+        set(1, cell, false);
+        set(2, cell, false);
+        set(color, cell, true);
+    }
+
+    public void remove(int row, int col) {
+        int cell = cellOf(row, col);
+        set(1, cell, false);
+        set(2, cell, false);
+    }
+
+    public void clear() {
+        for (int color = 1; color <= 2; color++) {
+            for (long[] lines : stones[color]) Arrays.fill(lines, 0L);
+        }
+    }
+
+    /**
+     * 按 board[row][col]（0 空，1/2 为棋子，其余值视为空）整盘重建
+     */
+    public void load(int[][] board) {
+        if (board.length != geometry.rows || board[0].length != geometry.cols) {
+            throw new IllegalArgumentException("棋盘尺寸不符: " + board.length + "x" + board[0].length);
+        }
+        clear();
+        for (int r = 0; r < geometry.rows; r++) {
+            for (int c = 0; c < geometry.cols; c++) {
+                int color = board[r][c];
+                if (color == 1 || color == 2) set(color, r * geometry.cols + c, true);
+            }
+        }
+    }
+
+    /**
+     * 黑棋落在空位 (row, col) 是否为禁手；已有棋子的位置返回 NONE
+     */
+    public Foul checkFoul(int row, int col) {
+        int cell = cellOf(row, col);
+        long bit = 1L << geometry.posOf[0][cell];
+        int line = geometry.lineOf[0][cell];
+        if (((stones[1][0][line] | stones[2][0][line]) & bit) != 0) return Foul.NONE;
+        return foulAt(geometry, stones[1], stones[2], cell, 0L, 0);
+    }
+
+    private int cellOf(int row, int col) {
+        if (row < 0 || row >= geometry.rows || col < 0 || col >= geometry.cols) {
+            throw new IllegalArgumentException("坐标越界: (" + row + ", " + col + ")");
+        }
+        return row * geometry.cols + col;
+    }
+
+    private void set(int color, int cell, boolean on) {
+        long[][] own = stones[color];
+        for (int d = 0; d < LineGeometry.DIR_COUNT; d++) {
+            long bit = 1L << geometry.posOf[d][cell];
+            int line = geometry.lineOf[d][cell];
+            if (on) own[d][line] |= bit;
+            else own[d][line] &= ~bit;
+        }
+    }
+
+    // =================== 按线位图判断 ===================
+
+    /**
+     * 黑棋落在 bb 的空位 cell 是否为禁手（不修改棋盘）
+     */
+    static Foul foulAt(BitBoard bb, int cell) {
+        return foulAt(bb.geometry, bb.lines(1), bb.lines(2), cell, 0L, 0);
+    }
+
+    static boolean isFoul(BitBoard bb, int cell) {
+        return foulAt(bb, cell) != Foul.NONE;
+    }
+
+    /**
+     * black / white 为两种颜色的线位图 [dir][line]；extras 中的 depth 个格子视为已落黑子（递归检查延伸点时使用）。
+     * 不分配内存，可供搜索线程并发调用。
+     */
+    private static Foul foulAt(LineGeometry g, long[][] black, long[][] white, int cell, long extras, int depth) {
+        int fours = 0;
+        boolean overline = false;
+        // 有活三的方向数，及各方向的延伸点位集（每方向 WIDTH 位）
+        int threeDirs = 0;
+        long threePoints = 0;
+        for (int d = 0; d < LineGeometry.DIR_COUNT; d++) {
+            int entry = TABLE[index(g, black, white, d, cell, extras, depth)];
+            if ((entry & FIVE) != 0) return Foul.NONE;
+            if ((entry & OVERLINE) != 0) overline = true;
+            int f = entry >>> FOUR_SHIFT & 3;
+            fours += f;
+            long points = entry >>> THREE_SHIFT;
+            if (f == 0 && points != 0) {
+                threePoints |= points << (d * WIDTH);
+                threeDirs++;
+            }
+        }
+        if (overline) return Foul.OVERLINE;
+        if (fours >= 2) return Foul.DOUBLE_FOUR;
+        if (threeDirs < 2) return Foul.NONE;
+
+        // 两个以上方向有活三：延伸点全是禁手的三不算活三
+        if (depth == MAX_RECURSION) return Foul.DOUBLE_THREE;
+        long inner = extras | (long) cell << (depth * CELL_BITS);
+        int real = 0;
+        for (int d = 0; d < LineGeometry.DIR_COUNT && real < 2; d++) {
+            int points = (int) (threePoints >>> (d * WIDTH)) & WINDOW_MASK;
+            if (points == 0) continue;
+            int line = g.lineOf[d][cell];
+            int base = g.posOf[d][cell] - RADIUS;
+            while (points != 0) {
+                int i = Integer.numberOfTrailingZeros(points);
+                points &= points - 1;
+                int p = g.cellAt[d][line][base + i];
+                if (foulAt(g, black, white, p, inner, depth + 1) == Foul.NONE) {
+                    real++;
+                    break;
+                }
+            }
+        }
+        return real >= 2 ? Foul.DOUBLE_THREE : Foul.NONE;
+    }
+
+    /**
+     * d 方向上以 cell 为中心的窗口在棋型表中的下标（中心视为黑子）
+     */
+    private static int index(LineGeometry g, long[][] black, long[][] white, int d, int cell, long extras, int depth) {
+        int line = g.lineOf[d][cell];
+        int pos = g.posOf[d][cell];
+        long bits = black[d][line];
+        for (int i = 0; i < depth; i++) {
+            int x = (int) (extras >>> (i * CELL_BITS)) & ((1 << CELL_BITS) - 1);
+            if (g.lineOf[d][x] == line) bits |= 1L << g.posOf[d][x];
+        }
+        int b = window(bits, pos);
+        // 越出棋盘的格子与白子一样阻断黑棋
+        int w = window(white[d][line], pos) | ~window(g.lineMask[d][line], pos) & WINDOW_MASK;
+        b &= ~(1 << RADIUS);
+        w &= ~(1 << RADIUS);
+        return TERNARY[dropCenter(b)] + 2 * TERNARY[dropCenter(w)];
+    }
+
+    /**
+     * 线位图中 [pos - RADIUS, pos + RADIUS] 的 11 位
+     */
+    private static int window(long bits, int pos) {
+        long shifted = pos >= RADIUS ? bits >>> (pos - RADIUS) : bits << (RADIUS - pos);
+        return (int) shifted & WINDOW_MASK;
+    }
+
+    private static int dropCenter(int m) {
+        return (m & ((1 << RADIUS) - 1)) | (m >>> (RADIUS + 1)) << RADIUS;
+    }
+
+    // =================== 棋型表的构造 ===================
+
+    /**
+     * 分析一个窗口（0 空、1 黑、2 白或界外，中心为黑），返回表项
+     */
+    private static int analyze(int[] line) {
+        int run = runThroughCenter(line);
+        if (run == 5) return FIVE;
+        if (run > 5) return OVERLINE;
+        int fours = countFours(line);
+        if (fours > 0) return Math.min(2, fours) << FOUR_SHIFT;
+        int threes = 0;
+        for (int e = 1; e < WIDTH - 1; e++) {
+            if (line[e] != 0) continue;
+            line[e] = 1;
+            if (runThroughCenter(line) < 5 && hasStraightFour(line)) threes |= 1 << e;
+            line[e] = 0;
+        }
+        return threes << THREE_SHIFT;
+    }
+
+    private static int runThroughCenter(int[] line) {
+        int n = 1;
+        for (int i = RADIUS - 1; i >= 0 && line[i] == 1; i--) n++;
+        for (int i = RADIUS + 1; i < WIDTH && line[i] == 1; i++) n++;
+        return n;
+    }
+
+    /**
+     * 在空位 e 补一子后能否与中心连成恰好五子；能则返回这五子中原有棋子的位集，否则返回 0
+     */
+    private static int completion(int[] line, int e) {
+        line[e] = 1;
+        int lo = RADIUS, hi = RADIUS;
+        while (lo > 0 && line[lo - 1] == 1) lo--;
+        while (hi < WIDTH - 1 && line[hi + 1] == 1) hi++;
+        line[e] = 0;
+        if (hi - lo + 1 != 5 || e < lo || e > hi) return 0;
+        int set = 0;
+        for (int i = lo; i <= hi; i++) {
+            if (i != e) set |= 1 << i;
+        }
+        return set;
+    }
+
+    /**
+     * 经过中心的四的个数：补一子成五的着法按原有棋子的集合归类，活四的两个成五点属于同一个四
+     */
+    private static int countFours(int[] line) {
+        int[] sets = new int[WIDTH];
+        int n = 0;
+        for (int e = 1; e < WIDTH - 1; e++) {
+            if (line[e] != 0) continue;
+            int set = completion(line, e);
+            if (set != 0 && indexOf(sets, n, set) < 0) sets[n++] = set;
+        }
+        return n;
+    }
+
+    /**
+     * 经过中心是否有活四（同一组四子有两个成五点）
+     */
+    private static boolean hasStraightFour(int[] line) {
+        int[] sets = new int[WIDTH];
+        int n = 0;
+        for (int e = 1; e < WIDTH - 1; e++) {
+            if (line[e] != 0) continue;
+            int set = completion(line, e);
+            if (set == 0) continue;
+            if (indexOf(sets, n, set) >= 0) return true;
+            sets[n++] = set;
+        }
+        return false;
+    }
+
+    private static int indexOf(int[] values, int n, int value) {
+        for (int i = 0; i < n; i++) {
+            if (values[i] == value) return i;
+        }
+        return -1;
+    }
+
+    private static int pow3(int n) {
+        int v = 1;
+        for (int i = 0; i < n; i++) v *= 3;
+        return v;
+    }
+}
@@ -0,0 +1,113 @@
+package com.wuzi.ai;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * SearchStats - 一次 getNextStep 的搜索统计（只读快照）
+ * 计数在搜索中以普通 long 字段累加（每个工作者各自一份，搜索结束后汇总），
+ * 开销只是几次自增，可以在生产环境常开，用于按房间统计 AI 开销、找出耗时异常的局面。
+ *
+ * 节点数等计数在并行模式下为所有线程之和；主变例与深度只取主工作者。
+ */
+public final class SearchStats {
+    // 没有发生搜索（例如棋盘为空数组）时的空统计
+    static final SearchStats EMPTY = new SearchStats(0, 0, 0, 0, 0, 0,
+            new long[SearchWorker.CUTOFF_BUCKETS], 0, 0, 0, new int[0][], 0,
+            GomokuAI.Outcome.UNKNOWN, false, false);
+
+    public final long nodes;
+    public final long threatNodes;
+    public final long proofNodes;
+    public final long leafEvaluations;
+    public final long ttProbes;
+    public final long ttHits;
+    private final long[] cutoffsByMoveIndex;
+    public final long cutoffs;
+    public final int completedDepth;
+    public final int maxDepth;
+    private final int[][] principalVariation;
+    public final long elapsedNanos;
+    public final GomokuAI.Outcome outcome;
+    public final boolean fromBook;
+    public final boolean pondered;
+
+    SearchStats(long nodes, long threatNodes, long proofNodes, long leafEvaluations,
+                long ttProbes, long ttHits, long[] cutoffsByMoveIndex, long cutoffs,
+                int completedDepth, int maxDepth, int[][] principalVariation, long elapsedNanos,
+                GomokuAI.Outcome outcome, boolean fromBook, boolean pondered) {
+        this.nodes = nodes;
+        this.threatNodes = threatNodes;
+        this.proofNodes = proofNodes;
+        this.leafEvaluations = leafEvaluations;
+        this.ttProbes = ttProbes;
+        this.ttHits = ttHits;
+        this.cutoffsByMoveIndex = cutoffsByMoveIndex;
+        this.cutoffs = cutoffs;
+        this.completedDepth = completedDepth;
+        this.maxDepth = maxDepth;
+        this.principalVariation = principalVariation;
+        this.elapsedNanos = elapsedNanos;
+        this.outcome = outcome;
+        this.fromBook = fromBook;
+        this.pondered = pondered;
+    }
+
+    /**
+     * 命中后台思考时的统计：沿用当时的搜索数据，只把耗时换成本次调用的耗时
+     */
+    SearchStats asPondered(long elapsedNanos) {
+        return new SearchStats(nodes, threatNodes, proofNodes, leafEvaluations, ttProbes, ttHits,
+                cutoffsByMoveIndex, cutoffs, completedDepth, maxDepth, principalVariation, elapsedNanos,
+                outcome, fromBook, true);
+    }
+
+    /**
+     * 第 index 个着法引起剪枝的次数；最后一个序号（getCutoffBuckets() - 1）为该序号及以后的合计
+     */
+    public long getCutoffsAtMoveIndex(int index) {
+        return cutoffsByMoveIndex[index];
+    }
+
+    public int getCutoffBuckets() {
+        return cutoffsByMoveIndex.length;
+    }
+
+    /**
+     * 主变例：从 AI 的落子开始，双方交替的着法 {row, col} 序列（由置换表回溯，可能短于完成深度）
+     */
+    public int[][] getPrincipalVariation() {
+        int[][] copy = new int[principalVariation.length][];
+        for (int i = 0; i < copy.length; i++) copy[i] = principalVariation[i].clone();
+        return copy;
+    }
+
+    /**
+     * 第一个着法就剪枝的比例（0~1）
+     */
+    public double firstMoveCutoffRate() {
+        return cutoffs == 0 ? 0.0 : (double) cutoffsByMoveIndex[0] / cutoffs;
+    }
+
+    public double ttHitRate() {
+        return ttProbes == 0 ? 0.0 : (double) ttHits / ttProbes;
+    }
+
+    public double nodesPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : nodes * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder pv = new StringBuilder();
+        for (int[] m : principalVariation) {
+            if (pv.length() > 0) pv.append(' ');
+            pv.append(m[0]).append(',').append(m[1]);
+        }
+        return String.format(Locale.ROOT,
+                "%.1f ms | %d 节点 (威胁 %d, 证明 %d) | 叶子评估 %d | 置换表命中 %.1f%% | 深度 %d/%d | 剪枝 %d 按序号 %s | 主变例 [%s]%s%s",
+                elapsedNanos / 1e6, nodes, threatNodes, proofNodes, leafEvaluations, ttHitRate() * 100,
+                completedDepth, maxDepth, cutoffs, Arrays.toString(cutoffsByMoveIndex), pv,
+                fromBook ? " | 开局库" : "", pondered ? " | 后台思考命中" : "");
+    }
+}
@@ -0,0 +1,134 @@
+package com.wuzi.ai;
+
+import java.time.Duration;
+
+/**
+ * SearchTask - 可分片执行的一次搜索（由 GomokuAI.newSearchTask 创建）
+ * 调度器每次调用 runSlice 让它搜索一小段时间，片与片之间可以去运行别的房间的搜索，之后再继续：
+ *  - 第一片先走开局库、威胁空间搜索与证明数搜索（切片过短时按超时处理，与时间预算过小的 getNextStep 相同）
+ *  - 之后每片从上一片完整完成的深度的下一层接着迭代加深，上一片的最佳着法排在首位；
+ *    未完成那一层的结果留在 AI 的置换表里，下一片重搜这一层时大多直接命中，不会白做
+ *  - 时间预算只计入真正在搜索的时间，暂停期间不消耗
+ * pause() 与 cancel() 可从任意线程调用：前者让正在执行的这一片尽快返回（之后可继续），
+ * 后者结束整个任务。同一个 GomokuAI 的各片与 getNextStep 之间串行执行。
+ */
+public final class SearchTask {
+    private final GomokuAI ai;
+    final int[][] cells;
+    final int aiColor;
+    final int maxDepth;
+    // 时间预算（纳秒），GomokuAI.NO_DEADLINE 表示固定深度、不限时间
+    final long budgetNanos;
+    private final CancellationToken token = new CancellationToken();
+    // 正在执行的这一片的令牌，pause() 取消它
+    private volatile CancellationToken sliceToken;
+
+    // 以下状态只由持有 GomokuAI 对象锁的线程写入；供其他线程读取的字段为 volatile
+    boolean prepared;
+    boolean[] rootFilter;
+    int[] scoredMoves;
+    int[] scoredValues;
+    int scoredCount;
+    volatile GomokuAI.Outcome outcome = GomokuAI.Outcome.UNKNOWN;
+    volatile int completedDepth;
+    volatile int bestCell = -1;
+    volatile int resultCell = -1;
+    // resultCell 之后写入，读到 true 时 resultCell 已就绪
+    volatile boolean done;
+    volatile long nodes;
+    volatile long usedNanos;
+    volatile int slices;
+
+    SearchTask(GomokuAI ai, int[][] board, int aiColor, int maxDepth, long budgetNanos) {
+        this.ai = ai;
+        this.cells = new int[board.length][];
+        for (int i = 0; i < board.length; i++) cells[i] = board[i].clone();
+        this.aiColor = aiColor;
+        this.maxDepth = maxDepth;
+        this.budgetNanos = budgetNanos;
+    }
+
+    /**
+     * 搜索至多 slice 的时间（不超过剩余预算），返回任务是否已结束
+     */
+    public boolean runSlice(Duration slice) {
+        if (slice == null || slice.isNegative() || slice.isZero()) {
+            throw new IllegalArgumentException("切片时间必须为正数: " + slice);
+        }
+        return ai.runSlice(this, slice.toNanos());
+    }
+
+    /**
+     * 让正在执行的这一片尽快返回（通常在 1 毫秒内），任务保留进度，可以继续 runSlice
+     */
+    public void pause() {
+        CancellationToken t = sliceToken;
+        if (t != null) t.cancel();
+    }
+
+    /**
+     * 结束任务：正在执行的这一片尽快返回，之后 runSlice 直接返回 true，getResult 返回 {-1, -1}
+     */
+    public void cancel() {
+        token.cancel();
+        pause();
+    }
+
+    public boolean isCancelled() {
+        return token.isCancelled();
+    }
+
+    /**
+     * 任务是否已结束（搜满深度、分出胜负、用完预算或被取消）
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * 结束后为最终落子 {row, col}；未结束时为目前完成的最深一层的最佳着法，
+     * 还没有任何结果或已取消时为 {-1, -1}
+     */
+    public int[] getResult() {
+        int cell = done ? resultCell : bestCell;
+        if (cell < 0 || token.isCancelled()) return new int[]{-1, -1};
+        int cols = cells[0].length;
+        return new int[]{cell / cols, cell % cols};
+    }
+
+    /**
+     * 已完整完成的搜索深度
+     */
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    /**
+     * 已访问的节点数（各片之和，含威胁空间搜索与证明数搜索）
+     */
+    public long getNodeCount() {
+        return nodes;
+    }
+
+    /**
+     * 已用去的搜索时间（各片之和，不含暂停时间）
+     */
+    public long getElapsedNanos() {
+        return usedNanos;
+    }
+
+    public int getSliceCount() {
+        return slices;
+    }
+
+    /**
+     * 威胁空间搜索或证明数搜索对局面的判定（AI 视角）
+     */
+    public GomokuAI.Outcome getOutcome() {
+        return outcome;
+    }
+
+    void setSliceToken(CancellationToken sliceToken) {
+        this.sliceToken = sliceToken;
+    }
+}
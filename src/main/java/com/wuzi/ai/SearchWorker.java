@@ -0,0 +1,934 @@
+package com.wuzi.ai;
+
+import java.util.Arrays;
+
+/**
+ * SearchWorker - 单个搜索线程的状态与 Alpha-Beta 搜索
+ * 提供两种搜索：原始的 Minimax（AI 视角、每个节点全窗口），以及 Negamax 形式的主变例搜索（PVS），
+ * 后者对首个着法之后的着法用零窗口试探、失败高时再全窗口重搜，对排序靠后的平静着法做后期着法削减（LMR），
+ * 迭代加深时根节点以上一层的得分为中心开期望窗口。两者共用置换表格式（行棋方视角）。
+ * PVS 的内部节点通过 MovePicker 分阶段生成着法，剪枝发生得早时不再给其余候选点打分。
+ * 每个工作者持有自己的位棋盘副本与节点计数，只有置换表在工作者之间共享。
+ * 工作者在多次搜索之间复用；搜索过程中只使用构造时预分配的每层缓冲区，不产生堆分配。
+ * 单线程模式下只有主工作者；并行模式（Lazy SMP）下辅助工作者以不同的根节点顺序
+ * 同时搜索同一局面，把结果写入共享置换表，主工作者因此获得更多截断。
+ * 着法排序在静态启发分之上叠加杀手着法（每层两个）与历史表（按颜色、格子）的加分，
+ * 两者都只在本工作者内使用，历史表在各次搜索间减半保留。
+ */
+final class SearchWorker {
+    // 每搜索多少个节点检查一次截止时间
+    private static final int TIME_CHECK_INTERVAL = 64;
+
+    // 根节点最大候选数
+    private static final int ROOT_TOP_K = 40;
+
+    // 杀手着法的加分（第一、第二槽位）：低于活三，不会越过成四、堵四等强制着法
+    private static final int[] KILLER_BONUS = {2000, 1000};
+    // 历史表加分上限，以及历史值的饱和上限（超过时该颜色整表减半）
+    private static final int HISTORY_BONUS = 800;
+    private static final int HISTORY_MAX = 1 << 20;
+
+    // PVS 用的无穷大（留出取反与加减的余量）
+    private static final int INF = Integer.MAX_VALUE / 2;
+    // 后期着法削减：剩余深度至少 LMR_MIN_DEPTH、排在前 LMR_FULL_MOVES 个之后的平静着法少搜一层
+    private static final int LMR_MIN_DEPTH = 3;
+    private static final int LMR_FULL_MOVES = 3;
+    // 期望窗口的初始半宽，失败时按倍数放宽
+    private static final int ASPIRATION_WINDOW = Evaluator.SCORE_OPEN_THREE;
+
+    private final TranspositionTable tt;
+    private final BitBoard bb;
+    private final IncrementalEvaluator ev;
+    // 0 为主工作者，其余为辅助工作者
+    private final int helperId;
+
+    // 访问的节点数
+    private long nodes;
+    // 完整完成的深度
+    private int completedDepth;
+    // 发生剪枝的节点数，以及其中第一个着法就剪枝的节点数（衡量排序质量）
+    private long cutoffs;
+    private long firstMoveCutoffs;
+    // 按引起剪枝的着法序号统计的剪枝次数，最后一格为序号 >= CUTOFF_BUCKETS - 1 的合计
+    static final int CUTOFF_BUCKETS = 8;
+    private final long[] cutoffsByIndex = new long[CUTOFF_BUCKETS];
+    // 叶子静态评估次数、置换表命中次数、到达的最大层数（距根节点）
+    private long leafEvals;
+    private long ttProbes;
+    private long ttHits;
+    private int maxPly;
+
+    // 时间控制：截止时刻（System.nanoTime），超时或被叫停后 stopped 置位，搜索逐层退出
+    private long deadline = GomokuAI.NO_DEADLINE;
+    private volatile boolean stopped;
+    // 节点预算：访问的节点数达到上限后同样置位 stopped
+    private long nodeLimit = GomokuAI.NO_NODE_LIMIT;
+    // 取消令牌：每个节点检查一次，被取消后同样置位 stopped
+    private CancellationToken token = CancellationToken.NONE;
+
+    // 多主变例：根节点最好的 multiPv 个着法得到精确分数（1 为普通搜索）；
+    // ALL_ROOT_MOVES 表示每个根着法都用全窗口搜索（供随机选择近似最佳着法）
+    static final int ALL_ROOT_MOVES = Integer.MAX_VALUE;
+    private int multiPv = 1;
+    private final int[] iterScores;
+    // 本轮迭代已搜的根着法中最好的几个分数（降序，最多 multiPv 个）
+    private final int[] topValues;
+    private int topCount;
+    // 最后一个完整完成的迭代中各根着法及其分数（按分数降序，前 multiPv 个为精确值，其余为上界；
+    // 普通搜索只记最佳着法）
+    private final int[] scoredMoves;
+    private final int[] scoredValues;
+    private int scoredCount;
+
+    // 根节点本轮迭代的结果
+    private int rootBestCell;
+    private int rootBestValue;
+
+    // 根节点允许的着法（由威胁空间搜索给出），null 表示不限制
+    private boolean[] rootFilter;
+
+    // 每层的候选点与启发分缓冲区，按剩余深度编号（0 号供根节点使用），各次搜索间复用
+    private final int[][] moveBuf;
+    private final int[][] scoreBuf;
+    // PVS 每层的分阶段着法生成器，共用上面的缓冲区
+    private final MovePicker[] pickers;
+
+    // 杀手着法：killers[ply] 为该层最近两个引起剪枝的着法（ply 为距根节点的层数）
+    private final int[][] killers;
+    // 历史表：history[color][cell] 为该着法引起剪枝的累计权重（剩余深度的平方）
+    private final int[][] history;
+    private boolean orderingHeuristics = true;
+    // 搜索算法
+    private GomokuAI.SearchAlgorithm algorithm = GomokuAI.SearchAlgorithm.PVS;
+    // 本轮迭代的根深度，用于由剩余深度换算层数
+    private int rootDepth;
+
+    SearchWorker(TranspositionTable tt, BitBoard bb, int helperId) {
+        this.tt = tt;
+        this.bb = bb;
+        this.ev = bb.evaluator();
+        this.helperId = helperId;
+        // 辅助工作者可能比最大迭代深度多搜一层
+        int plies = GomokuAI.MAX_ITERATIVE_DEPTH + 2;
+        this.moveBuf = new int[plies][bb.cellCount];
+        this.scoreBuf = new int[plies][bb.cellCount];
+        this.pickers = new MovePicker[plies];
+        this.iterScores = new int[bb.cellCount];
+        this.topValues = new int[bb.cellCount];
+        this.scoredMoves = new int[bb.cellCount];
+        this.scoredValues = new int[bb.cellCount];
+        for (int i = 0; i < plies; i++) {
+            pickers[i] = new MovePicker(bb, moveBuf[i], scoreBuf[i]);
+        }
+        this.killers = new int[plies][2];
+        this.history = new int[3][bb.cellCount];
+        clearKillers();
+    }
+
+    // 内部节点最大候选数：随剩余深度递减，越靠上越多尝试以利于剪枝效果
+    private static int topKForDepth(int depthLeft) {
+        // depthLeft >= 3 -> top 20; depthLeft == 1 -> top 8; depthLeft == 0 -> evaluate only
+        if (depthLeft >= 3) return 20;
+        if (depthLeft >= 2) return 12;
+        if (depthLeft >= 1) return 8;
+        return 6;
+    }
+
+    /**
+     * 清零节点计数与停止标志，准备下一次搜索。
+     * 须在提交搜索任务之前调用，避免清掉提交后才到达的 stop()。
+     */
+    void reset() {
+        stopped = false;
+        nodes = 0;
+        scoredCount = 0;
+        completedDepth = 0;
+        cutoffs = 0;
+        firstMoveCutoffs = 0;
+        Arrays.fill(cutoffsByIndex, 0);
+        leafEvals = 0;
+        ttProbes = 0;
+        ttHits = 0;
+        maxPly = 0;
+        clearKillers();
+        ageHistory(1);
+        ageHistory(2);
+    }
+
+    /**
+     * 开关杀手着法与历史表（关闭时只按静态启发分排序，用于对比）
+     */
+    void setOrderingHeuristics(boolean enabled) {
+        this.orderingHeuristics = enabled;
+    }
+
+    void setAlgorithm(GomokuAI.SearchAlgorithm algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    /**
+     * 限制根节点只搜索 allowed 中为 true 的格子；传 null 取消限制
+     */
+    void restrictRoot(boolean[] allowed) {
+        this.rootFilter = allowed;
+    }
+
+    /**
+     * 设置本次搜索的节点上限，GomokuAI.NO_NODE_LIMIT 表示不限
+     */
+    void setNodeLimit(long nodeLimit) {
+        this.nodeLimit = nodeLimit;
+    }
+
+    /**
+     * 设置本次搜索的取消令牌，null 表示不可取消
+     */
+    void setToken(CancellationToken token) {
+        this.token = token == null ? CancellationToken.NONE : token;
+    }
+
+    /**
+     * 最近一次搜索是否因超时、节点预算、取消或叫停而中止（未中止即已搜满或已找到胜负）
+     */
+    boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * 设置根节点要得到精确分数的着法数：大于 1 时根节点只用第 multiPv 好的分数收紧窗口，
+     * 以少量剪枝换取前几名的精确分数；ALL_ROOT_MOVES 放弃根节点的全部剪枝
+     */
+    void setMultiPv(int multiPv) {
+        this.multiPv = Math.max(1, multiPv);
+    }
+
+    /**
+     * 最后一个完整完成的迭代中打过分的根着法数（普通搜索为 1）；
+     * 着法与分数（AI 视角）为 scoredMoves()、scoredValues() 的前 scoredCount() 个元素（内部数组，只读）
+     */
+    int scoredCount() {
+        return scoredCount;
+    }
+
+    int[] scoredMoves() {
+        return scoredMoves;
+    }
+
+    int[] scoredValues() {
+        return scoredValues;
+    }
+
+    /**
+     * 叫停搜索（可从其他线程调用）
+     */
+    void stop() {
+        stopped = true;
+    }
+
+    BitBoard board() {
+        return bb;
+    }
+
+    long nodes() {
+        return nodes;
+    }
+
+    int completedDepth() {
+        return completedDepth;
+    }
+
+    long cutoffs() {
+        return cutoffs;
+    }
+
+    long leafEvals() {
+        return leafEvals;
+    }
+
+    long ttProbes() {
+        return ttProbes;
+    }
+
+    long ttHits() {
+        return ttHits;
+    }
+
+    int maxPly() {
+        return maxPly;
+    }
+
+    /**
+     * 把按着法序号统计的剪枝次数累加到 out（长度为 CUTOFF_BUCKETS）
+     */
+    void addCutoffsByIndex(long[] out) {
+        for (int i = 0; i < CUTOFF_BUCKETS; i++) out[i] += cutoffsByIndex[i];
+    }
+
+    long firstMoveCutoffs() {
+        return firstMoveCutoffs;
+    }
+
+    /**
+     * 搜索最佳落子，返回格子下标；棋盘已满时返回 -1。
+     * Minimax 无截止时间时直接搜索 maxDepth 层，有截止时间时从 1 层起迭代加深到 maxDepth；
+     * PVS 总是迭代加深，以便使用期望窗口和置换表中上一层的着法。
+     * 辅助工作者会轮转根节点顺序，奇数号辅助工作者多搜一层，以分散搜索路径。
+     */
+    int search(int aiColor, int maxDepth, long deadline) {
+        return search(aiColor, 1, maxDepth, deadline, -1);
+    }
+
+    /**
+     * 从 firstDepth 层起继续迭代加深（firstDepth 大于 1 时总是逐层加深），firstMove 不为 -1 时排在根节点首位。
+     * 用于分片搜索：上一片已完成的各层留在置换表里，这一片从下一层接着搜，不必从头再来。
+     */
+    int search(int aiColor, int firstDepth, int maxDepth, long deadline, int firstMove) {
+        int n = bb.rows;
+        int m = bb.cols;
+        int oppColor = (aiColor == 1) ? 2 : 1;
+        this.deadline = deadline;
+
+        // 生成候选点并排序
+        if (bb.stoneCount() == 0) {
+            // 初始局面，优先落中心
+            return bb.cell(n / 2, m / 2);
+        }
+        int[] moves = moveBuf[0];
+        int[] scores = scoreBuf[0];
+        int count = generateCandidates(moves, aiColor);
+        if (count == 0) {
+            // 没有候选点（连珠规则下黑棋的候选点可能全是禁手），退回到任一可下的空位
+            return firstLegalCell(aiColor);
+        }
+        if (rootFilter != null) {
+            count = filterRoot(moves, count);
+        }
+
+        // 启发式排序： attack + defend，并限制候选数以控制分支
+        for (int i = 0; i < count; i++) {
+            scores[i] = Evaluator.evaluatePosition(bb, moves[i], aiColor) + Evaluator.evaluatePosition(bb, moves[i], oppColor);
+        }
+        int limit = selectTop(moves, scores, count, ROOT_TOP_K);
+
+        int depthOffset = 0;
+        if (helperId > 0) {
+            rotateLeft(moves, limit, helperId % limit);
+            depthOffset = helperId & 1;
+        }
+        if (firstMove >= 0) moveToFront(moves, limit, firstMove);
+
+        int bestCell = -1;
+        int lastDepth = maxDepth + depthOffset;
+        boolean pvs = algorithm == GomokuAI.SearchAlgorithm.PVS;
+        // 有时间或节点上限时逐层加深，中止时用最后完成的一层
+        boolean bounded = deadline != GomokuAI.NO_DEADLINE || nodeLimit != GomokuAI.NO_NODE_LIMIT;
+        int startDepth = (!bounded && !pvs && firstDepth <= 1) ? lastDepth : firstDepth + depthOffset;
+        for (int depth = startDepth; depth <= lastDepth; depth++) {
+            boolean done = pvs
+                    ? searchRootAspiration(moves, limit, depth, aiColor, depth > startDepth && multiPv == 1)
+                    : searchRoot(moves, limit, depth, aiColor, oppColor);
+            if (!done) break;
+            completedDepth = depth;
+            bestCell = rootBestCell;
+            if (bestCell == -1) break;
+            if (multiPv > 1) {
+                // 按分数排序记下本层结果，下一层也按这个顺序搜索
+                System.arraycopy(moves, 0, scoredMoves, 0, limit);
+                System.arraycopy(iterScores, 0, scoredValues, 0, limit);
+                scoredCount = limit;
+                sortByValue(scoredMoves, scoredValues, limit);
+                System.arraycopy(scoredMoves, 0, moves, 0, limit);
+            } else {
+                // 只有最佳着法的分数是精确值
+                scoredMoves[0] = bestCell;
+                scoredValues[0] = rootBestValue;
+                scoredCount = 1;
+                // 上一层的最佳着法放到最前，作为下一层的首选
+                moveToFront(moves, limit, bestCell);
+            }
+            // 有上限的搜索已找到必胜/必败，无需继续加深（固定深度时仍搜满，保证完成深度即为 maxDepth）
+            if (bounded && Math.abs(rootBestValue) >= Evaluator.SCORE_FIVE) break;
+        }
+        if (bestCell == -1 && stopped) {
+            bestCell = moves[0];
+        }
+
+        if (bestCell == -1) {
+            // 兜底，返回第一个可下的空位
+            return firstLegalCell(aiColor);
+        }
+        return bestCell;
+    }
+
+    /**
+     * 第一个 color 可以落子的空位（连珠规则下跳过黑棋的禁手点），没有则返回 -1
+     */
+    private int firstLegalCell(int color) {
+        for (int cell = 0; cell < bb.cellCount; cell++) {
+            if (bb.get(cell) == 0 && !bb.isForbidden(cell, color)) return cell;
+        }
+        return -1;
+    }
+
+    /**
+     * 根节点搜索一层：逐一尝试候选点（已排序），结果写入 rootBestCell / rootBestValue。
+     * 返回 false 表示因超时中止，本层结果不可用。
+     */
+    private boolean searchRoot(int[] moves, int count, int depth, int aiColor, int oppColor) {
+        int bestCell = -1;
+        int bestVal = Integer.MIN_VALUE;
+        int alpha = Integer.MIN_VALUE;
+        int beta = Integer.MAX_VALUE;
+        rootDepth = depth;
+        topCount = 0;
+
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            bb.place(move, aiColor); // 落子
+            int val;
+            if (bb.isFiveAt(move, aiColor)) {
+                val = Evaluator.SCORE_FIVE;
+            } else {
+                // 多主变例时窗口下界为目前第 multiPv 好的分数，凡能挤进前 multiPv 名的着法都得到精确值
+                int low = multiPv > 1 ? multiPvFloor(Integer.MIN_VALUE) : alpha;
+                val = minimax(depth - 1, low, beta, false, aiColor, oppColor);
+            }
+            bb.remove(move); // 撤子
+            if (stopped) return false;
+            iterScores[i] = val;
+
+            if (val > bestVal) {
+                bestVal = val;
+                bestCell = move;
+            }
+            if (multiPv > 1) {
+                addTopValue(val);
+                continue;
+            }
+            alpha = Math.max(alpha, bestVal);
+            if (alpha >= beta) {
+                // 根节点剪枝
+                break;
+            }
+        }
+
+        rootBestCell = bestCell;
+        rootBestValue = bestVal;
+        return true;
+    }
+
+    /**
+     * PVS 根节点搜索一层。useAspiration 时以上一层得分 rootBestValue 为中心开窗口，
+     * 失败低/高时向失败一侧放宽四倍后重搜，直到结果落在窗口内或窗口已放到无穷。
+     * 返回 false 表示因超时中止。
+     */
+    private boolean searchRootAspiration(int[] moves, int count, int depth, int color, boolean useAspiration) {
+        int alpha = -INF;
+        int beta = INF;
+        int delta = ASPIRATION_WINDOW;
+        if (useAspiration && Math.abs(rootBestValue) < Evaluator.SCORE_FIVE) {
+            alpha = Math.max(-INF, rootBestValue - delta);
+            beta = Math.min(INF, rootBestValue + delta);
+        }
+        while (true) {
+            int value = searchRootPvs(moves, count, depth, color, alpha, beta);
+            if (stopped) return false;
+            if (value <= alpha && alpha > -INF) {
+                delta *= 4;
+                alpha = value <= -Evaluator.SCORE_FIVE ? -INF : Math.max(-INF, value - delta);
+            } else if (value >= beta && beta < INF) {
+                delta *= 4;
+                beta = value >= Evaluator.SCORE_FIVE ? INF : Math.min(INF, value + delta);
+            } else {
+                return true;
+            }
+            // 失败高时最佳着法已知，先搜它
+            moveToFront(moves, count, rootBestCell);
+        }
+    }
+
+    /**
+     * PVS 根节点：首个着法全窗口，其余零窗口试探，结果写入 rootBestCell / rootBestValue 并返回最佳值
+     */
+    private int searchRootPvs(int[] moves, int count, int depth, int color, int alpha, int beta) {
+        int opp = 3 - color;
+        int bestCell = -1;
+        int bestVal = -INF;
+        rootDepth = depth;
+        topCount = 0;
+
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            bb.place(move, color);
+            int val;
+            if (bb.isFiveAt(move, color)) {
+                val = Evaluator.SCORE_FIVE;
+            } else if (i == 0 || (multiPv > 1 && topCount < multiPv)) {
+                // 多主变例时前 multiPv 个着法都用全窗口，且不收紧 alpha
+                val = -negamax(depth - 1, 1, -beta, -alpha, opp, true);
+            } else if (multiPv > 1) {
+                // 之后的着法先用零窗口试探能否超过第 multiPv 名，能超过再全窗口求精确值
+                int floor = topValues[multiPv - 1];
+                val = -negamax(depth - 1, 1, -floor - 1, -floor, opp, false);
+                if (val > floor && val < beta) {
+                    val = -negamax(depth - 1, 1, -beta, -floor, opp, true);
+                }
+            } else {
+                val = -negamax(depth - 1, 1, -alpha - 1, -alpha, opp, false);
+                if (val > alpha && val < beta) {
+                    val = -negamax(depth - 1, 1, -beta, -alpha, opp, true);
+                }
+            }
+            bb.remove(move);
+            if (stopped) return 0;
+            iterScores[i] = val;
+
+            if (val > bestVal) {
+                bestVal = val;
+                bestCell = move;
+            }
+            if (multiPv > 1) {
+                addTopValue(val);
+                continue;
+            }
+            if (val > alpha) alpha = val;
+            if (alpha >= beta) break;
+        }
+
+        rootBestCell = bestCell;
+        rootBestValue = bestVal;
+        return bestVal;
+    }
+
+    /**
+     * Negamax 形式的主变例搜索，值为行棋方 color 视角。
+     * pvNode 为 false 时窗口为零窗口（beta == alpha + 1），只需判断是否超过 alpha。
+     * ply 为距根节点的层数（有削减时不等于根深度减剩余深度）。
+     */
+    private int negamax(int depthLeft, int ply, int alpha, int beta, int color, boolean pvNode) {
+        nodes++;
+        if ((nodes & (TIME_CHECK_INTERVAL - 1)) == 0 && deadline != GomokuAI.NO_DEADLINE && System.nanoTime() >= deadline) {
+            stopped = true;
+        }
+        if (nodes >= nodeLimit || token.isCancelled()) stopped = true;
+        if (stopped) return 0;
+        if (ply > maxPly) maxPly = ply;
+        int opp = 3 - color;
+
+        long key = bb.hash() ^ Zobrist.side(color);
+        int ttMove = -1;
+        long entry = tt.probe(key);
+        ttProbes++;
+        if (entry != 0) {
+            ttHits++;
+            ttMove = TranspositionTable.moveOf(entry);
+            if (TranspositionTable.depthOf(entry) >= depthLeft) {
+                int v = TranspositionTable.valueOf(entry);
+                int bound = TranspositionTable.boundOf(entry);
+                if (bound == TranspositionTable.BOUND_EXACT) return v;
+                if (bound == TranspositionTable.BOUND_LOWER) alpha = Math.max(alpha, v);
+                else beta = Math.min(beta, v);
+                if (alpha >= beta) return v;
+            }
+        }
+        int alphaOrig = alpha;
+
+        if (depthLeft <= 0) {
+            leafEvals++;
+            int v = Evaluator.evaluateBoard(bb, color, opp);
+            tt.store(key, 0, v, TranspositionTable.BOUND_EXACT, -1);
+            return v;
+        }
+
+        // 分阶段生成：强制着法、置换表着法、杀手着法，最后才给其余候选点打分
+        MovePicker picker = pickers[depthLeft];
+        if (orderingHeuristics) {
+            picker.init(color, ttMove, killers[ply][0], killers[ply][1], history[color], topKForDepth(depthLeft));
+        } else {
+            picker.init(color, ttMove, -1, -1, null, topKForDepth(depthLeft));
+        }
+
+        int bestCell = -1;
+        int best = -INF;
+        int move;
+        for (int i = 0; (move = picker.next()) >= 0; i++) {
+            // 双方在该点都成不了三以上的棋型，视为平静着法，可以削减
+            boolean quiet = !MovePicker.isTactical(ev, color, move);
+            bb.place(move, color);
+            int val;
+            if (bb.isFiveAt(move, color)) {
+                val = Evaluator.SCORE_FIVE;
+            } else if (i == 0) {
+                val = -negamax(depthLeft - 1, ply + 1, -beta, -alpha, opp, pvNode);
+            } else {
+                int reduction = (quiet && depthLeft >= LMR_MIN_DEPTH && i >= LMR_FULL_MOVES) ? 1 : 0;
+                val = -negamax(depthLeft - 1 - reduction, ply + 1, -alpha - 1, -alpha, opp, false);
+                if (val > alpha && reduction > 0) {
+                    val = -negamax(depthLeft - 1, ply + 1, -alpha - 1, -alpha, opp, false);
+                }
+                if (val > alpha && val < beta) {
+                    val = -negamax(depthLeft - 1, ply + 1, -beta, -alpha, opp, true);
+                }
+            }
+            bb.remove(move);
+            if (stopped) return 0;
+
+            if (val > best) {
+                best = val;
+                bestCell = move;
+            }
+            if (val > alpha) {
+                alpha = val;
+                if (alpha >= beta) {
+                    recordCutoff(move, i, color, ply, depthLeft);
+                    break;
+                }
+            }
+        }
+
+        if (bestCell == -1) {
+            // 对方的成五点全是己方禁手，挡不住
+            if (ev.fivePoints(opp) > 0) return -Evaluator.SCORE_FIVE;
+            // 没有候选点（棋盘已满）
+            leafEvals++;
+            return Evaluator.evaluateBoard(bb, color, opp);
+        }
+
+        int bound;
+        if (best <= alphaOrig) bound = TranspositionTable.BOUND_UPPER;
+        else if (best >= beta) bound = TranspositionTable.BOUND_LOWER;
+        else bound = TranspositionTable.BOUND_EXACT;
+        tt.store(key, depthLeft, best, bound, bestCell);
+        return best;
+    }
+
+    /**
+     * Minimax 搜索（带 Alpha-Beta）
+     * depthLeft: 剩余深度
+     * maximizing: 当前节点是否为最大化（AI）
+     */
+    private int minimax(int depthLeft, int alpha, int beta, boolean maximizing, int aiColor, int oppColor) {
+        nodes++;
+        if ((nodes & (TIME_CHECK_INTERVAL - 1)) == 0 && deadline != GomokuAI.NO_DEADLINE && System.nanoTime() >= deadline) {
+            stopped = true;
+        }
+        if (nodes >= nodeLimit || token.isCancelled()) stopped = true;
+        if (stopped) return 0;
+        int currentColor = maximizing ? aiColor : oppColor;
+        int opponentColor = maximizing ? oppColor : aiColor;
+        int ply = rootDepth - depthLeft;
+        if (ply > maxPly) maxPly = ply;
+
+        // 置换表：键包含行棋方，值按行棋方视角存储，换算为 AI 视角后使用
+        long key = bb.hash() ^ Zobrist.side(currentColor);
+        int ttMove = -1;
+        long entry = tt.probe(key);
+        ttProbes++;
+        if (entry != 0) {
+            ttHits++;
+            ttMove = TranspositionTable.moveOf(entry);
+            if (TranspositionTable.depthOf(entry) >= depthLeft) {
+                int v = maximizing ? TranspositionTable.valueOf(entry) : -TranspositionTable.valueOf(entry);
+                int bound = toAiBound(TranspositionTable.boundOf(entry), maximizing);
+                if (bound == TranspositionTable.BOUND_EXACT) return v;
+                if (bound == TranspositionTable.BOUND_LOWER) alpha = Math.max(alpha, v);
+                else beta = Math.min(beta, v);
+                if (alpha >= beta) return v;
+            }
+        }
+        int alphaOrig = alpha;
+        int betaOrig = beta;
+
+        // 终止条件
+        if (depthLeft <= 0) {
+            leafEvals++;
+            int v = Evaluator.evaluateBoard(bb, aiColor, oppColor);
+            storeEntry(key, 0, v, TranspositionTable.BOUND_EXACT, -1, maximizing);
+            return v;
+        }
+
+        // 生成候选点并按启发式排序（使用本层的预分配缓冲区；depthLeft 沿搜索路径严格递减，可作层号）
+        int[] moves = moveBuf[depthLeft];
+        int[] scores = scoreBuf[depthLeft];
+        int count = generateCandidates(moves, currentColor);
+        if (count == 0) {
+            leafEvals++;
+            return Evaluator.evaluateBoard(bb, aiColor, oppColor);
+        }
+
+        // 为当前角色计算启发式分数（进攻 + 防守），再叠加杀手着法与历史表的加分
+        for (int i = 0; i < count; i++) {
+            scores[i] = Evaluator.evaluatePosition(bb, moves[i], currentColor) + Evaluator.evaluatePosition(bb, moves[i], opponentColor);
+        }
+        if (orderingHeuristics) {
+            addOrderingBonus(moves, scores, count, currentColor, ply);
+        }
+        int limit = selectTop(moves, scores, count, topKForDepth(depthLeft));
+        // 置换表中的最佳着法（若仍在候选范围内）提到最前
+        if (ttMove >= 0) {
+            moveToFront(moves, limit, ttMove);
+        }
+
+        int bestCell = -1;
+        int value;
+        if (maximizing) {
+            value = Integer.MIN_VALUE;
+            for (int i = 0; i < limit; i++) {
+                int move = moves[i];
+                bb.place(move, currentColor);
+                int childVal;
+                if (bb.isFiveAt(move, currentColor)) {
+                    childVal = Evaluator.SCORE_FIVE;
+                } else {
+                    childVal = minimax(depthLeft - 1, alpha, beta, false, aiColor, oppColor);
+                }
+                bb.remove(move);
+                if (stopped) return 0;
+                if (childVal > value) {
+                    value = childVal;
+                    bestCell = move;
+                }
+                alpha = Math.max(alpha, value);
+                if (alpha >= beta) { // 剪枝
+                    recordCutoff(move, i, currentColor, ply, depthLeft);
+                    break;
+                }
+            }
+        } else {
+            value = Integer.MAX_VALUE;
+            for (int i = 0; i < limit; i++) {
+                int move = moves[i];
+                bb.place(move, currentColor);
+                int childVal;
+                if (bb.isFiveAt(move, currentColor)) {
+                    childVal = -Evaluator.SCORE_FIVE;
+                } else {
+                    childVal = minimax(depthLeft - 1, alpha, beta, true, aiColor, oppColor);
+                }
+                bb.remove(move);
+                if (stopped) return 0;
+                if (childVal < value) {
+                    value = childVal;
+                    bestCell = move;
+                }
+                beta = Math.min(beta, value);
+                if (alpha >= beta) { // 剪枝
+                    recordCutoff(move, i, currentColor, ply, depthLeft);
+                    break;
+                }
+            }
+        }
+
+        int bound;
+        if (value <= alphaOrig) bound = TranspositionTable.BOUND_UPPER;
+        else if (value >= betaOrig) bound = TranspositionTable.BOUND_LOWER;
+        else bound = TranspositionTable.BOUND_EXACT;
+        storeEntry(key, depthLeft, value, bound, bestCell, maximizing);
+        return value;
+    }
+
+    /**
+     * 杀手着法与历史表加分：历史值按饱和上限线性折算为 0..HISTORY_BONUS
+     */
+    private void addOrderingBonus(int[] moves, int[] scores, int count, int color, int ply) {
+        int k0 = killers[ply][0];
+        int k1 = killers[ply][1];
+        int[] h = history[color];
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int bonus = historyBonus(h[move]);
+            if (move == k0) bonus += KILLER_BONUS[0];
+            else if (move == k1) bonus += KILLER_BONUS[1];
+            scores[i] += bonus;
+        }
+    }
+
+    /**
+     * 历史值按饱和上限线性折算为 0..HISTORY_BONUS 的排序加分
+     */
+    static int historyBonus(int value) {
+        return (int) ((long) value * HISTORY_BONUS / HISTORY_MAX);
+    }
+
+    /**
+     * 记录剪枝：统计排序质量，更新本层杀手着法与历史表
+     */
+    private void recordCutoff(int move, int index, int color, int ply, int depthLeft) {
+        cutoffs++;
+        if (index == 0) firstMoveCutoffs++;
+        cutoffsByIndex[Math.min(index, CUTOFF_BUCKETS - 1)]++;
+        if (!orderingHeuristics) return;
+        int[] k = killers[ply];
+        if (k[0] != move) {
+            k[1] = k[0];
+            k[0] = move;
+        }
+        int[] h = history[color];
+        h[move] += depthLeft * depthLeft;
+        if (h[move] > HISTORY_MAX) ageHistory(color);
+    }
+
+    private void clearKillers() {
+        for (int[] k : killers) {
+            k[0] = -1;
+            k[1] = -1;
+        }
+    }
+
+    /**
+     * 历史值整体减半，让较早的统计逐渐失效
+     */
+    private void ageHistory(int color) {
+        int[] h = history[color];
+        for (int i = 0; i < h.length; i++) h[i] >>= 1;
+    }
+
+    /**
+     * 以行棋方视角写入置换表（AI 视角的值与边界在对手行棋时取反）
+     */
+    private void storeEntry(long key, int depth, int aiValue, int aiBound, int move, boolean maximizing) {
+        if (maximizing) {
+            tt.store(key, depth, aiValue, aiBound, move);
+        } else {
+            tt.store(key, depth, -aiValue, toAiBound(aiBound, false), move);
+        }
+    }
+
+    /**
+     * 行棋方视角与 AI 视角之间转换边界类型：对手行棋时上下界互换（该变换自逆）
+     */
+    private static int toAiBound(int bound, boolean maximizing) {
+        if (maximizing || bound == TranspositionTable.BOUND_EXACT) return bound;
+        return bound == TranspositionTable.BOUND_LOWER ? TranspositionTable.BOUND_UPPER : TranspositionTable.BOUND_LOWER;
+    }
+
+    /**
+     * 生成候选点：只保留与已有棋子近邻的空位（半径 2），以减少不必要的搜索。
+     * 候选集合由位棋盘在落子/撤子时增量维护，这里只按格子下标升序写入 out，返回个数。
+     * 若棋盘为空，则返回中心点作为候选。连珠规则下 color 为黑棋时不含禁手点。
+     */
+    private int generateCandidates(int[] out, int color) {
+        if (bb.stoneCount() == 0) {
+            // 初始空盘，落中心
+            out[0] = bb.cell(bb.rows / 2, bb.cols / 2);
+            return 1;
+        }
+        return bb.candidates(out, color);
+    }
+
+    /**
+     * 只保留根节点允许的着法；若一个都不允许（无论怎么走都输），保留全部
+     */
+    private int filterRoot(int[] moves, int count) {
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (rootFilter[moves[i]]) kept++;
+        }
+        if (kept == 0) return count;
+        kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (rootFilter[moves[i]]) moves[kept++] = moves[i];
+        }
+        return kept;
+    }
+
+    /**
+     * 按 scores 降序保留前 k 个候选（稳定：同分时保持原顺序），就地写入数组前部，返回保留个数。
+     * 逐个插入长度不超过 k 的有序前缀，代价 O(n·k)，不分配内存。
+     */
+    static int selectTop(int[] moves, int[] scores, int n, int k) {
+        int kept = 0;
+        for (int i = 0; i < n; i++) {
+            int move = moves[i];
+            int score = scores[i];
+            if (kept == k) {
+                if (score <= scores[k - 1]) continue;
+                kept--;
+            }
+            int j = kept;
+            while (j > 0 && scores[j - 1] < score) {
+                moves[j] = moves[j - 1];
+                scores[j] = scores[j - 1];
+                j--;
+            }
+            moves[j] = move;
+            scores[j] = score;
+            kept++;
+        }
+        return kept;
+    }
+
+    /**
+     * 本轮迭代目前第 multiPv 好的分数；已搜的着法不足 multiPv 个时返回 floor（窗口下界不收紧）
+     */
+    private int multiPvFloor(int floor) {
+        return topCount < multiPv ? floor : topValues[multiPv - 1];
+    }
+
+    /**
+     * 把一个根着法的分数插入降序的 topValues，只保留前 multiPv 个
+     */
+    private void addTopValue(int value) {
+        int i;
+        if (topCount < multiPv) {
+            i = topCount++;
+        } else if (value > topValues[multiPv - 1]) {
+            i = multiPv - 1;
+        } else {
+            return;
+        }
+        while (i > 0 && topValues[i - 1] < value) {
+            topValues[i] = topValues[i - 1];
+            i--;
+        }
+        topValues[i] = value;
+    }
+
+    /**
+     * 按分数降序排列前 n 个着法（插入排序，同分保持原顺序）
+     */
+    private static void sortByValue(int[] moves, int[] values, int n) {
+        for (int i = 1; i < n; i++) {
+            int m = moves[i];
+            int v = values[i];
+            int j = i - 1;
+            while (j >= 0 && values[j] < v) {
+                moves[j + 1] = moves[j];
+                values[j + 1] = values[j];
+                j--;
+            }
+            moves[j + 1] = m;
+            values[j + 1] = v;
+        }
+    }
+
+    /**
+     * 若 move 在 moves 的前 n 个中，把它移到最前，其余保持相对顺序
+     */
+    private static void moveToFront(int[] moves, int n, int move) {
+        for (int i = 1; i < n; i++) {
+            if (moves[i] == move) {
+                System.arraycopy(moves, 0, moves, 1, i);
+                moves[0] = move;
+                return;
+            }
+        }
+    }
+
+    /**
+     * 把前 n 个元素循环左移 k 位（三次翻转）
+     */
+    private static void rotateLeft(int[] a, int n, int k) {
+        reverse(a, 0, k - 1);
+        reverse(a, k, n - 1);
+        reverse(a, 0, n - 1);
+    }
+
+    private static void reverse(int[] a, int i, int j) {
+        for (; i < j; i++, j--) {
+            int t = a[i];
+            a[i] = a[j];
+            a[j] = t;
+        }
+    }
+}
@@ -0,0 +1,547 @@
+package com.wuzi.ai;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SelfPlayTournament - 引擎对弈测试
+ * 两种引擎配置 A、B 对弈若干局，衡量改动是否让 GomokuAI 变强或变快：
+ *  - 每个随机开局下两局、交换先后手，抵消开局与先手的偏差
+ *  - 每局使用新的引擎实例（单线程搜索），各局之间互不影响；多局并行，默认占满所有 CPU 核
+ *  - 统计 A 的胜/和/负、得分率、Elo 差及 95% 置信区间；给出 SPRT（elo0 对 elo1）的对数似然比，越过边界后提前停止
+ *  - 统计双方的总节点数、每秒节点数与每手平均耗时
+ *  - 结果写成 JSON，便于在不同版本之间比较强度与性能
+ *
+ * 引擎配置写法："名称:键=值,键=值"，可用的键：algo（MINIMAX|PVS）、depth（固定深度）、
+ * time（每手毫秒数，设置后按时间搜索）、level（难度等级，如 EASY）、nodes（每手节点预算）、
+ * threat（on|off）、proof（on|off）、ordering（on|off）。
+ *
+ * 用法：java com.wuzi.ai.SelfPlayTournament [--games 局数] [--a 配置] [--b 配置] [--opening 开局子数]
+ *       [--threads 并行局数] [--seed 种子] [--sprt elo0,elo1] [--out 报告文件]
+ */
+public class SelfPlayTournament {
+    private static final int BOARD_SIZE = 15;
+    // 随机开局落子的中心区域半径
+    private static final int OPENING_RADIUS = 3;
+    // 95% 置信区间的 z 值
+    private static final double Z_95 = 1.959964;
+
+    /**
+     * 一方引擎的配置
+     */
+    public static class Engine {
+        public final String spec;
+        private final String name;
+        private GomokuAI.SearchAlgorithm algorithm = GomokuAI.SearchAlgorithm.PVS;
+        private int depth = 4;
+        private Duration budget;
+        private GomokuAI.Difficulty level;
+        private long nodes;
+        private boolean threatSearch = true;
+        private boolean proofSearch = true;
+        private boolean ordering = true;
+
+        private Engine(String spec, String name) {
+            this.spec = spec;
+            this.name = name;
+        }
+
+        /**
+         * 解析 "名称:键=值,..." 形式的配置，名称可省略
+         */
+        public static Engine parse(String spec) {
+            int colon = spec.indexOf(':');
+            String name = colon < 0 ? spec : spec.substring(0, colon);
+            Engine e = new Engine(spec, name);
+            if (colon < 0) return e;
+            for (String item : spec.substring(colon + 1).split(",")) {
+                if (item.isBlank()) continue;
+                String[] kv = item.split("=", 2);
+                if (kv.length != 2) {
+                    throw new IllegalArgumentException("引擎配置项格式错误: " + item);
+                }
+                String value = kv[1].trim();
+                switch (kv[0].trim()) {
+                    case "algo": e.algorithm = GomokuAI.SearchAlgorithm.valueOf(value.toUpperCase(Locale.ROOT)); break;
+                    case "depth": e.depth = Integer.parseInt(value); break;
+                    case "time": e.budget = Duration.ofMillis(Long.parseLong(value)); break;
+                    case "level": e.level = GomokuAI.Difficulty.valueOf(value.toUpperCase(Locale.ROOT)); break;
+                    case "nodes": e.nodes = Long.parseLong(value); break;
+                    case "threat": e.threatSearch = parseSwitch(value); break;
+                    case "proof": e.proofSearch = parseSwitch(value); break;
+                    case "ordering": e.ordering = parseSwitch(value); break;
+                    default: throw new IllegalArgumentException("未知的引擎配置项: " + kv[0]);
+                }
+            }
+            return e;
+        }
+
+        private static boolean parseSwitch(String value) {
+            if (value.equals("on")) return true;
+            if (value.equals("off")) return false;
+            throw new IllegalArgumentException("开关只能为 on 或 off: " + value);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        GomokuAI create() {
+            GomokuAI ai = new GomokuAI();
+            ai.setSearchAlgorithm(algorithm);
+            ai.setMaxDepth(depth);
+            ai.setThreatSearchEnabled(threatSearch);
+            ai.setProofSearchEnabled(proofSearch);
+            ai.setOrderingHeuristicsEnabled(ordering);
+            if (level != null) ai.setDifficulty(level);
+            if (nodes > 0) ai.setNodeBudget(nodes);
+            return ai;
+        }
+
+        int[] move(GomokuAI ai, int[][] board, int color) {
+            return budget == null ? ai.getNextStep(board, color) : ai.getNextStep(board, color, budget);
+        }
+    }
+
+    /**
+     * 一方在若干局中的搜索统计
+     */
+    public static class EngineStats {
+        public long moves;
+        public long nodes;
+        public long nanos;
+
+        void add(EngineStats other) {
+            moves += other.moves;
+            nodes += other.nodes;
+            nanos += other.nanos;
+        }
+
+        public double nodesPerSecond() {
+            return nanos == 0 ? 0.0 : nodes * 1e9 / nanos;
+        }
+
+        public double millisPerMove() {
+            return moves == 0 ? 0.0 : nanos / 1e6 / moves;
+        }
+    }
+
+    /**
+     * 一对对局（交换先后手）的结果，wins/draws/losses 均从 A 的角度计
+     */
+    private static class PairResult {
+        int wins;
+        int draws;
+        int losses;
+        final EngineStats a = new EngineStats();
+        final EngineStats b = new EngineStats();
+    }
+
+    /**
+     * 比赛汇总结果
+     */
+    public static class Report {
+        public final String engineA;
+        public final String engineB;
+        public final int plannedGames;
+        public int wins;
+        public int draws;
+        public int losses;
+        public final EngineStats statsA = new EngineStats();
+        public final EngineStats statsB = new EngineStats();
+        public double elo0;
+        public double elo1;
+        public double alpha;
+        public double beta;
+        public long wallNanos;
+        public int threads;
+        public long seed;
+        public int openingStones;
+
+        Report(String engineA, String engineB, int plannedGames) {
+            this.engineA = engineA;
+            this.engineB = engineB;
+            this.plannedGames = plannedGames;
+        }
+
+        public int games() {
+            return wins + draws + losses;
+        }
+
+        /**
+         * A 的得分率（胜 1、和 0.5）
+         */
+        public double score() {
+            int n = games();
+            return n == 0 ? 0.5 : (wins + 0.5 * draws) / n;
+        }
+
+        public double drawRate() {
+            int n = games();
+            return n == 0 ? 0.0 : (double) draws / n;
+        }
+
+        public double elo() {
+            return eloFromScore(score());
+        }
+
+        /**
+         * Elo 差的 95% 置信区间 {下界, 上界}（按每局得分的方差估计）
+         */
+        public double[] eloInterval() {
+            int n = games();
+            if (n == 0) return new double[]{Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY};
+            double margin = Z_95 * Math.sqrt(scoreVariance() / n);
+            return new double[]{eloFromScore(score() - margin), eloFromScore(score() + margin)};
+        }
+
+        /**
+         * 每局得分的样本方差
+         */
+        double scoreVariance() {
+            int n = games();
+            if (n == 0) return 0.0;
+            double s = score();
+            return (wins * (1 - s) * (1 - s) + draws * (0.5 - s) * (0.5 - s) + losses * s * s) / n;
+        }
+
+        /**
+         * SPRT 的对数似然比（正态近似）：H0 为 Elo 差 = elo0，H1 为 Elo 差 = elo1
+         */
+        public double llr() {
+            double var = scoreVariance();
+            if (games() == 0 || var == 0) return 0.0;
+            double s0 = scoreFromElo(elo0);
+            double s1 = scoreFromElo(elo1);
+            return games() * (s1 - s0) * (2 * score() - s0 - s1) / (2 * var);
+        }
+
+        public double lowerBound() {
+            return Math.log(beta / (1 - alpha));
+        }
+
+        public double upperBound() {
+            return Math.log((1 - beta) / alpha);
+        }
+
+        /**
+         * SPRT 结论：H1（A 更强）、H0（A 不更强）或 继续
+         */
+        public String sprtResult() {
+            double llr = llr();
+            if (llr >= upperBound()) return "H1";
+            if (llr <= lowerBound()) return "H0";
+            return "continue";
+        }
+
+        public String toJson() {
+            double[] ci = eloInterval();
+            StringBuilder sb = new StringBuilder();
+            sb.append("{\n");
+            field(sb, "engineA", quote(engineA));
+            field(sb, "engineB", quote(engineB));
+            field(sb, "plannedGames", plannedGames);
+            field(sb, "games", games());
+            field(sb, "wins", wins);
+            field(sb, "draws", draws);
+            field(sb, "losses", losses);
+            field(sb, "score", num(score()));
+            field(sb, "drawRate", num(drawRate()));
+            field(sb, "elo", num(elo()));
+            field(sb, "eloLow", num(ci[0]));
+            field(sb, "eloHigh", num(ci[1]));
+            sb.append("  \"sprt\": {\"elo0\": ").append(num(elo0)).append(", \"elo1\": ").append(num(elo1))
+                    .append(", \"alpha\": ").append(num(alpha)).append(", \"beta\": ").append(num(beta))
+                    .append(", \"llr\": ").append(num(llr())).append(", \"lower\": ").append(num(lowerBound()))
+                    .append(", \"upper\": ").append(num(upperBound()))
+                    .append(", \"result\": ").append(quote(sprtResult())).append("},\n");
+            engine(sb, "statsA", statsA);
+            engine(sb, "statsB", statsB);
+            field(sb, "threads", threads);
+            field(sb, "seed", seed);
+            field(sb, "openingStones", openingStones);
+            sb.append("  \"wallMillis\": ").append(wallNanos / 1_000_000).append("\n}\n");
+            return sb.toString();
+        }
+
+        private static void engine(StringBuilder sb, String key, EngineStats s) {
+            sb.append("  \"").append(key).append("\": {\"moves\": ").append(s.moves)
+                    .append(", \"nodes\": ").append(s.nodes)
+                    .append(", \"searchMillis\": ").append(s.nanos / 1_000_000)
+                    .append(", \"nodesPerSecond\": ").append(num(s.nodesPerSecond()))
+                    .append(", \"millisPerMove\": ").append(num(s.millisPerMove())).append("},\n");
+        }
+
+        private static void field(StringBuilder sb, String key, Object value) {
+            sb.append("  \"").append(key).append("\": ").append(value).append(",\n");
+        }
+
+        private static String quote(String s) {
+            return "\"" + s.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+        }
+
+        private static String num(double v) {
+            if (Double.isNaN(v)) return "null";
+            if (Double.isInfinite(v)) return v > 0 ? "1e9" : "-1e9";
+            return String.format(Locale.ROOT, "%.4f", v);
+        }
+
+        @Override
+        public String toString() {
+            double[] ci = eloInterval();
+            return String.format(Locale.ROOT,
+                    "%s vs %s | %d 局 +%d =%d -%d | 得分 %.1f%% | Elo %+.1f [%+.1f, %+.1f] | LLR %.2f (%.2f, %.2f) %s%n"
+                            + "A: %.0f 节点/秒, %.1f ms/手 | B: %.0f 节点/秒, %.1f ms/手 | 用时 %.1f s",
+                    engineA, engineB, games(), wins, draws, losses, score() * 100, elo(), ci[0], ci[1],
+                    llr(), lowerBound(), upperBound(), sprtResult(),
+                    statsA.nodesPerSecond(), statsA.millisPerMove(),
+                    statsB.nodesPerSecond(), statsB.millisPerMove(), wallNanos / 1e9);
+        }
+    }
+
+    private final Engine engineA;
+    private final Engine engineB;
+    private int games = 100;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int openingStones = 4;
+    private long seed = 20240501L;
+    private double elo0 = 0;
+    private double elo1 = 10;
+    private double alpha = 0.05;
+    private double beta = 0.05;
+    private boolean sprtStop = true;
+
+    public SelfPlayTournament(Engine engineA, Engine engineB) {
+        this.engineA = engineA;
+        this.engineB = engineB;
+    }
+
+    /**
+     * 总局数（向上取偶数，每个开局两局）
+     */
+    public void setGames(int games) {
+        if (games < 1) throw new IllegalArgumentException("局数必须为正数: " + games);
+        this.games = games + (games & 1);
+    }
+
+    public void setThreads(int threads) {
+        if (threads < 1) throw new IllegalArgumentException("并行局数必须至少为 1: " + threads);
+        this.threads = threads;
+    }
+
+    /**
+     * 随机开局在中心区域交替摆放的棋子数（0 表示从空棋盘开始，此时各对局完全相同）
+     */
+    public void setOpeningStones(int openingStones) {
+        if (openingStones < 0 || openingStones > (2 * OPENING_RADIUS + 1) * (2 * OPENING_RADIUS + 1)) {
+            throw new IllegalArgumentException("开局子数超出范围: " + openingStones);
+        }
+        this.openingStones = openingStones;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * 设置 SPRT 参数；stopEarly 为 true 时 LLR 越过边界后不再开始新的对局
+     */
+    public void setSprt(double elo0, double elo1, double alpha, double beta, boolean stopEarly) {
+        if (!(elo1 > elo0)) throw new IllegalArgumentException("elo1 必须大于 elo0");
+        if (alpha <= 0 || alpha >= 1 || beta <= 0 || beta >= 1) throw new IllegalArgumentException("alpha、beta 必须在 (0, 1) 内");
+        this.elo0 = elo0;
+        this.elo1 = elo1;
+        this.alpha = alpha;
+        this.beta = beta;
+        this.sprtStop = stopEarly;
+    }
+
+    /**
+     * 进行比赛并返回汇总结果
+     */
+    public Report run() throws InterruptedException {
+        Report report = new Report(engineA.spec, engineB.spec, games);
+        report.elo0 = elo0;
+        report.elo1 = elo1;
+        report.alpha = alpha;
+        report.beta = beta;
+        report.threads = threads;
+        report.seed = seed;
+        report.openingStones = openingStones;
+
+        int pairs = games / 2;
+        AtomicInteger nextPair = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "gomoku-selfplay");
+            t.setDaemon(true);
+            return t;
+        });
+        ExecutorCompletionService<PairResult> done = new ExecutorCompletionService<>(pool);
+        long start = System.nanoTime();
+        int submitted = 0;
+        try {
+            // 每个线程同时只跑一对对局，完成一对再提交下一对，SPRT 结束后不再提交
+            for (; submitted < Math.min(threads, pairs); submitted++) {
+                int pair = nextPair.getAndIncrement();
+                done.submit(() -> playPair(pair));
+            }
+            boolean stopped = false;
+            for (int finished = 0; finished < submitted; finished++) {
+                PairResult r = done.take().get();
+                report.wins += r.wins;
+                report.draws += r.draws;
+                report.losses += r.losses;
+                report.statsA.add(r.a);
+                report.statsB.add(r.b);
+                if (sprtStop && !report.sprtResult().equals("continue")) stopped = true;
+                if (!stopped && submitted < pairs) {
+                    int pair = nextPair.getAndIncrement();
+                    done.submit(() -> playPair(pair));
+                    submitted++;
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("对局执行失败", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        report.wallNanos = System.nanoTime() - start;
+        return report;
+    }
+
+    /**
+     * 第 pair 个随机开局下的两局：第一局 A 执黑，第二局 B 执黑
+     */
+    private PairResult playPair(int pair) {
+        int[][] opening = randomOpening(new Random(seed + pair * 0x9E3779B97F4A7C15L));
+        PairResult result = new PairResult();
+        for (int g = 0; g < 2; g++) {
+            int aColor = g == 0 ? 1 : 2;
+            int winner = playGame(opening, aColor, result.a, result.b);
+            if (winner == 0) result.draws++;
+            else if (winner == aColor) result.wins++;
+            else result.losses++;
+        }
+        return result;
+    }
+
+    /**
+     * 从开局局面下完一局，返回胜方颜色，和棋返回 0
+     */
+    private int playGame(int[][] opening, int aColor, EngineStats statsA, EngineStats statsB) {
+        int[][] board = new int[BOARD_SIZE][];
+        for (int i = 0; i < BOARD_SIZE; i++) board[i] = opening[i].clone();
+        BitBoard bb = BitBoard.fromArray(board);
+        GomokuAI a = engineA.create();
+        GomokuAI b = engineB.create();
+        int color = (openingStones % 2 == 0) ? 1 : 2;
+        try {
+            for (int stones = openingStones; stones < BOARD_SIZE * BOARD_SIZE; stones++) {
+                boolean aToMove = color == aColor;
+                GomokuAI ai = aToMove ? a : b;
+                EngineStats stats = aToMove ? statsA : statsB;
+                long t0 = System.nanoTime();
+                int[] m = (aToMove ? engineA : engineB).move(ai, board, color);
+                stats.nanos += System.nanoTime() - t0;
+                stats.nodes += ai.getLastNodeCount();
+                stats.moves++;
+                if (m[0] < 0 || board[m[0]][m[1]] != 0) {
+                    throw new IllegalStateException("引擎返回了非法着法: " + m[0] + "," + m[1]);
+                }
+                board[m[0]][m[1]] = color;
+                int cell = bb.cell(m[0], m[1]);
+                bb.place(cell, color);
+                if (bb.isFiveAt(cell, color)) return color;
+                color = 3 - color;
+            }
+            return 0;
+        } finally {
+            a.shutdown();
+            b.shutdown();
+        }
+    }
+
+    /**
+     * 在中心区域随机交替摆放 openingStones 个棋子，黑先
+     */
+    private int[][] randomOpening(Random rnd) {
+        int[][] board = new int[BOARD_SIZE][BOARD_SIZE];
+        int center = BOARD_SIZE / 2;
+        int color = 1;
+        for (int k = 0; k < openingStones; k++) {
+            int r, c;
+            do {
+                r = center - OPENING_RADIUS + rnd.nextInt(2 * OPENING_RADIUS + 1);
+                c = center - OPENING_RADIUS + rnd.nextInt(2 * OPENING_RADIUS + 1);
+            } while (board[r][c] != 0);
+            board[r][c] = color;
+            color = 3 - color;
+        }
+        return board;
+    }
+
+    /**
+     * 得分率对应的 Elo 差（逻辑斯蒂模型），得分率为 0 或 1 时取有限的边界值
+     */
+    static double eloFromScore(double score) {
+        double s = Math.min(Math.max(score, 1e-6), 1 - 1e-6);
+        return -400 * Math.log10(1 / s - 1);
+    }
+
+    static double scoreFromElo(double elo) {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String a = "A:algo=PVS,depth=4";
+        String b = "B:algo=MINIMAX,depth=4";
+        int games = 200;
+        Integer threads = null;
+        Integer opening = null;
+        Long seed = null;
+        double[] sprt = null;
+        Path out = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--games": games = Integer.parseInt(args[i + 1]); break;
+                case "--a": a = args[i + 1]; break;
+                case "--b": b = args[i + 1]; break;
+                case "--opening": opening = Integer.parseInt(args[i + 1]); break;
+                case "--threads": threads = Integer.parseInt(args[i + 1]); break;
+                case "--seed": seed = Long.parseLong(args[i + 1]); break;
+                case "--sprt": {
+                    String[] e = args[i + 1].split(",");
+                    sprt = new double[]{Double.parseDouble(e[0]), Double.parseDouble(e[1])};
+                    break;
+                }
+                case "--out": out = Paths.get(args[i + 1]); break;
+                default: throw new IllegalArgumentException("未知参数: " + args[i]);
+            }
+        }
+
+        SelfPlayTournament t = new SelfPlayTournament(Engine.parse(a), Engine.parse(b));
+        t.setGames(games);
+        if (threads != null) t.setThreads(threads);
+        if (opening != null) t.setOpeningStones(opening);
+        if (seed != null) t.setSeed(seed);
+        if (sprt != null) t.setSprt(sprt[0], sprt[1], 0.05, 0.05, true);
+
+        Report report = t.run();
+        System.out.println(report);
+        if (out != null) {
+            Files.write(out, report.toJson().getBytes(StandardCharsets.UTF_8));
+            System.out.println("报告已写入 " + out);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.wuzi.ai;
+
+/**
+ * ThreatSolver - 威胁空间搜索（VCF / VCT）
+ * 特性：
+ *  - VCF：进攻方只走成四的着法，防守方只能堵唯一的成五点，直到形成双四/活四
+ *  - VCT：进攻方还可以走活三；防守方尝试所有能阻止进攻方成四的点，以及自己的冲四反击
+ *  - 防守方出现成五点时，进攻方只能去堵，且只有这一步本身也是威胁时序列才继续
+ *  - 威胁等级直接读取 IncrementalEvaluator 的缓存，搜索过程中不分配内存
+ *  - 有独立的深度（进攻方步数）、节点数和截止时间限制；超限视为“未找到”
+ *  - 连珠规则下黑棋不走禁手：禁手点不作为威胁或防守着法，唯一堵点是黑棋禁手时白棋的冲四即可取胜；
+ *    黑棋只数不是禁手的成五点，长连点不算，因此不会把只能长连的四当成活四
+ *
+ * 搜索在传入的位棋盘上落子/撤子，返回前棋盘恢复原状。
+ */
+final class ThreatSolver {
+    // 默认深度：进攻方最多走几步
+    static final int DEFAULT_VCF_DEPTH = 10;
+    static final int DEFAULT_VCT_DEPTH = 4;
+    // 默认单次求解的节点上限
+    static final long DEFAULT_NODE_LIMIT = 20_000;
+
+    // 每搜索多少个节点检查一次截止时间
+    private static final int TIME_CHECK_INTERVAL = 64;
+
+    private final BitBoard bb;
+    private final IncrementalEvaluator ev;
+    // 每层（半步）的候选点与排序分缓冲区
+    private final int[][] moveBuf;
+    private final int[][] scoreBuf;
+    // 连珠规则下数黑棋成五点用的临时缓冲区
+    private final int[] fiveBuf;
+    private final int maxDepth;
+
+    private long nodes;
+    private long nodeLimit;
+    private long deadline;
+    private boolean aborted;
+    // 取消令牌：每个节点检查一次
+    private CancellationToken token = CancellationToken.NONE;
+    // 根节点找到的必胜着法
+    private int winningMove;
+
+    /**
+     * @param maxDepth 支持的最大进攻步数（决定缓冲区层数）
+     */
+    ThreatSolver(BitBoard bb, int maxDepth) {
+        this.bb = bb;
+        this.ev = bb.evaluator();
+        this.maxDepth = maxDepth;
+        int plies = 2 * maxDepth + 2;
+        this.moveBuf = new int[plies][bb.cellCount];
+        this.scoreBuf = new int[plies][bb.cellCount];
+        this.fiveBuf = new int[bb.cellCount];
+    }
+
+    /**
+     * 轮到 attacker 走，寻找连续冲四取胜的第一步；找不到或超限返回 -1
+     */
+    int findVcf(int attacker, int depth, long nodeLimit, long deadline) {
+        return solve(attacker, depth, false, nodeLimit, deadline);
+    }
+
+    /**
+     * 轮到 attacker 走，寻找以冲四/活三连续进攻取胜的第一步；找不到或超限返回 -1
+     */
+    int findVct(int attacker, int depth, long nodeLimit, long deadline) {
+        return solve(attacker, depth, true, nodeLimit, deadline);
+    }
+
+    /**
+     * 最近一次求解访问的节点数
+     */
+    long nodes() {
+        return nodes;
+    }
+
+    /**
+     * 最近一次求解是否因节点数、时间超限或取消而中止
+     */
+    boolean aborted() {
+        return aborted;
+    }
+
+    /**
+     * 设置之后各次求解的取消令牌，null 表示不可取消；被取消的求解按中止处理
+     */
+    void setToken(CancellationToken token) {
+        this.token = token == null ? CancellationToken.NONE : token;
+    }
+
+    private int solve(int attacker, int depth, boolean vct, long nodeLimit, long deadline) {
+        this.nodes = 0;
+        this.nodeLimit = nodeLimit;
+        this.deadline = deadline;
+        this.aborted = false;
+        this.winningMove = -1;
+        if (bb.stoneCount() == 0) return -1;
+        boolean win = attack(0, attacker, 3 - attacker, Math.min(depth, maxDepth), vct);
+        return win ? winningMove : -1;
+    }
+
+    private boolean limitReached() {
+        nodes++;
+        if (nodes >= nodeLimit || token.isCancelled()) {
+            aborted = true;
+        } else if ((nodes & (TIME_CHECK_INTERVAL - 1)) == 0 && deadline != GomokuAI.NO_DEADLINE
+                && System.nanoTime() >= deadline) {
+            aborted = true;
+        }
+        return aborted;
+    }
+
+    /**
+     * 进攻方行棋的节点：能否在 depthLeft 步内取胜
+     */
+    private boolean attack(int ply, int att, int def, int depthLeft, boolean vct) {
+        if (limitReached()) return false;
+        int[] moves = moveBuf[ply];
+        int[] scores = scoreBuf[ply];
+        int n = bb.candidates(moves, att);
+
+        // 直接成五（连珠规则下黑棋的长连点是禁手，不在候选点中）
+        if (fivePoints(att) > 0) {
+            int five = findThreat(moves, n, att, IncrementalEvaluator.THREAT_FIVE);
+            if (five >= 0) {
+                if (ply == 0) winningMove = five;
+                return true;
+            }
+        }
+        // 对方有成五点：只能堵，对方有两个以上成五点或堵点是己方禁手则无法挽回
+        int forced = -1;
+        int defFives = fivePoints(def);
+        if (defFives > 0) {
+            if (defFives > 1) return false;
+            forced = findThreat(moves, n, def, IncrementalEvaluator.THREAT_FIVE);
+            if (forced < 0) return false;
+        }
+        if (depthLeft <= 0) return false;
+
+        // 只保留威胁着法：成四，VCT 时还包括活三
+        int minThreat = vct ? IncrementalEvaluator.THREAT_THREE : IncrementalEvaluator.THREAT_FOUR;
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            int cell = moves[i];
+            if (forced >= 0 && cell != forced) continue;
+            int t = ev.threat(att, cell);
+            if (t < minThreat) continue;
+            moves[count] = cell;
+            scores[count] = t * Evaluator.SCORE_FIVE + ev.score(att, cell) + ev.score(def, cell);
+            count++;
+        }
+        count = SearchWorker.selectTop(moves, scores, count, count);
+
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            bb.place(move, att);
+            boolean win;
+            int attFives = fivePoints(att);
+            if (fivePoints(def) > 0) {
+                // 没有堵住对方的成五点
+                win = false;
+            } else if (attFives >= 2) {
+                // 活四或双四，对方只能堵一个
+                win = true;
+            } else if (attFives == 1) {
+                // 冲四：对方必须堵在唯一的成五点，堵点是对方的禁手时进攻方取胜
+                int block = findThreat(moveBuf[ply + 1], bb.candidates(moveBuf[ply + 1], def), att, IncrementalEvaluator.THREAT_FIVE);
+                if (block < 0) {
+                    win = true;
+                } else {
+                    bb.place(block, def);
+                    win = attack(ply + 2, att, def, depthLeft - 1, vct);
+                    bb.remove(block);
+                }
+            } else {
+                // 活三：对方有多种防守
+                win = defend(ply + 1, att, def, depthLeft - 1, vct);
+            }
+            bb.remove(move);
+            if (win) {
+                if (ply == 0) winningMove = move;
+                return true;
+            }
+            if (aborted) return false;
+        }
+        return false;
+    }
+
+    /**
+     * 防守方应对活三的节点：所有防守都失败时进攻方取胜
+     * 防守点为进攻方的成四点（堵住活三的延伸），以及防守方自己的成四点（冲四反击）。
+     */
+    private boolean defend(int ply, int att, int def, int depthLeft, boolean vct) {
+        if (limitReached()) return false;
+        int[] moves = moveBuf[ply];
+        int[] scores = scoreBuf[ply];
+        int n = bb.candidates(moves, def);
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            int cell = moves[i];
+            int ta = ev.threat(att, cell);
+            int td = ev.threat(def, cell);
+            if (ta < IncrementalEvaluator.THREAT_FOUR && td < IncrementalEvaluator.THREAT_FOUR) continue;
+            moves[count] = cell;
+            scores[count] = ev.score(att, cell) + ev.score(def, cell);
+            count++;
+        }
+        // 没有可选的防守点说明进攻方并没有形成真正的威胁（例如黑棋的四只能长连），不算取胜
+        if (count == 0) return false;
+        count = SearchWorker.selectTop(moves, scores, count, count);
+
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            bb.place(move, def);
+            boolean win = attack(ply + 1, att, def, depthLeft, vct);
+            bb.remove(move);
+            if (!win) return false;
+        }
+        return true;
+    }
+
+    /**
+     * color 的成五点个数；连珠规则下的黑棋只数不是禁手的成五点（长连点是禁手）
+     */
+    private int fivePoints(int color) {
+        int f = ev.fivePoints(color);
+        if (f == 0 || !bb.isRenju() || color != RenjuRules.BLACK) return f;
+        int n = bb.candidates(fiveBuf, color);
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            if (ev.threat(color, fiveBuf[i]) == IncrementalEvaluator.THREAT_FIVE) count++;
+        }
+        return count;
+    }
+
+    private int findThreat(int[] cells, int n, int color, int level) {
+        for (int i = 0; i < n; i++) {
+            if (ev.threat(color, cells[i]) == level) return cells[i];
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,162 @@
+package com.wuzi.ai;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * TranspositionTable - 固定大小的置换表
+ * 特性：
+ *  - 以 Zobrist 哈希为键，保存搜索值、边界类型、剩余深度与最佳着法
+ *  - 表项数为 2 的幂，按哈希低位直接寻址，不做链表/探测
+ *  - 深度优先替换：同一轮搜索中只有更深（或等深）的结果才能覆盖已有表项，
+ *    上一轮搜索留下的表项视为过期，可直接覆盖
+ *  - 统计探测次数、命中次数与冲突次数（槽位被其他局面占用）
+ *  - 线程安全且无锁：键槽保存 key ^ data，读取时用同一槽的数据还原键，
+ *    并发写入造成的键/数据错配会被当作未命中，不会读到错误的值
+ *
+ * 一个表项由两个 long 组成：键与数据的异或，以及打包后的数据：
+ *   bit 0-31 值 | bit 32-47 着法(cell+1) | bit 48-55 深度 | bit 56-57 边界 | bit 58-63 代数
+ */
+final class TranspositionTable {
+    static final int BOUND_EXACT = 1;
+    static final int BOUND_LOWER = 2;
+    static final int BOUND_UPPER = 3;
+
+    // 每个表项占用的字节数（键 + 数据）
+    static final int ENTRY_BYTES = 16;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+    // 只在搜索开始前由发起线程修改，工作线程启动时即可见
+    private int age;
+
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder collisions = new LongAdder();
+
+    /**
+     * @param sizeMb 表占用内存的上限（MB），实际表项数取不超过该上限的 2 的幂
+     */
+    TranspositionTable(int sizeMb) {
+        if (sizeMb <= 0) {
+            throw new IllegalArgumentException("置换表大小必须为正数: " + sizeMb);
+        }
+        long entries = (long) sizeMb * 1024 * 1024 / ENTRY_BYTES;
+        int capacity = Integer.highestOneBit((int) Math.min(entries, 1 << 30));
+        this.keys = new long[capacity];
+        this.data = new long[capacity];
+        this.mask = capacity - 1;
+    }
+
+    int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * 开始新一轮搜索：旧表项保留用于排序，但可被任意新结果覆盖
+     */
+    void newSearch() {
+        age = (age + 1) & 0x3F;
+    }
+
+    /**
+     * 查找 key 对应的打包数据，未命中返回 0
+     */
+    long probe(long key) {
+        int idx = (int) key & mask;
+        probes.increment();
+        long d = data[idx];
+        if (d == 0) return 0;
+        if ((keys[idx] ^ d) == key) {
+            hits.increment();
+            return d;
+        }
+        collisions.increment();
+        return 0;
+    }
+
+    /**
+     * 与 probe 相同，但不计入命中统计（用于回溯主变例等搜索之外的查询）
+     */
+    long peek(long key) {
+        int idx = (int) key & mask;
+        long d = data[idx];
+        return d != 0 && (keys[idx] ^ d) == key ? d : 0;
+    }
+
+    void store(long key, int depth, int value, int bound, int move) {
+        int idx = (int) key & mask;
+        long old = data[idx];
+        if (old != 0 && ageOf(old) == age && depthOf(old) > depth) {
+            return; // 深度优先：保留本轮更深的结果
+        }
+        long d = pack(value, move, depth, bound, age);
+        keys[idx] = key ^ d;
+        data[idx] = d;
+    }
+
+    void clear() {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(data, 0L);
+        resetStats();
+    }
+
+    void resetStats() {
+        probes.reset();
+        hits.reset();
+        collisions.reset();
+    }
+
+    long probes() {
+        return probes.sum();
+    }
+
+    long hits() {
+        return hits.sum();
+    }
+
+    long collisions() {
+        return collisions.sum();
+    }
+
+    double hitRate() {
+        long p = probes();
+        return p == 0 ? 0.0 : (double) hits() / p;
+    }
+
+    double collisionRate() {
+        long p = probes();
+        return p == 0 ? 0.0 : (double) collisions() / p;
+    }
+
+    // =================== 打包/解包 ===================
+
+    static long pack(int value, int move, int depth, int bound, int age) {
+        return (value & 0xFFFF_FFFFL)
+                | (long) ((move + 1) & 0xFFFF) << 32
+                | (long) (depth & 0xFF) << 48
+                | (long) (bound & 0x3) << 56
+                | (long) (age & 0x3F) << 58;
+    }
+
+    static int valueOf(long d) {
+        return (int) d;
+    }
+
+    static int moveOf(long d) {
+        return (int) (d >>> 32 & 0xFFFF) - 1;
+    }
+
+    static int depthOf(long d) {
+        return (int) (d >>> 48 & 0xFF);
+    }
+
+    static int boundOf(long d) {
+        return (int) (d >>> 56 & 0x3);
+    }
+
+    static int ageOf(long d) {
+        return (int) (d >>> 58 & 0x3F);
+    }
+}
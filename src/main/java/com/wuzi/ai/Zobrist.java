@@ -0,0 +1,41 @@
+package com.wuzi.ai;
+
+import java.util.Random;
+
+/**
+ * Zobrist - 局面哈希随机数表
+ * 每个 (颜色, 格子) 对应一个 64 位随机数，局面哈希为所有棋子随机数的异或，
+ * 落子/撤子时只需异或一次即可增量更新。
+ *
+ * 使用固定种子生成，保证同一局面在不同进程中得到相同的哈希（便于持久化）。
+ */
+final class Zobrist {
+    private static final long SEED = 0x5A0B_1257_2024_0001L;
+    private static final int MAX_CELLS = BitBoard.MAX_SIZE * BitBoard.MAX_SIZE;
+
+    // PIECE[color][cell]，color 取 1/2
+    private static final long[][] PIECE = new long[3][MAX_CELLS];
+    // SIDE[color]：轮到 color 行棋时附加到哈希上的随机数
+    private static final long[] SIDE = new long[3];
+
+    static {
+        Random rnd = new Random(SEED);
+        for (int color = 1; color <= 2; color++) {
+            for (int cell = 0; cell < MAX_CELLS; cell++) {
+                PIECE[color][cell] = rnd.nextLong();
+            }
+            SIDE[color] = rnd.nextLong();
+        }
+    }
+
+    private Zobrist() {
+    }
+
+    static long piece(int color, int cell) {
+        return PIECE[color][cell];
+    }
+
+    static long side(int color) {
+        return SIDE[color];
+    }
+}
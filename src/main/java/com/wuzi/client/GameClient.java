@@ -1,6 +1,10 @@
 package com.wuzi.client;
 
+import com.wuzi.ai.AiWarmup;
+import com.wuzi.ai.AnalysisLine;
+import com.wuzi.ai.EngineSession;
 import com.wuzi.ai.GomokuAI;
+import com.wuzi.ai.OpeningBook;
 import com.wuzi.common.AnsiColor;
 
 import java.io.BufferedReader;
@@ -8,6 +12,7 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.net.Socket;
+import java.nio.file.Paths;
 import java.util.Scanner;
 
 /**
@@ -27,10 +32,20 @@ public class GameClient {
     private final int HUMAN = 1;
     private final int AI = 2;
     private GomokuAI gomokuAI = new GomokuAI();
+    // 与 localBoard 同步的 AI 会话：每步只把新落的棋子交给 AI
+    private EngineSession aiSession = gomokuAI.newSession(SIZE, SIZE);
+    // 工作目录下的开局库文件（可用 OpeningBookBuilder 生成，不存在时不使用）
+    private final String BOOK_FILE = "opening.book";
+    // hint 指令列出的推荐落点数
+    private final int HINT_LINES = 3;
     private int lastRow = -1;
     private int lastCol = -1;
+    // 本地 AI 的 JIT 预热，结束前不开放本地人机对战
+    private final AiWarmup warmup = new AiWarmup();
 
     public GameClient(String serverIp, int port) {
+        gomokuAI.setOpeningBook(OpeningBook.openIfExists(Paths.get(BOOK_FILE)));
+        warmup.start(w -> System.out.println(AnsiColor.color("[系统] 本地 AI 已就绪，可输入 ai start 开始人机对战", AnsiColor.GREEN)));
         try {
             socket = new Socket(serverIp, port);
 
@@ -71,6 +86,7 @@ public class GameClient {
                 if (input.equalsIgnoreCase("exit")) {
                     if (isAiMode) {
                         isAiMode = false;
+                        gomokuAI.stopPondering();
                         resetLocalBoard();
                         System.out.println(AnsiColor.color("已退出 AI 模式，返回大厅", AnsiColor.GREEN));
                     } else {
@@ -87,6 +103,8 @@ public class GameClient {
                         out.println(input);
                     } else if (input.equalsIgnoreCase("help")) {
                         showHelpInfo();
+                    } else if (input.equalsIgnoreCase("hint")) {
+                        showHint();
                     } else {
                         System.out.println(AnsiColor.color("AI 模式下不支持该指令", AnsiColor.RED));
                     }
@@ -132,8 +150,13 @@ public class GameClient {
     }
 
     private void startLocalAiMode() {
+        if (!warmup.isReady()) {
+            System.out.println(AnsiColor.color("本地 AI 正在预热，请稍后再试", AnsiColor.YELLOW));
+            return;
+        }
         System.out.println(AnsiColor.color("开启本地人机对战...", AnsiColor.CYAN));
         out.println("leave"); // 通知服务器离开房间
+        gomokuAI.stopPondering();
         resetLocalBoard();
         isAiMode = true;
         printLocalBoard();
@@ -148,27 +171,54 @@ public class GameClient {
 
         // 玩家落子
         localBoard[rc[0]][rc[1]] = HUMAN;
+        aiSession.applyMove(rc[0], rc[1], HUMAN);
         lastRow = rc[0]; lastCol = rc[1];
         printLocalBoard();
 
         if (checkWin(rc[0], rc[1], HUMAN)) {
             System.out.println(AnsiColor.color("你赢了！AI 已被击败。", AnsiColor.YELLOW));
             isAiMode = false;
+            gomokuAI.stopPondering();
             return;
         }
 
-        // AI 思考并落子
-        int[] aiMove = gomokuAI.getNextStep(localBoard, AI);
+        // AI 思考并落子（会先停止后台思考；玩家走了预判中的一手时直接用算好的应对）
+        int[] aiMove = aiSession.getNextStep(AI);
         if (aiMove[0] != -1) {
             localBoard[aiMove[0]][aiMove[1]] = AI;
+            aiSession.applyMove(aiMove[0], aiMove[1], AI);
             lastRow = aiMove[0]; lastCol = aiMove[1];
-            System.out.println(AnsiColor.color("AI 落子: " + getColLabel(lastRow) + " " + getRowLabel(lastCol), AnsiColor.CYAN));
+            String hint = gomokuAI.isLastMovePondered() ? "（预判命中）" : "";
+            System.out.println(AnsiColor.color("AI 落子: " + getColLabel(lastRow) + " " + getRowLabel(lastCol) + hint, AnsiColor.CYAN));
             printLocalBoard();
             if (checkWin(aiMove[0], aiMove[1], AI)) {
                 System.out.println(AnsiColor.color("AI 赢了，再接再厉！", AnsiColor.YELLOW));
                 isAiMode = false;
+            } else {
+                // 玩家思考期间在后台预先计算其可能的应手
+                aiSession.startPondering(AI);
+            }
+        }
+    }
+
+    /**
+     * 提示：分析当前局面，列出玩家最好的几个落点、分数与预计的后续变化
+     */
+    private void showHint() {
+        AnalysisLine[] lines = gomokuAI.analyze(localBoard, HUMAN, HINT_LINES);
+        System.out.println(AnsiColor.color("推荐落点：", AnsiColor.CYAN));
+        for (int i = 0; i < lines.length; i++) {
+            AnalysisLine line = lines[i];
+            StringBuilder sb = new StringBuilder();
+            sb.append(i + 1).append(". ").append(getColLabel(line.row)).append(" ").append(getRowLabel(line.col))
+                    .append("  分数 ").append(line.score).append("  变化:");
+            for (int[] move : line.getPrincipalVariation()) {
+                sb.append(' ').append(getColLabel(move[0])).append(getRowLabel(move[1]));
             }
+            System.out.println(AnsiColor.color(sb.toString(), AnsiColor.CYAN));
         }
+        // 分析时停掉了后台思考，轮到玩家落子时重新开始
+        if (lastRow != -1 && localBoard[lastRow][lastCol] == AI) aiSession.startPondering(AI);
     }
 
     // --- 辅助工具方法 ---
@@ -177,6 +227,7 @@ public class GameClient {
         for (int i = 0; i < SIZE; i++)
             for (int j = 0; j < SIZE; j++)
                 localBoard[i][j] = 0;
+        aiSession.reset();
         lastRow = -1; lastCol = -1;
     }
 
@@ -235,6 +286,7 @@ public class GameClient {
     private void showHelpInfo() {
         System.out.println(AnsiColor.color("\n===== 五子棋游戏指令帮助 =====", AnsiColor.CYAN));
         System.out.println(AnsiColor.color("put X Y       - 落子 (例: put H 8)", AnsiColor.CYAN));
+        System.out.println(AnsiColor.color("hint          - 列出推荐落点与后续变化", AnsiColor.CYAN));
         System.out.println(AnsiColor.color("exit          - 退出人机对战", AnsiColor.CYAN));
         System.out.println(AnsiColor.color("==============================\n", AnsiColor.CYAN));
     }
@@ -0,0 +1,105 @@
+package com.wuzi.server;
+
+import com.wuzi.ai.AiWarmup;
+
+import java.util.function.Consumer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AiComputePool - 服务端 AI 搜索专用的计算线程池
+ * AI 搜索是纯 CPU 任务，与处理客户端连接的 I/O 线程池（GameServer.threadPool）分开：
+ *  - 线程数固定（默认为 CPU 核数），搜索再多也不会挤占连接处理线程
+ *  - 等待队列有界，队列满时拒绝新任务，由房间提示玩家稍后重试，而不是无限堆积
+ *  - 线程为守护线程，不阻止 JVM 退出
+ *  - 可选 JIT 预热（startWarmup）：在计算线程上运行 AiWarmup，预热结束前 isAiReady() 为 false，房间不开启人机对战
+ */
+public class AiComputePool {
+    // 默认等待队列容量
+    public static final int DEFAULT_QUEUE_CAPACITY = 32;
+
+    private final ThreadPoolExecutor executor;
+    // 正在进行或已结束的预热，null 表示未启用预热
+    private volatile AiWarmup warmup;
+
+    public AiComputePool() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * @param threads       计算线程数
+     * @param queueCapacity 等待队列容量（不含正在执行的任务）
+     */
+    public AiComputePool(int threads, int queueCapacity) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("计算线程数必须至少为 1: " + threads);
+        }
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("等待队列容量必须为正数: " + queueCapacity);
+        }
+        AtomicInteger seq = new AtomicInteger(1);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "ai-compute-" + seq.getAndIncrement());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 提交一次搜索任务，队列已满或线程池已关闭时返回 false
+     */
+    public boolean submit(Runnable task) {
+        try {
+            executor.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 在计算线程上开始预热，结束后调用 onReady（可为 null）；线程池无法接受任务时不预热
+     */
+    public void startWarmup(AiWarmup warmup, Consumer<AiWarmup> onReady) {
+        this.warmup = warmup;
+        boolean submitted = submit(() -> {
+            warmup.run();
+            if (onReady != null) onReady.accept(warmup);
+        });
+        if (!submitted) this.warmup = null;
+    }
+
+    /**
+     * AI 是否可以对外提供：未启用预热或预热已结束
+     */
+    public boolean isAiReady() {
+        AiWarmup w = warmup;
+        return w == null || w.isReady();
+    }
+
+    /**
+     * 正在等待执行的任务数
+     */
+    public int getQueuedCount() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * 正在执行的任务数（近似值）
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getThreadCount() {
+        return executor.getCorePoolSize();
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
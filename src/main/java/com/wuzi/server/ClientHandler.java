@@ -1,5 +1,6 @@
 package com.wuzi.server;
 
+import com.wuzi.ai.GomokuAI;
 import com.wuzi.common.AnsiColor;
 
 import java.io.BufferedReader;
@@ -65,6 +66,12 @@ public class ClientHandler implements Runnable {
                     case "again":   // 新增
                         handleAgain();
                         break;
+                    case "ai":
+                        handleAi(parts);
+                        break;
+                    case "rule":
+                        handleRule(parts);
+                        break;
                     default:
                         out.println(AnsiColor.color("无效指令！输入 help 查看所有支持的指令", AnsiColor.RED));
                         break;
@@ -100,21 +107,78 @@ public class ClientHandler implements Runnable {
     }
 
     /**
-     * 处理AI对战开始指令（预留逻辑）
+     * 处理 AI 指令：ai start [easy|medium|hard|expert] 开始人机对战，ai move 在计算繁忙被拒绝后重新请求 AI 落子
      */
-    private void handleAiStart() {
+    private void handleAi(String[] parts) {
+        if ((parts.length == 2 || parts.length == 3) && parts[1].equals("start")) {
+            GomokuAI.Difficulty difficulty = GameRoom.DEFAULT_AI_DIFFICULTY;
+            if (parts.length == 3) {
+                try {
+                    difficulty = GomokuAI.Difficulty.valueOf(parts[2].toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    out.println(AnsiColor.color("难度只能是 easy、medium、hard 或 expert", AnsiColor.RED));
+                    return;
+                }
+            }
+            handleAiStart(difficulty);
+        } else if (parts.length == 2 && parts[1].equals("move")) {
+            handleAiMove();
+        } else {
+            out.println(AnsiColor.color("指令错误！正确格式：ai start [easy|medium|hard|expert] | 输入 help 查看帮助", AnsiColor.RED));
+        }
+    }
+
+    /**
+     * 处理AI对战开始指令：在当前房间由服务端托管 AI 对手
+     */
+    private void handleAiStart(GomokuAI.Difficulty difficulty) {
         if (player == null) {
             out.println(AnsiColor.color("请先设置昵称！", AnsiColor.RED));
             return;
         }
 
         GameRoom currentRoom = player.getCurrentRoom();
-        if (currentRoom != null && currentRoom.getPlayerCount() >= 2) {
+        if (currentRoom == null) {
+            out.println(AnsiColor.color("请先加入房间！输入 enter room X 进入空房间后再开始人机对战", AnsiColor.RED));
+            return;
+        }
+        if (currentRoom.getPlayerCount() >= 2) {
             out.println(AnsiColor.color("房间已有人，无法开启 AI 对战，请退出房间或等待空闲房间", AnsiColor.RED));
             return;
         }
 
-        out.println(AnsiColor.color("AI 对战模式已开启，你执黑(●)，AI执白(○)", AnsiColor.CYAN));
+        currentRoom.startAiGame(player, difficulty);
+    }
+
+    /**
+     * 重新请求 AI 落子（搜索提交被拒绝时使用）
+     */
+    private void handleAiMove() {
+        if (player == null || player.getCurrentRoom() == null || !player.getCurrentRoom().isAiGame()) {
+            out.println(AnsiColor.color("当前不在人机对战中！", AnsiColor.RED));
+            return;
+        }
+        GameRoom room = player.getCurrentRoom();
+        if (room.isGameOver() || !room.getCurrentTurnColor().equals(room.getAiColor())) {
+            out.println(AnsiColor.color("当前无需 AI 落子", AnsiColor.YELLOW));
+            return;
+        }
+        room.requestAiMove();
+    }
+
+    /**
+     * 处理规则指令：rule renju 切换为连珠规则（黑棋有禁手），rule free 切换回自由规则，对局开始前使用
+     */
+    private void handleRule(String[] parts) {
+        if (player == null || player.getCurrentRoom() == null) {
+            out.println(AnsiColor.color("请先加入房间！输入 help 查看帮助", AnsiColor.RED));
+            return;
+        }
+        if (parts.length != 2 || !(parts[1].equals("renju") || parts[1].equals("free"))) {
+            out.println(AnsiColor.color("指令错误！正确格式：rule renju|free | 输入 help 查看帮助", AnsiColor.RED));
+            return;
+        }
+        player.getCurrentRoom().setRenju(player, parts[1].equals("renju"));
     }
 
     /**
@@ -128,7 +192,9 @@ public class ClientHandler implements Runnable {
         out.println(AnsiColor.color("leave         - 离开当前房间，返回大厅", AnsiColor.CYAN));
         out.println(AnsiColor.color("【 游戏操作 】", AnsiColor.YELLOW));
         out.println(AnsiColor.color("start         - 开始游戏", AnsiColor.CYAN));
-        out.println(AnsiColor.color("ai start      - 开始人机游戏", AnsiColor.CYAN));
+        out.println(AnsiColor.color("rule renju|free - 开局前切换连珠规则（黑棋禁手）或自由规则", AnsiColor.CYAN));
+        out.println(AnsiColor.color("ai start [难度] - 开始人机游戏（easy/medium/hard/expert，默认 medium）", AnsiColor.CYAN));
+        out.println(AnsiColor.color("ai move       - AI 计算繁忙时重新请求 AI 落子", AnsiColor.CYAN));
         out.println(AnsiColor.color("again         - 再来一局", AnsiColor.CYAN));
         out.println(AnsiColor.color("put X Y       - 落子", AnsiColor.CYAN));
         out.println(AnsiColor.color("【 系统 】", AnsiColor.YELLOW));
@@ -181,7 +247,13 @@ public class ClientHandler implements Runnable {
                 boolean success = room.addPlayer(player);
                 if (success) {
                     if (room.getPlayer1() == null || room.getPlayer2() == null) {
-                        out.println(AnsiColor.color("房间未满，等待其他玩家加入，或输入“ai start”开始人机对战", AnsiColor.YELLOW));
+                        // AI 预热结束前不提示人机对战
+                        AiComputePool aiPool = roomManager.getAiComputePool();
+                        if (aiPool != null && aiPool.isAiReady()) {
+                            out.println(AnsiColor.color("房间未满，等待其他玩家加入，或输入“ai start”开始人机对战", AnsiColor.YELLOW));
+                        } else {
+                            out.println(AnsiColor.color("房间未满，等待其他玩家加入", AnsiColor.YELLOW));
+                        }
                     }
                 } else {
                     out.println(AnsiColor.color("加入房间失败！房间已满", AnsiColor.RED));
@@ -293,6 +365,11 @@ public class ClientHandler implements Runnable {
                 opponent.sendMessage(AnsiColor.color("游戏结束！输入 leave 离开房间，或者输入 again 再来一局...", AnsiColor.BLUE));
             }
         }
+
+        // 9. 人机对战：把 AI 的搜索交给计算线程池，本线程立即返回继续处理该玩家的输入
+        if (currentRoom.isAiGame() && !currentRoom.isGameOver()) {
+            currentRoom.requestAiMove();
+        }
     }
 
 
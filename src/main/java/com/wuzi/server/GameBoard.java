@@ -1,5 +1,6 @@
 package com.wuzi.server;
 
+import com.wuzi.ai.RenjuRules;
 import com.wuzi.common.AnsiColor;
 
 public class GameBoard {
@@ -7,6 +8,9 @@ public class GameBoard {
     private int[][] board;
     private int lastX = -1;
     private int lastY = -1;
+    // 连珠规则：黑棋（1）不能下三三、四四、长连禁手；只在连珠规则下让 rules 与 board 逐手同步，供禁手判断使用
+    private boolean renju;
+    private final RenjuRules rules = new RenjuRules(BOARD_SIZE, BOARD_SIZE);
 
     public GameBoard() {
         reset();
@@ -16,6 +20,25 @@ public class GameBoard {
         board = new int[BOARD_SIZE][BOARD_SIZE];
         lastX = -1;
         lastY = -1;
+        if (renju) rules.clear();
+    }
+
+    // ===== 规则 =====
+    // 开关连珠规则（默认自由规则），对之后的落子生效；开启时按当前棋盘重建禁手判断用的线位图
+    public void setRenju(boolean renju) {
+        if (renju && !this.renju) rules.load(board);
+        this.renju = renju;
+    }
+
+    public boolean isRenju() {
+        return renju;
+    }
+
+    // color 落在 (x, y) 是否为禁手：只有连珠规则下的黑棋在空位上才可能是禁手，其余返回 NONE
+    public RenjuRules.Foul checkFoul(int x, int y, int color) {
+        if (!renju || color != RenjuRules.BLACK) return RenjuRules.Foul.NONE;
+        if (x < 0 || x >= BOARD_SIZE || y < 0 || y >= BOARD_SIZE || board[x][y] != 0) return RenjuRules.Foul.NONE;
+        return rules.checkFoul(x, y);
     }
 
     // ===== 坐标转换 =====
@@ -55,7 +78,10 @@ public class GameBoard {
         if (x < 0 || x >= BOARD_SIZE || y < 0 || y >= BOARD_SIZE) return false;
         //棋盘用二维数组board存储，数组中每个元素代表一个单元格状态：0表示该位置无棋子，1代表白棋，2代表蓝棋。落子前先检查目标坐标(x,y)对应的数组元素值
         if (board[x][y] != 0) return false;
+        //连珠规则下黑棋的禁手点不能落子
+        if (checkFoul(x, y, color) != RenjuRules.Foul.NONE) return false;
         board[x][y] = color;
+        if (renju && (color == 1 || color == 2)) rules.place(x, y, color);
         lastX = x;
         lastY = y;
         return true;
@@ -1,6 +1,11 @@
 package com.wuzi.server;
 
+import com.wuzi.ai.CancellationToken;
+import com.wuzi.ai.EngineSession;
+import com.wuzi.ai.GomokuAI;
+import com.wuzi.ai.RenjuRules;
 import com.wuzi.common.AnsiColor;
+import java.time.Duration;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class GameRoom {
@@ -23,6 +28,25 @@ public class GameRoom {
     private boolean player1WantsAgain = false;
     private boolean player2WantsAgain = false;
 
+    // 人机对战：AI 由服务端托管，搜索在 AiComputePool 上执行，不占用处理连接的线程
+    public static final Duration DEFAULT_AI_MOVE_BUDGET = Duration.ofSeconds(2);
+    public static final int DEFAULT_MAX_AI_SEARCHES = 1;
+    // 默认难度：节点预算决定每手 CPU 开销的上限，时间预算只作兜底
+    public static final GomokuAI.Difficulty DEFAULT_AI_DIFFICULTY = GomokuAI.Difficulty.MEDIUM;
+    private AiComputePool aiPool;
+    private GomokuAI ai;
+    // 与房间棋盘同步的 AI 会话：每步只把新落的棋子交给 AI，置换表等在各手之间保留
+    private EngineSession aiSession;
+    private boolean isAiGame = false;
+    private String aiColor;
+    private Duration aiMoveBudget = DEFAULT_AI_MOVE_BUDGET;
+    // 本房间同时提交（排队或执行中）的搜索数上限与当前值
+    private int maxAiSearches = DEFAULT_MAX_AI_SEARCHES;
+    private int aiSearches = 0;
+    // 每开一局或结束人机对战加一，之前提交的搜索结果作废；同一代的搜索共用一个取消令牌，作废时一并取消
+    private int aiGeneration = 0;
+    private CancellationToken aiToken = new CancellationToken();
+
     public GameRoom(int roomId) {
         this(roomId, false);
     }
@@ -43,7 +67,7 @@ public class GameRoom {
     //synchronized:GameRoom是多线程共享资源（两个玩家通过不同线程操作同一个房间，如同时加入、同时准备、交替落子），若不加锁，会出现数据不一致、逻辑混乱等问题（如并发加入导致房间人数超员、同时落子导致重复落子、回合切换异常）。
     public synchronized void lockRoom() { this.isLocked = true; }
     public synchronized void unlockRoom() { this.isLocked = false; }
-    public synchronized boolean canEnter() { return !isLocked && playerCount.get() < 2; }
+    public synchronized boolean canEnter() { return !isLocked && !isAiGame && playerCount.get() < 2; }
 
     public synchronized boolean addPlayer(Player player) {
         if (!canEnter()) {
@@ -107,6 +131,10 @@ public class GameRoom {
         isLocked = false;
         player1WantsAgain = false;
         player2WantsAgain = false;
+        board.setRenju(false);
+        isAiGame = false;
+        aiColor = null;
+        discardAiSearches();
         ServerLogger.info("房间[" + roomId + "]已逻辑销毁（重置）");
     }
 
@@ -129,6 +157,7 @@ public class GameRoom {
     public synchronized String makeMove(String p1, String p2, String color, Player player) {
         if (!isGameStarted) return AnsiColor.color("游戏未开始！", AnsiColor.RED);
         if (isGameOver) return AnsiColor.color("游戏已结束！", AnsiColor.RED);
+        if (isAiGame && currentTurnColor.equals(aiColor)) return AnsiColor.color("AI 正在思考，请稍候...", AnsiColor.RED);
         if (!currentTurnColor.equals(color)) return AnsiColor.color("非" + color + "回合！", AnsiColor.RED);
 
         int[] xy = GameBoard.coordToXY(p1 + p2);
@@ -136,9 +165,12 @@ public class GameRoom {
 
         int x = xy[0], y = xy[1];
         int colorCode = color.equals("black") ? 1 : 2;
+        RenjuRules.Foul foul = board.checkFoul(x, y, colorCode);
+        if (foul != RenjuRules.Foul.NONE) return AnsiColor.color("禁手（" + foulName(foul) + "）！黑棋不能落在该位置", AnsiColor.RED);
 
         boolean success = board.makeMove(x, y, colorCode);
         if (!success) return AnsiColor.color("落子失败！该位置已有棋子", AnsiColor.RED);
+        if (isAiGame) aiSession.applyMove(x, y, colorCode);
 
         if (board.checkWin(x, y)) {
             isGameOver = true;
@@ -150,8 +182,49 @@ public class GameRoom {
         return "落子成功！当前回合：" + currentTurnColor;
     }
 
+    private static String foulName(RenjuRules.Foul foul) {
+        switch (foul) {
+            case DOUBLE_THREE: return "三三";
+            case DOUBLE_FOUR: return "四四";
+            case OVERLINE: return "长连";
+            default: return "无";
+        }
+    }
+
+    // =================== 对局规则 ===================
+
+    /**
+     * 切换本房间的规则：renju 为 true 时按连珠规则（黑棋有三三、四四、长连禁手），否则为自由规则。
+     * 对局进行中不能切换；人机对战的 AI 也按同样的规则搜索。
+     */
+    public synchronized boolean setRenju(Player player, boolean renju) {
+        if (player != player1 && player != player2) {
+            player.sendMessage(AnsiColor.color("请先加入房间！", AnsiColor.RED));
+            return false;
+        }
+        if (isGameStarted && !isGameOver) {
+            player.sendMessage(AnsiColor.color("对局进行中，不能更改规则", AnsiColor.RED));
+            return false;
+        }
+        board.setRenju(renju);
+        if (ai != null) ai.setRenju(renju);
+        sendMessageToAll(AnsiColor.color("本房间规则：" + ruleName(), AnsiColor.BLUE));
+        ServerLogger.info("房间[" + roomId + "]规则改为" + ruleName());
+        return true;
+    }
+
+    public synchronized boolean isRenju() { return board.isRenju(); }
+
+    private String ruleName() {
+        return board.isRenju() ? "连珠（黑棋禁三三、四四、长连）" : "自由规则（五连及以上获胜）";
+    }
+
     // =================== 玩家准备 ===================
     public synchronized void playerReady(Player player) {
+        if (isAiGame) {
+            player.sendMessage(AnsiColor.color("人机对战进行中，直接落子即可", AnsiColor.YELLOW));
+            return;
+        }
         if (player == player1) player1Ready = true;
         else if (player == player2) player2Ready = true;
         else return;
@@ -180,6 +253,10 @@ public class GameRoom {
 
     // =================== 再来一局 ===================
     public synchronized void requestAgain(Player player) {
+        if (isAiGame) {
+            if (player == humanPlayer()) startAiRound();
+            return;
+        }
         if (player == player1) player1WantsAgain = true;
         else if (player == player2) player2WantsAgain = true;
         else return;
@@ -212,6 +289,157 @@ public class GameRoom {
         sendMessageToAll(AnsiColor.color("新的一局已开始，请开始落子！", AnsiColor.BLUE));
     }
 
+    // =================== 人机对战 ===================
+
+    /**
+     * 房间中唯一的玩家开启人机对战（默认难度）：玩家执黑，AI 执白，对局期间房间不接受其他玩家加入
+     */
+    public synchronized boolean startAiGame(Player player) {
+        return startAiGame(player, DEFAULT_AI_DIFFICULTY);
+    }
+
+    public synchronized boolean startAiGame(Player player, GomokuAI.Difficulty difficulty) {
+        if (player != player1 && player != player2) {
+            player.sendMessage(AnsiColor.color("请先加入房间！", AnsiColor.RED));
+            return false;
+        }
+        if (playerCount.get() >= 2) {
+            player.sendMessage(AnsiColor.color("房间已有人，无法开启 AI 对战，请退出房间或等待空闲房间", AnsiColor.RED));
+            return false;
+        }
+        if (aiPool == null) {
+            player.sendMessage(AnsiColor.color("服务器未启用 AI 对战", AnsiColor.RED));
+            return false;
+        }
+        if (!aiPool.isAiReady()) {
+            player.sendMessage(AnsiColor.color("AI 正在预热，请稍后再试", AnsiColor.YELLOW));
+            return false;
+        }
+        if (ai == null) {
+            ai = new GomokuAI();
+            // 单线程搜索：计算量只占计算线程池中的一个线程
+            ai.setThreads(1);
+            int[][] cells = board.getBoard();
+            aiSession = ai.newSession(cells.length, cells[0].length);
+        }
+        ai.setDifficulty(difficulty);
+        ai.setRenju(board.isRenju());
+        isAiGame = true;
+        isLocked = true;
+        player.setColor("black");
+        aiColor = "white";
+        startAiRound();
+        ServerLogger.success("房间[" + roomId + "]开启人机对战（" + difficulty + "），玩家：" + player.getName());
+        return true;
+    }
+
+    private void startAiRound() {
+        discardAiSearches();
+        board.reset();
+        aiSession.reset();
+        isGameStarted = true;
+        isGameOver = false;
+        currentTurnColor = "black";
+        sendMessageToAll(board.toString());
+        sendMessageToAll(AnsiColor.color("AI 对战模式已开启，你执黑(●)，AI执白(○)，请先落子", AnsiColor.CYAN));
+    }
+
+    /**
+     * 作废已提交的搜索：结果不再写回，正在执行的搜索被取消、立即让出计算线程，排队中的搜索不再执行
+     */
+    private void discardAiSearches() {
+        aiGeneration++;
+        aiToken.cancel();
+        aiToken = new CancellationToken();
+    }
+
+    /**
+     * 轮到 AI 时把搜索提交到计算线程池，结果由计算线程回写棋盘并通知玩家。
+     * 本房间已有搜索在排队或执行，或线程池队列已满时不提交，返回 false。
+     */
+    public synchronized boolean requestAiMove() {
+        if (!isAiGame || !isGameStarted || isGameOver || !currentTurnColor.equals(aiColor)) return false;
+        Player human = humanPlayer();
+        if (human == null) return false;
+        if (aiSearches >= maxAiSearches) {
+            human.sendMessage(AnsiColor.color("AI 正在思考，请稍候...", AnsiColor.YELLOW));
+            return false;
+        }
+
+        EngineSession session = aiSession;
+        int colorCode = aiColor.equals("black") ? 1 : 2;
+        Duration budget = aiMoveBudget;
+        int generation = aiGeneration;
+        CancellationToken token = aiToken;
+
+        aiSearches++;
+        if (!aiPool.submit(() -> runAiSearch(session, colorCode, budget, generation, token))) {
+            aiSearches--;
+            human.sendMessage(AnsiColor.color("服务器 AI 计算繁忙，请稍后输入 ai move 重试", AnsiColor.RED));
+            ServerLogger.warn("房间[" + roomId + "]AI 搜索被拒绝：计算队列已满");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 在计算线程上执行：搜索时不持有房间锁，完成后再加锁回写。
+     * 搜索的是会话中的局面；轮到 AI 时玩家不能落子，期间会话只会被作废本次搜索的操作（离开、再来一局）修改。
+     */
+    private void runAiSearch(EngineSession session, int colorCode, Duration budget, int generation,
+                             CancellationToken token) {
+        int[] move = null;
+        try {
+            if (token.isCancelled()) return;
+            move = session.getNextStep(colorCode, budget, token);
+            if (token.isCancelled()) {
+                ServerLogger.info("房间[" + roomId + "]AI 搜索已取消");
+                return;
+            }
+            ServerLogger.info("房间[" + roomId + "]AI 搜索：" + session.getEngine().getLastSearchStats());
+        } catch (RuntimeException e) {
+            ServerLogger.error("房间[" + roomId + "]AI 搜索失败", e);
+        } finally {
+            applyAiMove(move, colorCode, generation);
+        }
+    }
+
+    private synchronized void applyAiMove(int[] move, int colorCode, int generation) {
+        aiSearches--;
+        if (generation != aiGeneration || !isAiGame || isGameOver) return;
+        Player human = humanPlayer();
+        if (human == null) return;
+
+        if (move == null || move[0] < 0 || !board.makeMove(move[0], move[1], colorCode)) {
+            isGameOver = true;
+            human.sendMessage(AnsiColor.color("AI 无法落子，本局结束", AnsiColor.YELLOW));
+            human.sendMessage(AnsiColor.color("游戏结束！输入 leave 离开房间，或者输入 again 再来一局...", AnsiColor.BLUE));
+            return;
+        }
+        aiSession.applyMove(move[0], move[1], colorCode);
+
+        StringBuilder output = new StringBuilder();
+        output.append("\u001B[2J"); // 清屏
+        output.append("\u001B[H");
+        output.append(board.toString());
+        human.sendMessage(output.toString());
+
+        String coord = GameBoard.xyToCoord(move[0], move[1]);
+        if (board.checkWin(move[0], move[1])) {
+            isGameOver = true;
+            human.sendMessage(AnsiColor.color("AI 落子 " + coord + "，AI 获胜！", AnsiColor.GREEN));
+            human.sendMessage(AnsiColor.color("游戏结束！输入 leave 离开房间，或者输入 again 再来一局...", AnsiColor.BLUE));
+            ServerLogger.success("房间[" + roomId + "]人机对战结束，AI 获胜");
+            return;
+        }
+        currentTurnColor = human.getColor();
+        human.sendMessage(AnsiColor.color("AI 落子 " + coord + "，轮到你下棋了", AnsiColor.CYAN));
+    }
+
+    private Player humanPlayer() {
+        return player1 != null ? player1 : player2;
+    }
+
     private void sendMessageToAll(String msg) {
         if (player1 != null) player1.sendMessage(msg);
         if (player2 != null && !isTestMode) player2.sendMessage(msg);
@@ -229,4 +457,16 @@ public class GameRoom {
     public boolean isTestMode() { return isTestMode; }
     public void setTestMode(boolean testMode) { this.isTestMode = testMode; }
     public boolean isLocked() { return isLocked; }
+    public synchronized boolean isAiGame() { return isAiGame; }
+    public synchronized String getAiColor() { return aiColor; }
+    public synchronized int getAiSearchCount() { return aiSearches; }
+    public synchronized void setAiComputePool(AiComputePool aiPool) { this.aiPool = aiPool; }
+    public synchronized void setAiMoveBudget(Duration budget) {
+        if (budget == null || budget.isNegative()) throw new IllegalArgumentException("时间预算不能为空或负数: " + budget);
+        this.aiMoveBudget = budget;
+    }
+    public synchronized void setMaxAiSearches(int max) {
+        if (max < 1) throw new IllegalArgumentException("每个房间的搜索数上限必须至少为 1: " + max);
+        this.maxAiSearches = max;
+    }
 }
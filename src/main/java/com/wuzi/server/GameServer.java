@@ -1,5 +1,7 @@
 package com.wuzi.server;
 
+import com.wuzi.ai.AiWarmup;
+
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.io.IOException;
@@ -10,11 +12,24 @@ public class GameServer {
     private ServerSocket serverSocket;
     private RoomManager roomManager;
     private ExecutorService threadPool;
+    // AI 搜索专用的计算线程池，与处理连接的 threadPool 分开
+    private AiComputePool aiPool;
 
     public GameServer(int port) {
+        this(port, true);
+    }
+
+    /**
+     * @param warmUp 是否在启动时预热 AI（预热期间可以连接和联机对战，人机对战在预热结束后开放）
+     */
+    public GameServer(int port, boolean warmUp) {
         try {
             serverSocket = new ServerSocket(port);
-            roomManager = new RoomManager();
+            aiPool = new AiComputePool();
+            if (warmUp) {
+                aiPool.startWarmup(new AiWarmup(), w -> ServerLogger.success("AI 预热完成，人机对战已开放（" + w + "）"));
+            }
+            roomManager = new RoomManager(aiPool);
             threadPool = Executors.newFixedThreadPool(20);
             ServerLogger.success("五子棋服务端启动成功，监听端口：" + port);
 
@@ -27,11 +42,16 @@ public class GameServer {
             if (threadPool != null) {
                 threadPool.shutdown();
             }
+            if (aiPool != null) {
+                aiPool.shutdown();
+            }
         }
     }
 
     public static void main(String[] args) {
-        new GameServer(8888);
+        // --no-warmup 跳过 AI 预热，启动后立即开放人机对战
+        boolean warmUp = args.length == 0 || !args[0].equals("--no-warmup");
+        new GameServer(8888, warmUp);
     }
 
     public void shutdown() {
@@ -43,5 +63,8 @@ public class GameServer {
         if (threadPool != null) {
             threadPool.shutdown();
         }
+        if (aiPool != null) {
+            aiPool.shutdown();
+        }
     }
 }
\ No newline at end of file
@@ -11,8 +11,15 @@ public class RoomManager {
     private final Map<Integer, GameRoom> roomMap;
     // 使用 AtomicInteger 保证多线程下 ID 不重复
     private final AtomicInteger idGenerator;
+    // 各房间人机对战共用的计算线程池
+    private final AiComputePool aiPool;
 
     public RoomManager() {
+        this(new AiComputePool());
+    }
+
+    public RoomManager(AiComputePool aiPool) {
+        this.aiPool = aiPool;
         //核心原因是ConcurrentHashMap的特性更适配“房间ID与房间实例绑定管理”的需求
         //销毁房间时，HashMap可通过ID直接删除对应元素，效率高；ArrayList删除元素时会导致后续元素移位，效率较低，且删除后若依赖索引对应ID，会出现关联错乱。
         this.roomMap = new ConcurrentHashMap<>();
@@ -32,6 +39,7 @@ public class RoomManager {
         //getAndIncrement()方法能保证原子性自增，即多线程同时创建房间时，不会出现ID重复的情况，确保每个房间有唯一标识，避免房间管理混乱。
         int id = idGenerator.getAndIncrement();
         GameRoom room = new GameRoom(id);
+        room.setAiComputePool(aiPool);
         //此处roomMap.put(id, room)是HashMap的核心方法，作用是将生成的房间ID与房间实例绑定，存入线程安全的映射集合中，完成房间的注册管理
         roomMap.put(id, room);
         ServerLogger.info("房间 " + id + " 已创建");
@@ -78,6 +86,10 @@ public class RoomManager {
         return roomMap.get(roomId);
     }
 
+    public AiComputePool getAiComputePool() {
+        return aiPool;
+    }
+
     public Collection<GameRoom> getAllRooms() {
         return roomMap.values();
     }
@@ -92,9 +104,10 @@ public class RoomManager {
         for (GameRoom room : roomMap.values()) {
             int roomId = room.getRoomId();
             int count = room.getPlayerCount();
-            String status = (count < 2) ?
-                    AnsiColor.color("有空位", AnsiColor.GREEN) :
-                    AnsiColor.color("已满", AnsiColor.RED);
+            String status;
+            if (room.isAiGame()) status = AnsiColor.color("人机对战中", AnsiColor.YELLOW);
+            else if (count < 2) status = AnsiColor.color("有空位", AnsiColor.GREEN);
+            else status = AnsiColor.color("已满", AnsiColor.RED);
 
             sb.append("[").append(roomId).append("] ")
                     .append(status).append(" (")
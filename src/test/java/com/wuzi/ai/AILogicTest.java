@@ -4,8 +4,12 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -249,5 +253,453 @@ class AILogicTest {
                     "AI不应返回已占据的位置");
         }
     }
-}
 
+    @ParameterizedTest(name = "{0}")
+    @EnumSource(GomokuAI.SearchAlgorithm.class)
+    @DisplayName("参数化测试：置换表跨调用复用")
+    void testTranspositionTableReuse(GomokuAI.SearchAlgorithm algorithm) {
+        int[][] board = new int[BOARD_SIZE][BOARD_SIZE];
+        board[7][7] = PLAYER_COLOR;
+        board[7][8] = AI_COLOR;
+        board[8][8] = PLAYER_COLOR;
+        gomokuAI.setSearchAlgorithm(algorithm);
+
+        int[] first = gomokuAI.getNextStep(board, AI_COLOR);
+        long firstNodes = gomokuAI.getLastNodeCount();
+        gomokuAI.resetTranspositionStats();
+        int[] second = gomokuAI.getNextStep(board, AI_COLOR);
+
+        // PVS 的削减与期望窗口会利用表中更深的结果，落子可能不同；全窗口 Minimax 不会
+        if (algorithm == GomokuAI.SearchAlgorithm.MINIMAX) {
+            assertArrayEquals(first, second, "同一局面重复搜索应得到相同落子");
+        }
+        assertEquals(0, board[second[0]][second[1]], "AI应返回空位");
+        assertTrue(gomokuAI.getTranspositionHitRate() > 0.0, "第二次搜索应命中置换表");
+        assertTrue(gomokuAI.getLastNodeCount() < firstNodes, "命中置换表后节点数应减少");
+    }
+
+    @Test
+    @DisplayName("时间预算模式：迭代加深在截止前返回合法落子")
+    void testTimeBudgetSearch() {
+        int[][] board = new int[BOARD_SIZE][BOARD_SIZE];
+        board[7][7] = PLAYER_COLOR;
+        board[7][8] = AI_COLOR;
+        board[8][7] = PLAYER_COLOR;
+        board[6][6] = AI_COLOR;
+
+        long start = System.nanoTime();
+        int[] move = gomokuAI.getNextStep(board, AI_COLOR, Duration.ofMillis(300));
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(0, board[move[0]][move[1]], "AI应返回空位");
+        assertTrue(elapsedMs < 1500, "搜索应在预算附近结束，实际耗时(ms):" + elapsedMs);
+        assertTrue(gomokuAI.getLastCompletedDepth() >= 1, "至少应完成一层搜索");
+    }
+
+    @Test
+    @DisplayName("时间预算为零时仍返回启发式最佳候选")
+    void testZeroTimeBudget() {
+        int[][] board = new int[BOARD_SIZE][BOARD_SIZE];
+        board[7][4] = PLAYER_COLOR;
+        board[7][5] = PLAYER_COLOR;
+        board[7][6] = PLAYER_COLOR;
+        board[7][7] = PLAYER_COLOR;
+
+        int[] move = gomokuAI.getNextStep(board, AI_COLOR, Duration.ZERO);
+
+        assertNotNull(move);
+        assertEquals(0, board[move[0]][move[1]], "AI应返回空位");
+        assertThrows(IllegalArgumentException.class,
+                () -> gomokuAI.getNextStep(board, AI_COLOR, Duration.ofMillis(-1)));
+    }
+
+    @Test
+    @DisplayName("并行搜索返回合法落子且不修改棋盘")
+    void testParallelSearch() {
+        int[][] board = new int[BOARD_SIZE][BOARD_SIZE];
+        board[7][7] = PLAYER_COLOR;
+        board[7][8] = AI_COLOR;
+        board[8][7] = PLAYER_COLOR;
+        board[6][7] = PLAYER_COLOR;
+
+        GomokuAI parallel = new GomokuAI();
+        parallel.setThreads(3);
+        try {
+            int[] move = parallel.getNextStep(board, AI_COLOR);
+            assertEquals(0, board[move[0]][move[1]], "并行搜索应返回空位");
+            assertEquals(PLAYER_COLOR, board[7][7], "并行搜索不应修改输入棋盘");
+            assertEquals(4, parallel.getLastCompletedDepth(), "主线程应完成固定深度");
+        } finally {
+            parallel.shutdown();
+        }
+        assertThrows(IllegalArgumentException.class, () -> parallel.setThreads(0));
+    }
+
+    @Test
+    @DisplayName("单线程搜索结果确定")
+    void testSingleThreadDeterministic() {
+        int[][] board = new int[BOARD_SIZE][BOARD_SIZE];
+        board[7][7] = PLAYER_COLOR;
+        board[8][8] = AI_COLOR;
+        board[6][8] = PLAYER_COLOR;
+
+        int[] first = new GomokuAI().getNextStep(board, AI_COLOR);
+        int[] second = new GomokuAI().getNextStep(board, AI_COLOR);
+
+        assertEquals(1, gomokuAI.getThreads(), "默认应为单线程");
+        assertArrayEquals(first, second, "单线程搜索在相同局面下应返回相同落子");
+    }
+
+    @Test
+    @DisplayName("复用的实例在不同局面间切换后结果与新实例一致")
+    void testReusedInstanceMatchesFresh() {
+        int[][] a = new int[BOARD_SIZE][BOARD_SIZE];
+        a[7][7] = PLAYER_COLOR;
+        a[7][8] = AI_COLOR;
+        a[8][7] = PLAYER_COLOR;
+        int[][] b = new int[BOARD_SIZE][BOARD_SIZE];
+        b[3][3] = AI_COLOR;
+        b[4][4] = PLAYER_COLOR;
+        b[5][5] = PLAYER_COLOR;
+        b[6][6] = PLAYER_COLOR;
+
+        gomokuAI.getNextStep(a, AI_COLOR);
+        gomokuAI.clearTranspositionTable();
+        int[] reused = gomokuAI.getNextStep(b, AI_COLOR);
+        int[] fresh = new GomokuAI().getNextStep(b, AI_COLOR);
+
+        assertArrayEquals(fresh, reused, "同步后的位棋盘应与重新构造的一致");
+    }
+
+    @Test
+    @DisplayName("单线程搜索稳态下不产生堆分配")
+    void testSearchAllocationFree() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) return; // 当前 JVM 不支持按线程统计分配
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        if (!threadBean.isThreadAllocatedMemorySupported()) return;
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        int[][] board = new int[BOARD_SIZE][BOARD_SIZE];
+        board[7][7] = PLAYER_COLOR;
+        board[8][8] = AI_COLOR;
+        board[6][8] = PLAYER_COLOR;
+        board[7][9] = AI_COLOR;
+
+        // 预热：创建复用的位棋盘与缓冲区，并让 JIT 编译热点方法
+        for (int i = 0; i < 5; i++) {
+            gomokuAI.clearTranspositionTable();
+            gomokuAI.getNextStep(board, AI_COLOR);
+        }
+
+        int runs = 5;
+        long nodes = 0;
+        long before = threadBean.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < runs; i++) {
+            gomokuAI.clearTranspositionTable();
+            gomokuAI.getNextStep(board, AI_COLOR);
+            nodes += gomokuAI.getLastNodeCount();
+        }
+        long perSearch = (threadBean.getCurrentThreadAllocatedBytes() - before) / runs;
+
+        assertTrue(nodes / runs > 1000, "搜索节点数过少，测试无意义");
+        // 只允许返回坐标数组等常数级分配，与节点数无关
+        assertTrue(perSearch < 1024, "每次搜索分配了 " + perSearch + " 字节");
+    }
+
+    @Test
+    @DisplayName("杀手着法与历史表减少 Minimax 在固定局面集上的节点数")
+    void testOrderingHeuristicsSaveNodes() {
+        OrderingBenchmark.Result result = OrderingBenchmark.measure(
+                ParallelBenchmark.samplePositions(8, 20240501L), AI_COLOR, 4, GomokuAI.SearchAlgorithm.MINIMAX);
+
+        assertEquals(8, result.sameMoves, "该局面集上落子应与静态排序一致");
+        assertTrue(result.orderedNodes <= result.baselineNodes,
+                "节点数不应增加: " + result.baselineNodes + " -> " + result.orderedNodes);
+        assertTrue(result.orderedFirstCutoffRate > 0 && result.orderedFirstCutoffRate <= 1);
+    }
+
+    @Test
+    @DisplayName("后台思考命中预判应手时直接返回与重新搜索相同的应对")
+    void testPonderHit() throws InterruptedException {
+        gomokuAI.setSearchAlgorithm(GomokuAI.SearchAlgorithm.MINIMAX);
+        int[][] board = new int[BOARD_SIZE][BOARD_SIZE];
+        board[7][7] = PLAYER_COLOR;
+        int[] first = gomokuAI.getNextStep(board, AI_COLOR);
+        board[first[0]][first[1]] = AI_COLOR;
+
+        gomokuAI.startPondering(board, AI_COLOR);
+        long waitUntil = System.nanoTime() + 30_000_000_000L;
+        while (gomokuAI.isPondering() && System.nanoTime() < waitUntil) Thread.sleep(10);
+        assertFalse(gomokuAI.isPondering(), "后台思考应在有限时间内完成");
+
+        int[] replies = gomokuAI.ponderedReplies();
+        assertEquals(GomokuAI.DEFAULT_PONDER_REPLIES, replies.length);
+        board[replies[0] / BOARD_SIZE][replies[0] % BOARD_SIZE] = PLAYER_COLOR;
+        int[] pondered = gomokuAI.getNextStep(board, AI_COLOR);
+        assertTrue(gomokuAI.isLastMovePondered(), "对手走了预判的应手，应直接使用算好的应对");
+        assertTrue(gomokuAI.getLastNodeCount() > 0, "命中时应恢复当时的搜索统计");
+
+        GomokuAI fresh = new GomokuAI();
+        fresh.setSearchAlgorithm(GomokuAI.SearchAlgorithm.MINIMAX);
+        assertArrayEquals(fresh.getNextStep(board, AI_COLOR), pondered);
+    }
+
+    @Test
+    @DisplayName("对手走了预判之外的棋时及时取消后台思考并正常搜索")
+    void testPonderMissAndCancel() {
+        gomokuAI.setMaxDepth(8);
+        int[][] board = new int[BOARD_SIZE][BOARD_SIZE];
+        board[7][7] = PLAYER_COLOR;
+        board[8][8] = AI_COLOR;
+        board[6][8] = PLAYER_COLOR;
+        board[7][9] = AI_COLOR;
+        gomokuAI.startPondering(board, AI_COLOR);
+        assertTrue(gomokuAI.isPondering());
+
+        long start = System.nanoTime();
+        gomokuAI.stopPondering();
+        assertTrue(System.nanoTime() - start < 2_000_000_000L, "取消后台思考应很快返回");
+        assertFalse(gomokuAI.isPondering());
+        gomokuAI.stopPondering(); // 重复调用无副作用
+
+        gomokuAI.setMaxDepth(3);
+        gomokuAI.startPondering(board, AI_COLOR);
+        board[0][0] = PLAYER_COLOR; // 远离战场，不在候选范围内
+        int[] move = gomokuAI.getNextStep(board, AI_COLOR);
+        assertFalse(gomokuAI.isLastMovePondered());
+        assertFalse(gomokuAI.isPondering());
+        assertEquals(0, board[move[0]][move[1]], "AI返回的位置应该是空位");
+        gomokuAI.shutdown();
+    }
+
+    @Test
+    @DisplayName("搜索统计与返回的落子、节点数一致")
+    void testSearchStats() {
+        gomokuAI.setSearchAlgorithm(GomokuAI.SearchAlgorithm.MINIMAX);
+        int[][] board = new int[BOARD_SIZE][BOARD_SIZE];
+        board[7][7] = PLAYER_COLOR;
+        board[8][8] = AI_COLOR;
+        board[6][8] = PLAYER_COLOR;
+        board[7][9] = AI_COLOR;
+        int[] move = gomokuAI.getNextStep(board, AI_COLOR);
+        SearchStats stats = gomokuAI.getLastSearchStats();
+
+        assertEquals(gomokuAI.getLastNodeCount(), stats.nodes);
+        assertEquals(gomokuAI.getLastCompletedDepth(), stats.completedDepth);
+        assertEquals(gomokuAI.getMaxDepth(), stats.maxDepth, "固定深度 Minimax 应到达设定深度");
+        assertTrue(stats.leafEvaluations > 0 && stats.leafEvaluations < stats.nodes);
+        assertTrue(stats.ttHits <= stats.ttProbes && stats.ttProbes > 0);
+        assertTrue(stats.elapsedNanos > 0);
+
+        long sum = 0;
+        for (int i = 0; i < stats.getCutoffBuckets(); i++) sum += stats.getCutoffsAtMoveIndex(i);
+        assertEquals(stats.cutoffs, sum, "按序号的剪枝次数之和应等于剪枝总数");
+        assertEquals(gomokuAI.getLastFirstMoveCutoffRate(), stats.firstMoveCutoffRate(), 1e-12);
+
+        int[][] pv = stats.getPrincipalVariation();
+        assertTrue(pv.length >= 1 && pv.length <= stats.completedDepth);
+        assertArrayEquals(move, pv[0], "主变例应从返回的落子开始");
+        int[][] copy = new int[BOARD_SIZE][];
+        for (int i = 0; i < BOARD_SIZE; i++) copy[i] = board[i].clone();
+        for (int i = 0; i < pv.length; i++) {
+            assertEquals(0, copy[pv[i][0]][pv[i][1]], "主变例中的着法应落在空位");
+            copy[pv[i][0]][pv[i][1]] = i % 2 == 0 ? AI_COLOR : PLAYER_COLOR;
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(GomokuAI.Difficulty.class)
+    @DisplayName("难度等级的节点预算是每手节点数的硬上限")
+    void testDifficultyNodeBudget(GomokuAI.Difficulty difficulty) {
+        gomokuAI.setDifficulty(difficulty);
+        gomokuAI.setRandomSeed(1);
+        for (int[][] board : ParallelBenchmark.samplePositions(6, 7L)) {
+            int[] move = gomokuAI.getNextStep(board, AI_COLOR);
+            assertEquals(0, board[move[0]][move[1]], "AI返回的位置应该是空位");
+            assertTrue(gomokuAI.getLastNodeCount() <= difficulty.nodeBudget + 16,
+                    difficulty + " 节点数 " + gomokuAI.getLastNodeCount() + " 超出预算");
+        }
+    }
+
+    @Test
+    @DisplayName("简单难度在近似最佳的着法中随机选择，但不放过必胜")
+    void testEasyRandomization() {
+        int[][] board = new int[BOARD_SIZE][BOARD_SIZE];
+        board[7][7] = PLAYER_COLOR;
+        board[8][8] = AI_COLOR;
+        board[6][8] = PLAYER_COLOR;
+        java.util.Set<Integer> moves = new java.util.HashSet<>();
+        for (long seed = 0; seed < 12; seed++) {
+            GomokuAI ai = new GomokuAI();
+            ai.setDifficulty(GomokuAI.Difficulty.EASY);
+            ai.setRandomSeed(seed);
+            int[] move = ai.getNextStep(board, AI_COLOR);
+            assertEquals(0, board[move[0]][move[1]]);
+            moves.add(move[0] * BOARD_SIZE + move[1]);
+        }
+        assertTrue(moves.size() > 1, "不同种子应选出不同的着法");
+
+        board[3][3] = AI_COLOR;
+        board[3][4] = AI_COLOR;
+        board[3][5] = AI_COLOR;
+        board[3][6] = AI_COLOR;
+        for (long seed = 0; seed < 5; seed++) {
+            GomokuAI ai = new GomokuAI();
+            ai.setDifficulty(GomokuAI.Difficulty.EASY);
+            ai.setRandomSeed(seed);
+            int[] move = ai.getNextStep(board, AI_COLOR);
+            assertTrue((move[0] == 3 && move[1] == 7) || (move[0] == 3 && move[1] == 2), "有成五点时必须成五");
+        }
+    }
+
+    private int[][] midgameBoard() {
+        int[][] board = new int[BOARD_SIZE][BOARD_SIZE];
+        board[7][7] = PLAYER_COLOR;
+        board[8][8] = AI_COLOR;
+        board[6][8] = PLAYER_COLOR;
+        board[7][9] = AI_COLOR;
+        board[6][6] = PLAYER_COLOR;
+        return board;
+    }
+
+    @Test
+    @DisplayName("取消令牌让进行中的搜索及时退出")
+    void testCancelSearch() throws InterruptedException {
+        int[][] board = midgameBoard();
+        CancellationToken token = new CancellationToken();
+        int[][] result = new int[1][];
+        long[] finished = new long[1];
+        Thread searcher = new Thread(() -> {
+            result[0] = gomokuAI.getNextStep(board, AI_COLOR, Duration.ofSeconds(30), token);
+            finished[0] = System.nanoTime();
+        });
+        searcher.start();
+        Thread.sleep(200);
+        long cancelled = System.nanoTime();
+        token.cancel();
+        searcher.join(5000);
+
+        assertFalse(searcher.isAlive(), "取消后搜索应退出");
+        assertTrue(finished[0] - cancelled < 200_000_000L, "取消后应很快退出，实际 " + (finished[0] - cancelled) / 1e6 + " ms");
+        assertArrayEquals(new int[]{-1, -1}, result[0], "被取消的搜索返回 {-1, -1}");
+
+        // 已取消的令牌不影响之后的普通搜索
+        int[] move = gomokuAI.getNextStep(board, AI_COLOR, Duration.ofMillis(100));
+        assertEquals(0, board[move[0]][move[1]], "AI返回的位置应该是空位");
+    }
+
+    @Test
+    @DisplayName("分片搜索可与其他搜索交替执行，最终搜满设定深度")
+    void testSlicedSearchInterleaved() {
+        gomokuAI.setMaxDepth(4);
+        GomokuAI other = new GomokuAI();
+        other.setMaxDepth(4);
+        int[][] board = midgameBoard();
+        int[][] otherBoard = ParallelBenchmark.samplePositions(1, 7L).get(0);
+
+        SearchTask a = gomokuAI.newSearchTask(board, AI_COLOR, null);
+        SearchTask b = other.newSearchTask(otherBoard, AI_COLOR, null);
+        board[0][0] = PLAYER_COLOR; // 任务持有棋盘副本，之后修改不影响它
+        boolean doneA = false, doneB = false;
+        while (!doneA || !doneB) {
+            if (!doneA) doneA = a.runSlice(Duration.ofMillis(1));
+            if (!doneB) doneB = b.runSlice(Duration.ofMillis(1));
+        }
+
+        for (SearchTask task : new SearchTask[]{a, b}) {
+            assertTrue(task.isDone());
+            assertEquals(4, task.getCompletedDepth(), "应搜满固定深度");
+            assertTrue(task.getSliceCount() > 1, "1 毫秒的切片不足以一次搜完");
+            assertTrue(task.getNodeCount() > 0);
+        }
+        int[] move = a.getResult();
+        assertEquals(0, board[move[0]][move[1]], "AI返回的位置应该是空位");
+        move = b.getResult();
+        assertEquals(0, otherBoard[move[0]][move[1]], "AI返回的位置应该是空位");
+        assertEquals(0, gomokuAI.getLastNodeCount(), "分片搜索不覆盖 getNextStep 的统计");
+    }
+
+    @Test
+    @DisplayName("暂停让当前切片及时返回并保留进度，取消后任务结束")
+    void testSlicePauseAndCancel() throws InterruptedException {
+        SearchTask task = gomokuAI.newSearchTask(midgameBoard(), AI_COLOR, Duration.ofSeconds(30));
+        boolean[] done = new boolean[1];
+        long[] finished = new long[1];
+        Thread runner = new Thread(() -> {
+            done[0] = task.runSlice(Duration.ofSeconds(20));
+            finished[0] = System.nanoTime();
+        });
+        runner.start();
+        Thread.sleep(300);
+        long paused = System.nanoTime();
+        task.pause();
+        runner.join(5000);
+
+        assertFalse(runner.isAlive());
+        assertTrue(finished[0] - paused < 200_000_000L, "暂停后切片应很快返回，实际 " + (finished[0] - paused) / 1e6 + " ms");
+        assertFalse(done[0]);
+        assertFalse(task.isDone(), "暂停不结束任务");
+        int depth = task.getCompletedDepth();
+        assertTrue(depth >= 1);
+        assertTrue(task.getElapsedNanos() < 1_000_000_000L, "暂停期间不计入预算");
+
+        assertFalse(task.runSlice(Duration.ofMillis(100)), "继续执行");
+        assertTrue(task.getCompletedDepth() >= depth, "继续执行不丢失已完成的深度");
+        assertNotEquals(-1, task.getResult()[0]);
+
+        task.cancel();
+        assertTrue(task.runSlice(Duration.ofMillis(100)));
+        assertTrue(task.isDone() && task.isCancelled());
+        assertArrayEquals(new int[]{-1, -1}, task.getResult());
+    }
+
+    @ParameterizedTest
+    @EnumSource(GomokuAI.SearchAlgorithm.class)
+    @DisplayName("参数化测试：局面分析一次搜索给出按分数排序的前几名，与逐个精确打分的结果一致")
+    void testAnalyzeMultiPv(GomokuAI.SearchAlgorithm algorithm) {
+        int[][] board = midgameBoard();
+        GomokuAI ai = new GomokuAI();
+        ai.setSearchAlgorithm(algorithm);
+        AnalysisLine[] lines = ai.analyze(board, AI_COLOR, 3);
+        assertEquals(3, lines.length);
+
+        GomokuAI reference = new GomokuAI();
+        reference.setSearchAlgorithm(algorithm);
+        reference.setThreatSearchEnabled(false);
+        assertArrayEquals(reference.getNextStep(board, AI_COLOR), new int[]{lines[0].row, lines[0].col},
+                "第一条应与同深度的 getNextStep 一致");
+
+        // 每个根着法都精确打分时的前三名分数
+        GomokuAI exhaustive = new GomokuAI();
+        exhaustive.setSearchAlgorithm(algorithm);
+        AnalysisLine[] all = exhaustive.analyze(board, AI_COLOR, Integer.MAX_VALUE);
+        assertTrue(all.length > 3);
+        java.util.Set<Integer> cells = new java.util.HashSet<>();
+        for (int i = 0; i < lines.length; i++) {
+            AnalysisLine line = lines[i];
+            assertEquals(0, board[line.row][line.col]);
+            assertTrue(cells.add(line.row * BOARD_SIZE + line.col), "着法不应重复");
+            if (i > 0) assertTrue(lines[i - 1].score >= line.score, "应按分数从高到低排列");
+            int[][] pv = line.getPrincipalVariation();
+            assertTrue(pv.length >= 1);
+            assertArrayEquals(new int[]{line.row, line.col}, pv[0], "主变例从该着法开始");
+        }
+        for (int i = 0; i < lines.length; i++) assertEquals(all[i].score, lines[i].score, "第 " + (i + 1) + " 名分数");
+    }
+
+    @Test
+    @DisplayName("局面分析的边界情况")
+    void testAnalyzeEdgeCases() {
+        GomokuAI ai = new GomokuAI();
+        assertThrows(IllegalArgumentException.class, () -> ai.analyze(new int[BOARD_SIZE][BOARD_SIZE], AI_COLOR, 0));
+        AnalysisLine[] empty = ai.analyze(new int[BOARD_SIZE][BOARD_SIZE], AI_COLOR, 3);
+        assertEquals(1, empty.length, "空棋盘只给出中心");
+        assertEquals(BOARD_SIZE / 2, empty[0].row);
+
+        AnalysisLine[] timed = ai.analyze(midgameBoard(), AI_COLOR, 2, Duration.ofMillis(200));
+        assertEquals(2, timed.length);
+        assertTrue(ai.getLastCompletedDepth() >= 1);
+        assertTrue(timed[0].score >= timed[1].score);
+    }
+}
@@ -0,0 +1,165 @@
+package com.wuzi.ai;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * BitBoardTest - 位棋盘基础运算测试
+ * 验证线位图的落子/撤子、连子计数以及成五判断与逐格扫描结果一致
+ */
+@DisplayName("位棋盘测试")
+class BitBoardTest {
+
+    private static final int BOARD_SIZE = 15;
+    private BitBoard bb;
+
+    @BeforeEach
+    void setUp() {
+        bb = new BitBoard(BOARD_SIZE, BOARD_SIZE);
+    }
+
+    @Test
+    @DisplayName("落子与撤子同步更新格子与计数")
+    void testPlaceAndRemove() {
+        int cell = bb.cell(7, 7);
+        bb.place(cell, 1);
+        assertEquals(1, bb.get(cell));
+        assertEquals(1, bb.stoneCount());
+
+        bb.remove(cell);
+        assertEquals(0, bb.get(cell));
+        assertEquals(0, bb.stoneCount());
+        for (int d = 0; d < BitBoard.DIR_COUNT; d++) {
+            assertEquals(0L, bb.line(1, d, cell), "撤子后方向" + d + "的线位图应清空");
+        }
+    }
+
+    @Test
+    @DisplayName("从二维数组构造时不修改原数组")
+    void testFromArray() {
+        int[][] board = new int[BOARD_SIZE][BOARD_SIZE];
+        board[3][4] = 1;
+        board[10][2] = 2;
+
+        BitBoard fromArray = BitBoard.fromArray(board);
+
+        assertEquals(1, fromArray.get(fromArray.cell(3, 4)));
+        assertEquals(2, fromArray.get(fromArray.cell(10, 2)));
+        assertEquals(2, fromArray.stoneCount());
+        assertEquals(1, board[3][4]);
+    }
+
+    @ParameterizedTest(name = "方向 ({0},{1}) 起点 ({2},{3}) 连五")
+    @CsvSource({
+            "0, 1, 7, 0",
+            "1, 0, 10, 14",
+            "1, 1, 0, 0",
+            "1, 1, 10, 3",
+            "1, -1, 0, 14",
+            "1, -1, 6, 8"
+    })
+    @DisplayName("参数化测试：四个方向成五与逐格计数一致")
+    void testFiveInEachDirection(int dr, int dc, int r0, int c0) {
+        for (int k = 0; k < 4; k++) {
+            bb.place(bb.cell(r0 + dr * k, c0 + dc * k), 2);
+        }
+        int last = bb.cell(r0 + dr * 4, c0 + dc * 4);
+        assertTrue(bb.wouldBeFive(last, 2), "第五子应能成五");
+        assertFalse(bb.hasFive(2), "四子时不应判定已成五");
+
+        bb.place(last, 2);
+        for (int k = 0; k < 5; k++) {
+            assertTrue(bb.isFiveAt(bb.cell(r0 + dr * k, c0 + dc * k), 2), "五连上的每个子都应判定成五");
+        }
+        assertTrue(bb.hasFive(2));
+        assertFalse(bb.hasFive(1));
+    }
+
+    @Test
+    @DisplayName("被对方棋子隔断时不成五")
+    void testBlockedLineIsNotFive() {
+        for (int c = 0; c < 4; c++) bb.place(bb.cell(5, c), 1);
+        bb.place(bb.cell(5, 4), 2);
+        bb.place(bb.cell(5, 5), 1);
+
+        assertFalse(bb.isFiveAt(bb.cell(5, 5), 1));
+        assertFalse(bb.hasFive(1));
+    }
+
+    @Test
+    @DisplayName("连子计数与空位线位图")
+    void testRunCountsAndEmptyLine() {
+        // 水平线：第 7 行 C..E 为黑，G 为白
+        bb.place(bb.cell(7, 2), 1);
+        bb.place(bb.cell(7, 3), 1);
+        bb.place(bb.cell(7, 4), 1);
+        bb.place(bb.cell(7, 6), 2);
+
+        int probe = bb.cell(7, 5);
+        long own = bb.line(1, 0, probe);
+        assertEquals(3, BitBoard.runBelow(own, 5));
+        assertEquals(0, BitBoard.runAbove(own, 5));
+        assertEquals(0, BitBoard.runBelow(own, 0));
+
+        long empty = bb.emptyLine(0, probe);
+        assertEquals(BOARD_SIZE - 4, Long.bitCount(empty));
+        assertEquals(0L, empty >>> BOARD_SIZE, "线长度以外不应出现空位");
+    }
+
+    @Test
+    @DisplayName("超出位棋盘支持范围的尺寸被拒绝")
+    void testRejectsOversizedBoard() {
+        assertThrows(IllegalArgumentException.class, () -> new BitBoard(BitBoard.MAX_SIZE + 1, 15));
+    }
+
+    @Test
+    @DisplayName("候选点集合随落子/撤子增量更新，与半径2逐格扫描一致")
+    void testCandidateSetMatchesScan() {
+        Random rnd = new Random(5);
+        List<Integer> placed = new ArrayList<>();
+        int[] out = new int[bb.cellCount];
+        for (int step = 0; step < 200; step++) {
+            if (!placed.isEmpty() && rnd.nextInt(3) == 0) {
+                bb.remove(placed.remove(rnd.nextInt(placed.size())));
+            } else {
+                int cell = rnd.nextInt(bb.cellCount);
+                if (bb.get(cell) != 0) continue;
+                bb.place(cell, 1 + rnd.nextInt(2));
+                placed.add(cell);
+            }
+
+            int n = bb.candidates(out);
+            int expected = 0;
+            for (int r = 0; r < BOARD_SIZE; r++) {
+                for (int c = 0; c < BOARD_SIZE; c++) {
+                    boolean near = false;
+                    for (int dr = -2; dr <= 2 && !near; dr++) {
+                        for (int dc = -2; dc <= 2; dc++) {
+                            if (bb.inBounds(r + dr, c + dc) && bb.get(bb.cell(r + dr, c + dc)) != 0) {
+                                near = true;
+                                break;
+                            }
+                        }
+                    }
+                    int cell = bb.cell(r, c);
+                    boolean candidate = bb.get(cell) == 0 && near;
+                    assertEquals(candidate, bb.isCandidate(cell), "第" + step + "步 格子" + cell);
+                    if (candidate) {
+                        assertEquals(cell, out[expected], "候选点应按下标升序输出");
+                        expected++;
+                    }
+                }
+            }
+            assertEquals(expected, n);
+        }
+    }
+}
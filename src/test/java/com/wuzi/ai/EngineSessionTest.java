@@ -0,0 +1,107 @@
+package com.wuzi.ai;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * EngineSessionTest - AI 会话（逐手同步）的测试
+ */
+@DisplayName("AI 会话测试")
+class EngineSessionTest {
+
+    private static final int SIZE = 15;
+
+    @Test
+    @DisplayName("逐手同步的会话与每次传整个棋盘的搜索结果完全一致")
+    void testMatchesArraySearch() {
+        GomokuAI sessionAi = new GomokuAI();
+        GomokuAI arrayAi = new GomokuAI();
+        EngineSession session = sessionAi.newSession(SIZE, SIZE);
+        int[][] board = new int[SIZE][SIZE];
+
+        int color = 1;
+        for (int ply = 0; ply < 12; ply++) {
+            int[] expected = arrayAi.getNextStep(board, color);
+            int[] move = session.getNextStep(color);
+            assertArrayEquals(expected, move, "第 " + ply + " 手");
+            assertEquals(arrayAi.getLastNodeCount(), sessionAi.getLastNodeCount(), "同样的局面与置换表应访问同样多的节点");
+
+            board[move[0]][move[1]] = color;
+            session.applyMove(move[0], move[1], color);
+            color = 3 - color;
+        }
+        assertEquals(12, session.getMoveCount());
+        assertTrue(Arrays.deepEquals(board, session.toArray()));
+    }
+
+    @Test
+    @DisplayName("悔棋后局面与搜索结果恢复原状")
+    void testUndo() {
+        GomokuAI ai = new GomokuAI();
+        EngineSession session = ai.newSession(SIZE, SIZE);
+        session.applyMove(7, 7, 1);
+        session.applyMove(8, 8, 2);
+        session.applyMove(6, 8, 1);
+        int[] before = session.getNextStep(2);
+
+        session.applyMove(before[0], before[1], 2);
+        session.getNextStep(1);
+        session.applyMove(5, 9, 1);
+        assertArrayEquals(new int[]{5, 9}, session.undoMove());
+        assertArrayEquals(before, session.undoMove());
+        assertArrayEquals(new int[]{6, 8}, session.getLastMove());
+        assertEquals(0, session.get(before[0], before[1]));
+
+        int[][] board = session.toArray();
+        assertArrayEquals(new GomokuAI().getNextStep(board, 2), session.getNextStep(2), "悔棋后的结果应与新实例一致");
+    }
+
+    @Test
+    @DisplayName("同一个 AI 的多个会话交替搜索互不干扰")
+    void testSessionsShareEngine() {
+        GomokuAI ai = new GomokuAI();
+        GomokuAI reference = new GomokuAI();
+        EngineSession a = ai.newSession(SIZE, SIZE);
+        EngineSession b = ai.newSession(SIZE, SIZE);
+        a.applyMove(7, 7, 1);
+        b.applyMove(3, 3, 1);
+        b.applyMove(4, 4, 2);
+
+        for (int i = 0; i < 3; i++) {
+            for (EngineSession s : new EngineSession[]{a, b}) {
+                int color = s.getMoveCount() % 2 == 0 ? 1 : 2;
+                int[] expected = reference.getNextStep(s.toArray(), color);
+                int[] move = s.getNextStep(color);
+                assertArrayEquals(expected, move);
+                s.applyMove(move[0], move[1], color);
+            }
+        }
+        // 穿插一次传整个棋盘的搜索后，会话仍然正确
+        int[][] other = new int[SIZE][SIZE];
+        other[0][0] = 1;
+        assertArrayEquals(reference.getNextStep(other, 2), ai.getNextStep(other, 2));
+        assertArrayEquals(reference.getNextStep(a.toArray(), 2), a.getNextStep(2));
+    }
+
+    @Test
+    @DisplayName("非法落子与无棋可悔时抛出异常，重新开局清空棋盘")
+    void testInvalidMovesAndReset() {
+        EngineSession session = new GomokuAI().newSession(SIZE, SIZE);
+        session.applyMove(7, 7, 1);
+
+        assertThrows(IllegalArgumentException.class, () -> session.applyMove(7, 7, 2));
+        assertThrows(IllegalArgumentException.class, () -> session.applyMove(SIZE, 0, 2));
+        assertThrows(IllegalArgumentException.class, () -> session.applyMove(0, 0, 3));
+
+        session.reset();
+        assertEquals(0, session.getMoveCount());
+        assertNull(session.getLastMove());
+        assertThrows(IllegalStateException.class, session::undoMove);
+        int[] move = session.getNextStep(1);
+        assertArrayEquals(new int[]{SIZE / 2, SIZE / 2}, move, "空棋盘应落中心");
+    }
+}
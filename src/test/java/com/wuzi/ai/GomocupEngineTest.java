@@ -0,0 +1,108 @@
+package com.wuzi.ai;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * GomocupEngineTest - Gomocup 协议适配的测试
+ */
+@DisplayName("Gomocup 协议测试")
+class GomocupEngineTest {
+
+    /**
+     * 把脚本交给引擎执行，返回输出的各行
+     */
+    private static String[] run(String script) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes, true, StandardCharsets.UTF_8);
+        new GomocupEngine(new BufferedReader(new StringReader(script)), out).run();
+        String text = bytes.toString(StandardCharsets.UTF_8).trim();
+        return text.isEmpty() ? new String[0] : text.split("\\R");
+    }
+
+    private static int[] parseMove(String line) {
+        String[] parts = line.split(",");
+        assertEquals(2, parts.length, "落子应为 x,y: " + line);
+        return new int[]{Integer.parseInt(parts[0]), Integer.parseInt(parts[1])};
+    }
+
+    @Test
+    @DisplayName("开局、先手、应对与悔棋")
+    void testGameFlow() throws IOException {
+        String[] lines = run("INFO timeout_turn 300\nSTART 15\nBEGIN\nTAKEBACK 0,0\nTAKEBACK 7,7\nTURN 8,8\nABOUT\nEND\nTURN 1,1\n");
+        assertEquals(6, lines.length);
+        assertEquals("OK", lines[0]);
+        assertArrayEquals(new int[]{7, 7}, parseMove(lines[1]), "空棋盘先手落中心");
+        assertTrue(lines[2].startsWith("ERROR"), "只能撤回最后一手");
+        assertEquals("OK", lines[3]);
+        int[] reply = parseMove(lines[4]);
+        assertFalse(reply[0] == 8 && reply[1] == 8, "不能落在已有棋子处");
+        assertTrue(lines[5].startsWith("name="));
+    }
+
+    @Test
+    @DisplayName("整盘给出局面时应对，能成五时成五")
+    void testBoard() throws IOException {
+        String[] lines = run("START 20\nBOARD\n3,3,1\n10,10,2\n4,3,1\n10,11,2\n5,3,1\n10,12,2\n6,3,1\n10,13,2\nDONE\nEND\n");
+        assertEquals("OK", lines[0]);
+        int[] move = parseMove(lines[1]);
+        assertEquals(3, move[1]);
+        assertTrue(move[0] == 2 || move[0] == 7, "应在第 3 行成五，实际 " + lines[1]);
+    }
+
+    @Test
+    @DisplayName("非法指令与非法落子返回错误")
+    void testErrors() throws IOException {
+        String[] lines = run("BEGIN\nSTART 2\nSTART 15\nTURN 15,0\nTURN x\nFOO\nRESTART\nEND\n");
+        assertTrue(lines[0].startsWith("ERROR"), "未开局");
+        assertTrue(lines[1].startsWith("ERROR"), "棋盘过小");
+        assertEquals("OK", lines[2]);
+        assertTrue(lines[3].startsWith("ERROR"));
+        assertTrue(lines[4].startsWith("ERROR"));
+        assertEquals("UNKNOWN FOO", lines[5]);
+        assertEquals("OK", lines[6]);
+    }
+
+    @Test
+    @DisplayName("时间管理：单手上限、剩余总时间与余量")
+    void testTurnBudget() throws IOException {
+        GomocupEngine engine = new GomocupEngine(new BufferedReader(new StringReader(
+                "INFO timeout_turn 1000\n")), new PrintStream(new ByteArrayOutputStream()));
+        engine.run();
+        assertEquals(Duration.ofMillis(1000 - 100 - GomocupEngine.RESPONSE_MARGIN_MS), engine.turnBudget());
+
+        engine = new GomocupEngine(new BufferedReader(new StringReader(
+                "INFO timeout_turn 5000\nINFO timeout_match 100000\nINFO time_left 20000\nINFO max_memory 8388608\n")),
+                new PrintStream(new ByteArrayOutputStream()));
+        engine.run();
+        long share = 20000 / GomocupEngine.MATCH_MOVES_TO_GO;
+        assertEquals(Duration.ofMillis(share - share / 10 - GomocupEngine.RESPONSE_MARGIN_MS), engine.turnBudget());
+        assertEquals(2, engine.ttSizeMb(), "置换表取内存上限的四分之一");
+
+        engine = new GomocupEngine(new BufferedReader(new StringReader("INFO timeout_turn 0\n")),
+                new PrintStream(new ByteArrayOutputStream()));
+        engine.run();
+        assertEquals(Duration.ZERO, engine.turnBudget());
+    }
+
+    @Test
+    @DisplayName("按单手时间限制及时落子")
+    void testRespectsTimeout() throws IOException {
+        long start = System.nanoTime();
+        String[] lines = run("INFO timeout_turn 200\nSTART 15\nBOARD\n7,7,2\n8,8,1\n6,8,2\n9,7,1\n6,6,2\nDONE\nEND\n");
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        assertEquals("OK", lines[0]);
+        parseMove(lines[1]);
+        assertTrue(elapsedMs < 1000, "单手限时 200 毫秒，实际 " + elapsedMs + " 毫秒");
+    }
+}
@@ -0,0 +1,97 @@
+package com.wuzi.ai;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * IncrementalEvaluatorTest - 增量评估与整盘扫描一致性测试
+ * 随机落子/撤子后，逐格比较增量维护的得分与 Evaluator 的扫描结果
+ */
+@DisplayName("增量评估测试")
+class IncrementalEvaluatorTest {
+
+    private static final int BOARD_SIZE = 15;
+
+    private static void assertMatchesScan(BitBoard bb, String context) {
+        for (int cell = 0; cell < bb.cellCount; cell++) {
+            for (int color = 1; color <= 2; color++) {
+                assertEquals(Evaluator.scanPosition(bb, cell, color), Evaluator.evaluatePosition(bb, cell, color),
+                        context + " 格子" + cell + " 颜色" + color + "得分不一致");
+            }
+        }
+        assertEquals(Evaluator.scanBoard(bb, 1, 2), Evaluator.evaluateBoard(bb, 1, 2), context + " 整盘得分不一致");
+        assertEquals(Evaluator.scanBoard(bb, 2, 1), Evaluator.evaluateBoard(bb, 2, 1), context + " 整盘得分不一致");
+    }
+
+    @Test
+    @DisplayName("空棋盘的缓存得分与扫描一致")
+    void testEmptyBoard() {
+        assertMatchesScan(new BitBoard(BOARD_SIZE, BOARD_SIZE), "空棋盘");
+    }
+
+    @ParameterizedTest(name = "随机种子 {0}")
+    @ValueSource(ints = {1, 7, 42, 2024})
+    @DisplayName("参数化测试：随机落子与撤子后得分与扫描一致")
+    void testRandomMakeUnmake(int seed) {
+        Random rnd = new Random(seed);
+        BitBoard bb = new BitBoard(BOARD_SIZE, BOARD_SIZE);
+        List<Integer> placed = new ArrayList<>();
+        int color = 1;
+
+        for (int step = 0; step < 120; step++) {
+            if (!placed.isEmpty() && rnd.nextInt(4) == 0) {
+                bb.remove(placed.remove(rnd.nextInt(placed.size())));
+            } else {
+                // 集中在局部区域，制造长连子和被堵的棋型
+                int cell;
+                do {
+                    cell = bb.cell(3 + rnd.nextInt(9), 3 + rnd.nextInt(9));
+                } while (bb.get(cell) != 0 && placed.size() < 81);
+                if (bb.get(cell) != 0) continue;
+                bb.place(cell, color);
+                placed.add(cell);
+                color = 3 - color;
+            }
+            if (step % 10 == 0) assertMatchesScan(bb, "第" + step + "步");
+        }
+        assertMatchesScan(bb, "结束时");
+    }
+
+    @Test
+    @DisplayName("五连形成与拆除时整盘评估返回极值并恢复")
+    void testFiveDetection() {
+        BitBoard bb = new BitBoard(BOARD_SIZE, BOARD_SIZE);
+        for (int c = 3; c < 8; c++) bb.place(bb.cell(7, c), 2);
+
+        assertTrue(bb.hasFive(2));
+        assertEquals(Evaluator.SCORE_FIVE, Evaluator.evaluateBoard(bb, 2, 1));
+        assertEquals(-Evaluator.SCORE_FIVE, Evaluator.evaluateBoard(bb, 1, 2));
+
+        bb.remove(bb.cell(7, 5));
+        assertFalse(bb.hasFive(2));
+        assertMatchesScan(bb, "拆除五连后");
+    }
+
+    @Test
+    @DisplayName("副本的缓存独立于原棋盘")
+    void testCopyIsIndependent() {
+        BitBoard bb = new BitBoard(BOARD_SIZE, BOARD_SIZE);
+        bb.place(bb.cell(7, 7), 1);
+        bb.place(bb.cell(7, 8), 2);
+
+        BitBoard copy = bb.copy();
+        copy.place(copy.cell(8, 8), 1);
+
+        assertMatchesScan(bb, "原棋盘");
+        assertMatchesScan(copy, "副本");
+        assertEquals(0, bb.get(bb.cell(8, 8)));
+    }
+}
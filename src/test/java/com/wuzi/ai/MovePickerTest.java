@@ -0,0 +1,108 @@
+package com.wuzi.ai;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MovePickerTest - 分阶段着法生成测试
+ */
+@DisplayName("分阶段着法生成测试")
+class MovePickerTest {
+
+    private static final int BOARD_SIZE = 15;
+
+    private static MovePicker pickerFor(BitBoard bb) {
+        return new MovePicker(bb, new int[bb.cellCount], new int[bb.cellCount]);
+    }
+
+    private static List<Integer> drain(MovePicker picker) {
+        List<Integer> out = new ArrayList<>();
+        for (int m; (m = picker.next()) >= 0; ) out.add(m);
+        return out;
+    }
+
+    @Test
+    @DisplayName("对方有成五点时只给出堵点")
+    void testForcedBlock() {
+        BitBoard bb = new BitBoard(BOARD_SIZE, BOARD_SIZE);
+        for (int c = 3; c < 7; c++) bb.place(bb.cell(7, c), 1);
+        bb.place(bb.cell(7, 2), 2);
+        bb.place(bb.cell(9, 9), 2);
+
+        MovePicker picker = pickerFor(bb);
+        picker.init(2, bb.cell(9, 10), -1, -1, null, 20);
+        assertEquals(List.of(bb.cell(7, 7)), drain(picker), "冲四只能堵成五点，置换表着法也不再尝试");
+    }
+
+    @Test
+    @DisplayName("己方有成五点时只给出一个成五点")
+    void testImmediateWin() {
+        BitBoard bb = new BitBoard(BOARD_SIZE, BOARD_SIZE);
+        for (int c = 4; c < 8; c++) bb.place(bb.cell(7, c), 2);
+        for (int c = 4; c < 8; c++) bb.place(bb.cell(9, c), 1);
+
+        MovePicker picker = pickerFor(bb);
+        picker.init(2, -1, -1, -1, null, 20);
+        List<Integer> moves = drain(picker);
+        assertEquals(1, moves.size());
+        int cell = moves.get(0);
+        assertTrue(cell == bb.cell(7, 3) || cell == bb.cell(7, 8), "应为活四两端之一");
+    }
+
+    @Test
+    @DisplayName("顺序为置换表着法、战术着法、杀手着法、其余按分数，且不重复")
+    void testStageOrder() {
+        BitBoard bb = new BitBoard(BOARD_SIZE, BOARD_SIZE);
+        // 白棋 (7,6)(7,7) 两连，在 (7,5) 或 (7,8) 落子成活三，是战术着法
+        bb.place(bb.cell(7, 6), 1);
+        bb.place(bb.cell(7, 7), 1);
+        bb.place(bb.cell(9, 9), 2);
+        int ttMove = bb.cell(8, 8);
+        int killer = bb.cell(5, 5);
+        IncrementalEvaluator ev = bb.evaluator();
+        assertFalse(MovePicker.isTactical(ev, 1, ttMove));
+        assertFalse(MovePicker.isTactical(ev, 1, killer));
+
+        MovePicker picker = pickerFor(bb);
+        picker.init(1, ttMove, killer, -1, null, Integer.MAX_VALUE);
+        List<Integer> moves = drain(picker);
+
+        int[] candidates = new int[bb.cellCount];
+        assertEquals(bb.candidates(candidates), moves.size(), "应恰好给出全部候选点");
+        assertEquals(moves.size(), moves.stream().distinct().count(), "着法不应重复");
+        assertEquals(ttMove, moves.get(0));
+
+        int killerAt = moves.indexOf(killer);
+        for (int i = 1; i < moves.size(); i++) {
+            boolean tactical = MovePicker.isTactical(ev, 1, moves.get(i));
+            assertEquals(i < killerAt, tactical, "战术着法应全部排在杀手着法之前: 第" + i + "个");
+        }
+        // 杀手着法之后的平静着法按静态分不增
+        int prev = Integer.MAX_VALUE;
+        for (int i = killerAt + 1; i < moves.size(); i++) {
+            int cell = moves.get(i);
+            int score = Evaluator.evaluatePosition(bb, cell, 1) + Evaluator.evaluatePosition(bb, cell, 2);
+            assertTrue(score <= prev, "平静着法应按分数降序给出");
+            prev = score;
+        }
+    }
+
+    @Test
+    @DisplayName("给出的着法数不超过上限，已占用的杀手着法被跳过")
+    void testLimitAndStaleKiller() {
+        BitBoard bb = new BitBoard(BOARD_SIZE, BOARD_SIZE);
+        bb.place(bb.cell(7, 7), 1);
+        bb.place(bb.cell(8, 8), 2);
+
+        MovePicker picker = pickerFor(bb);
+        picker.init(1, -1, bb.cell(7, 7), -1, null, 5);
+        List<Integer> moves = drain(picker);
+        assertEquals(5, moves.size());
+        assertFalse(moves.contains(bb.cell(7, 7)), "已有棋子的格子不应给出");
+    }
+}
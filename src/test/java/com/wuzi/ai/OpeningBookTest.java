@@ -0,0 +1,128 @@
+package com.wuzi.ai;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * OpeningBookTest - 开局库生成与查询测试
+ */
+@DisplayName("开局库测试")
+class OpeningBookTest {
+
+    private static final int BOARD_SIZE = 15;
+    // 黑棋在第 7 行连五获胜，白棋在第 8 行跟随
+    private static final String WIN_GAME = "7,7 8,7 7,8 8,8 7,9 8,9 7,10 8,10 7,11";
+
+    private Path archive;
+    private Path bookFile;
+    private OpeningBook book;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        archive = Files.createTempFile("games", ".txt");
+        bookFile = Files.createTempFile("opening", ".book");
+        Files.write(archive, ("# 测试棋谱\n" + WIN_GAME + "\n").getBytes(StandardCharsets.UTF_8));
+
+        OpeningBookBuilder builder = new OpeningBookBuilder(BOARD_SIZE, 8);
+        assertEquals(1, builder.addArchive(archive));
+        assertTrue(builder.write(bookFile) > 0);
+        book = OpeningBook.open(bookFile);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        book.close();
+        Files.deleteIfExists(archive);
+        Files.deleteIfExists(bookFile);
+    }
+
+    @Test
+    @DisplayName("文件大小与记录数一致，只收录胜方的着法")
+    void testFileLayout() throws IOException {
+        assertEquals(BOARD_SIZE, book.getBoardSize());
+        // 黑棋在前 8 手中走了 4 步，白棋输棋的着法不入库
+        assertEquals(4, book.size());
+        assertEquals(OpeningBook.HEADER_BYTES + 4L * OpeningBook.ENTRY_BYTES, Files.size(bookFile));
+    }
+
+    @Test
+    @DisplayName("命中原局面，并按对称变换还原着法")
+    void testProbeWithSymmetry() {
+        int[][] board = new int[BOARD_SIZE][BOARD_SIZE];
+        assertArrayEquals(new int[]{7, 7}, book.probe(board, 1), "空盘应走天元");
+
+        // 第四手之后的局面没有自身对称，着法唯一
+        board[7][7] = 1;
+        board[7][8] = 1;
+        board[8][7] = 2;
+        board[8][8] = 2;
+        assertArrayEquals(new int[]{7, 9}, book.probe(board, 1));
+
+        // 沿主对角线翻转
+        int[][] transposed = new int[BOARD_SIZE][BOARD_SIZE];
+        transposed[7][7] = 1;
+        transposed[8][7] = 1;
+        transposed[7][8] = 2;
+        transposed[8][8] = 2;
+        assertArrayEquals(new int[]{9, 7}, book.probe(transposed, 1));
+
+        // 上下翻转后再左右翻转（旋转 180 度）
+        int[][] rotated = new int[BOARD_SIZE][BOARD_SIZE];
+        rotated[7][7] = 1;
+        rotated[7][6] = 1;
+        rotated[6][7] = 2;
+        rotated[6][6] = 2;
+        assertArrayEquals(new int[]{7, 5}, book.probe(rotated, 1));
+    }
+
+    @Test
+    @DisplayName("库外局面、行棋方不符或棋盘尺寸不符时不命中")
+    void testMisses() {
+        int[][] board = new int[BOARD_SIZE][BOARD_SIZE];
+        board[7][7] = 1;
+        assertNull(book.probe(board, 2), "输棋一方的着法不入库");
+        board[0][0] = 2;
+        assertNull(book.probe(board, 1));
+        assertNull(book.probe(new int[9][9], 1));
+    }
+
+    @Test
+    @DisplayName("GomokuAI 在开局库范围内直接走库中着法")
+    void testAIUsesBook() {
+        GomokuAI ai = new GomokuAI();
+        ai.setOpeningBook(book);
+        int[][] board = new int[BOARD_SIZE][BOARD_SIZE];
+        board[7][7] = 1;
+        board[8][7] = 2;
+
+        assertArrayEquals(new int[]{7, 8}, ai.getNextStep(board, 1));
+        assertTrue(ai.isLastMoveFromBook());
+        assertEquals(0, ai.getLastNodeCount());
+
+        ai.setBookDepth(2);
+        ai.getNextStep(board, 1);
+        assertFalse(ai.isLastMoveFromBook(), "超出开局库手数后应正常搜索");
+    }
+
+    @Test
+    @DisplayName("损坏的文件无法打开")
+    void testRejectsCorruptFile() throws IOException {
+        Path bad = Files.createTempFile("bad", ".book");
+        try {
+            Files.write(bad, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17});
+            assertThrows(IOException.class, () -> OpeningBook.open(bad));
+            assertNull(OpeningBook.openIfExists(bad));
+        } finally {
+            Files.deleteIfExists(bad);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.wuzi.ai;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PatternTableTest - 单方向棋型查找表测试
+ * 窗口写法：9 个字符，X 己方、_ 空位、O 对手或边界，第 5 个字符为落子点
+ */
+@DisplayName("棋型查找表测试")
+class PatternTableTest {
+
+    private static int lookup(String window) {
+        int own = 0, empty = 0;
+        for (int i = 0; i < PatternTable.WIDTH; i++) {
+            char ch = window.charAt(i);
+            if (i == PatternTable.RADIUS) {
+                empty |= 1 << i; // 落子点在落子前为空
+            } else if (ch == 'X') {
+                own |= 1 << i;
+            } else if (ch == '_') {
+                empty |= 1 << i;
+            }
+        }
+        return PatternTable.lookup(own, empty);
+    }
+
+    private static int score(String window) {
+        return lookup(window) & (Evaluator.FLAG_OPEN_THREE - 1);
+    }
+
+    @ParameterizedTest(name = "{0} -> {1}")
+    @CsvSource({
+            "__XXXX___, 50000",
+            "OXXXX____, 10000",
+            "_XX_XX___, 10000",
+            "__X_XXX__, 10000",
+            "___XXX___, 4000",
+            "__X_XX___, 4000",
+            "___XX_X__, 4000",
+            "O_XXX_O__, 500",
+            "OXXXXX___, 1000000",
+            "___XX____, 200",
+            "__X_X____, 200",
+            "OOOOXOOOO, 0"
+    })
+    @DisplayName("参数化测试：连续与跳跃棋型的得分")
+    void testShapeScores(String window, int expected) {
+        assertEquals(expected, score(window));
+    }
+
+    @Test
+    @DisplayName("活三/活四标记只出现在对应棋型上")
+    void testFlags() {
+        assertNotEquals(0, lookup("__X_XX___") & Evaluator.FLAG_OPEN_THREE, "跳活三应带活三标记");
+        assertNotEquals(0, lookup("__XXXX___") & Evaluator.FLAG_OPEN_FOUR);
+        assertEquals(0, lookup("_XX_XX___") & Evaluator.FLAG_OPEN_FOUR, "跳冲四不是活四");
+        assertEquals(0, lookup("O_XXX_O__") & Evaluator.FLAG_OPEN_THREE, "两端只剩一格的三不是活三");
+    }
+
+    @Test
+    @DisplayName("窗口左右镜像得分相同")
+    void testMirrorSymmetry() {
+        int outer = PatternTable.WINDOW_MASK & ~(1 << PatternTable.RADIUS);
+        for (int own = 0; own <= outer; own++) {
+            if ((own & ~outer) != 0) continue;
+            int rest = outer & ~own;
+            for (int blocked = rest; ; blocked = (blocked - 1) & rest) {
+                int empty = (rest & ~blocked) | 1 << PatternTable.RADIUS;
+                assertEquals(PatternTable.lookup(own, empty), PatternTable.lookup(mirror(own), mirror(empty)));
+                if (blocked == 0) break;
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("窗口取位：线首之前补 0，线内位置对齐中心")
+    void testWindow() {
+        long bits = 0b1011L;
+        assertEquals(0b1011 << 4, PatternTable.window(bits, 0));
+        assertEquals(0b1011 >>> 1, PatternTable.window(bits, 5));
+    }
+
+    private static int mirror(int mask) {
+        return Integer.reverse(mask) >>> (32 - PatternTable.WIDTH);
+    }
+}
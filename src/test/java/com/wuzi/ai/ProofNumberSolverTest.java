@@ -0,0 +1,143 @@
+package com.wuzi.ai;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ProofNumberSolverTest - 证明数搜索测试
+ */
+@DisplayName("证明数搜索测试")
+class ProofNumberSolverTest {
+
+    private static final int BOARD_SIZE = 15;
+    private static final int BLACK = 1;
+    private static final int WHITE = 2;
+
+    private BitBoard bb;
+    private ProofNumberSolver solver;
+
+    @BeforeEach
+    void setUp() {
+        bb = new BitBoard(BOARD_SIZE, BOARD_SIZE);
+        solver = new ProofNumberSolver(bb, 1);
+    }
+
+    private void put(int color, int... rc) {
+        for (int i = 0; i < rc.length; i += 2) bb.place(bb.cell(rc[i], rc[i + 1]), color);
+    }
+
+    private int[][] toArray() {
+        int[][] board = new int[BOARD_SIZE][BOARD_SIZE];
+        for (int cell = 0; cell < bb.cellCount; cell++) {
+            board[cell / BOARD_SIZE][cell % BOARD_SIZE] = bb.get(cell);
+        }
+        return board;
+    }
+
+    @Test
+    @DisplayName("置换表大小受内存上限约束")
+    void testTableIsBounded() {
+        assertEquals(Integer.highestOneBit(solver.capacity()), solver.capacity());
+        assertTrue((long) solver.capacity() * ProofNumberSolver.ENTRY_BYTES <= 1024 * 1024);
+    }
+
+    @Test
+    @DisplayName("证明连续冲四的胜局并给出第一步，棋盘恢复原状")
+    void testProvesVcfWin() {
+        put(BLACK, 2, 2, 2, 3, 2, 4, 5, 2, 5, 3, 5, 4, 3, 5, 4, 5);
+        put(WHITE, 2, 1, 5, 1, 1, 5, 0, 14, 14, 0, 14, 14, 10, 10, 12, 12);
+        long hash = bb.hash();
+
+        assertEquals(ProofNumberSolver.PROVEN, solver.solve(BLACK, BLACK, 100_000, GomokuAI.NO_DEADLINE));
+        int move = solver.provenMove(BLACK);
+        assertTrue(move == bb.cell(2, 5) || move == bb.cell(5, 5), "第一步应为其中一个冲四: " + move);
+        assertEquals(hash, bb.hash());
+    }
+
+    @Test
+    @DisplayName("证明双活三的胜局")
+    void testProvesDoubleThreeWin() {
+        put(BLACK, 7, 6, 7, 7, 5, 8, 6, 8);
+        put(WHITE, 0, 0, 0, 14, 14, 0, 14, 14);
+
+        assertEquals(ProofNumberSolver.PROVEN, solver.solve(BLACK, BLACK, 200_000, GomokuAI.NO_DEADLINE));
+        int move = solver.provenMove(BLACK);
+        assertTrue(bb.evaluator().threat(BLACK, move) >= IncrementalEvaluator.THREAT_THREE, "第一步必须是威胁");
+
+        // 走出证明的第一步后，白棋怎么应对都输
+        bb.place(move, BLACK);
+        assertEquals(ProofNumberSolver.PROVEN, solver.solve(BLACK, WHITE, 200_000, GomokuAI.NO_DEADLINE));
+    }
+
+    @Test
+    @DisplayName("对方两个互不相干的活三：怎么走都输")
+    void testProvesLoss() {
+        put(BLACK, 3, 3, 3, 4, 3, 5, 10, 9, 11, 9, 12, 9);
+        put(WHITE, 7, 7, 0, 14, 14, 0, 9, 3);
+
+        assertEquals(ProofNumberSolver.PROVEN, solver.solve(BLACK, WHITE, 500_000, GomokuAI.NO_DEADLINE),
+                "白棋走后黑棋应仍能取胜");
+    }
+
+    @Test
+    @DisplayName("下满的棋盘是和棋，不能证明为胜局")
+    void testFullBoardIsNotProven() {
+        bb = new BitBoard(5, 5);
+        solver = new ProofNumberSolver(bb, 1);
+        String[] rows = {"11221", "22112", "11221", "22112", "11221"};
+        for (int r = 0; r < rows.length; r++) {
+            for (int c = 0; c < rows[r].length(); c++) bb.place(bb.cell(r, c), rows[r].charAt(c) - '0');
+        }
+        assertEquals(ProofNumberSolver.DISPROVEN, solver.solve(BLACK, WHITE, 1_000, GomokuAI.NO_DEADLINE));
+        assertEquals(ProofNumberSolver.DISPROVEN, solver.solve(BLACK, BLACK, 1_000, GomokuAI.NO_DEADLINE));
+    }
+
+    @Test
+    @DisplayName("连珠规则下唯一的堵点是黑棋禁手：白棋胜")
+    void testForbiddenBlockIsProven() {
+        bb.setRenju(true);
+        put(BLACK, 7, 5, 7, 6, 5, 7, 6, 7, 2, 2);
+        put(WHITE, 3, 3, 4, 4, 5, 5, 6, 6, 14, 14);
+        assertTrue(RenjuRules.isFoul(bb, bb.cell(7, 7)));
+
+        assertEquals(ProofNumberSolver.PROVEN, solver.solve(WHITE, BLACK, 1_000, GomokuAI.NO_DEADLINE));
+    }
+
+    @Test
+    @DisplayName("平淡局面不能证明；节点上限触发中止")
+    void testQuietPositionAndNodeLimit() {
+        put(BLACK, 7, 7);
+        put(WHITE, 7, 8);
+        assertNotEquals(ProofNumberSolver.PROVEN, solver.solve(BLACK, BLACK, 100_000, GomokuAI.NO_DEADLINE));
+
+        put(BLACK, 7, 6, 5, 8, 6, 8);
+        put(WHITE, 0, 0);
+        assertEquals(ProofNumberSolver.UNKNOWN, solver.solve(WHITE, BLACK, 1, GomokuAI.NO_DEADLINE));
+        assertTrue(solver.aborted());
+    }
+
+    @Test
+    @DisplayName("棋盘较满时 GomokuAI 使用证明数搜索并报告胜负")
+    void testAIReportsOutcome() {
+        put(BLACK, 3, 3, 3, 4, 3, 5, 10, 9, 11, 9, 12, 9);
+        put(WHITE, 7, 7, 0, 14, 14, 0, 9, 3);
+        int[][] board = toArray();
+
+        GomokuAI ai = new GomokuAI();
+        ai.setThreatSearchEnabled(false);
+        ai.setProofSearchLimits(1, 500_000);
+
+        ai.getNextStep(board, WHITE);
+        assertEquals(GomokuAI.Outcome.LOSS, ai.getLastOutcome());
+
+        ai.getNextStep(board, BLACK);
+        assertEquals(GomokuAI.Outcome.WIN, ai.getLastOutcome());
+
+        ai.setProofSearchEnabled(false);
+        ai.getNextStep(board, BLACK);
+        assertEquals(GomokuAI.Outcome.UNKNOWN, ai.getLastOutcome(), "关闭后不应给出判定");
+    }
+}
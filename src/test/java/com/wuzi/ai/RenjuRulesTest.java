@@ -0,0 +1,121 @@
+package com.wuzi.ai;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RenjuRulesTest - 连珠禁手判断与 AI 在连珠规则下的候选点测试
+ */
+@DisplayName("连珠禁手测试")
+class RenjuRulesTest {
+
+    private static final int SIZE = 15;
+
+    private static RenjuRules rules(int[][] black, int[][] white) {
+        RenjuRules r = new RenjuRules(SIZE, SIZE);
+        for (int[] p : black) r.place(p[0], p[1], 1);
+        for (int[] p : white) r.place(p[0], p[1], 2);
+        return r;
+    }
+
+    @Test
+    @DisplayName("两个活三交叉为三三，两个四为四四，六子以上为长连")
+    void testBasicFouls() {
+        RenjuRules doubleThree = rules(new int[][]{{7, 5}, {7, 6}, {5, 7}, {6, 7}}, new int[0][]);
+        assertEquals(RenjuRules.Foul.DOUBLE_THREE, doubleThree.checkFoul(7, 7));
+
+        RenjuRules doubleFour = rules(new int[][]{{7, 4}, {7, 5}, {7, 6}, {4, 7}, {5, 7}, {6, 7}}, new int[0][]);
+        assertEquals(RenjuRules.Foul.DOUBLE_FOUR, doubleFour.checkFoul(7, 7));
+
+        // 同一条线上的两个四：X.XX?.X
+        RenjuRules lineFour = rules(new int[][]{{7, 3}, {7, 5}, {7, 6}, {7, 9}}, new int[0][]);
+        assertEquals(RenjuRules.Foul.DOUBLE_FOUR, lineFour.checkFoul(7, 7));
+
+        RenjuRules overline = rules(new int[][]{{7, 3}, {7, 4}, {7, 5}, {7, 6}, {7, 8}}, new int[0][]);
+        assertEquals(RenjuRules.Foul.OVERLINE, overline.checkFoul(7, 7));
+    }
+
+    @Test
+    @DisplayName("成五优先，四三、被堵的三与靠边的假三都不是禁手")
+    void testNotFoul() {
+        // 横向恰好成五，纵向同时长连
+        RenjuRules five = rules(new int[][]{{7, 3}, {7, 4}, {7, 5}, {7, 6}, {4, 7}, {5, 7}, {6, 7}, {8, 7}, {9, 7}},
+                new int[0][]);
+        assertEquals(RenjuRules.Foul.NONE, five.checkFoul(7, 7));
+
+        // 横向冲四（一端被白子堵住）+ 纵向活三
+        RenjuRules fourThree = rules(new int[][]{{7, 4}, {7, 5}, {7, 6}, {5, 7}, {6, 7}}, new int[][]{{7, 3}});
+        assertEquals(RenjuRules.Foul.NONE, fourThree.checkFoul(7, 7));
+
+        // 横向的三一端被白子堵住，成不了活四
+        RenjuRules blocked = rules(new int[][]{{7, 5}, {7, 6}, {5, 7}, {6, 7}}, new int[][]{{7, 4}});
+        assertEquals(RenjuRules.Foul.NONE, blocked.checkFoul(7, 7));
+
+        // 横向的三一端是棋盘边缘、另一端隔一格是白子
+        RenjuRules edge = rules(new int[][]{{7, 1}, {7, 2}, {5, 3}, {6, 3}}, new int[][]{{7, 5}});
+        assertEquals(RenjuRules.Foul.NONE, edge.checkFoul(7, 3));
+    }
+
+    @Test
+    @DisplayName("撤子与清空后禁手随之消失，已有棋子的位置不是禁手")
+    void testIncrementalUpdates() {
+        RenjuRules r = rules(new int[][]{{7, 5}, {7, 6}, {5, 7}, {6, 7}}, new int[0][]);
+        assertEquals(RenjuRules.Foul.DOUBLE_THREE, r.checkFoul(7, 7));
+        assertEquals(RenjuRules.Foul.NONE, r.checkFoul(7, 6));
+
+        r.remove(5, 7);
+        assertEquals(RenjuRules.Foul.NONE, r.checkFoul(7, 7));
+        r.place(5, 7, 1);
+        assertEquals(RenjuRules.Foul.DOUBLE_THREE, r.checkFoul(7, 7));
+        r.clear();
+        assertEquals(RenjuRules.Foul.NONE, r.checkFoul(7, 7));
+        assertThrows(IllegalArgumentException.class, () -> r.place(0, 0, 3));
+    }
+
+    @Test
+    @DisplayName("连珠规则下执黑的 AI 不走禁手，白棋不受影响")
+    void testAiAvoidsFoul() {
+        int[][] board = new int[SIZE][SIZE];
+        int[][] black = {{7, 5}, {7, 6}, {5, 7}, {6, 7}};
+        for (int[] p : black) board[p[0]][p[1]] = 1;
+        board[0][0] = 2;
+        board[0][2] = 2;
+        board[2][0] = 2;
+        board[14][14] = 2;
+
+        GomokuAI free = new GomokuAI();
+        assertArrayEquals(new int[]{7, 7}, free.getNextStep(board, 1), "自由规则下双活三是最强的一手");
+
+        GomokuAI renju = new GomokuAI();
+        renju.setRenju(true);
+        assertTrue(renju.isRenju());
+        int[] move = renju.getNextStep(board, 1);
+        assertFalse(move[0] == 7 && move[1] == 7, "连珠规则下三三点是禁手");
+        RenjuRules check = rules(black, new int[][]{{0, 0}, {0, 2}, {2, 0}, {14, 14}});
+        assertEquals(RenjuRules.Foul.NONE, check.checkFoul(move[0], move[1]));
+
+        // 白棋可以走同样的点
+        int[][] swapped = new int[SIZE][SIZE];
+        for (int r = 0; r < SIZE; r++) {
+            for (int c = 0; c < SIZE; c++) swapped[r][c] = board[r][c] == 0 ? 0 : 3 - board[r][c];
+        }
+        assertArrayEquals(new int[]{7, 7}, renju.getNextStep(swapped, 2));
+    }
+
+    @Test
+    @DisplayName("连珠规则下只剩禁手点时黑棋无棋可下，兜底着法也不走禁手")
+    void testAiFallbackSkipsFoul() {
+        GomokuAI ai = new GomokuAI();
+        ai.setRenju(true);
+        // 唯一的空位 (0,3) 是长连禁手
+        int[][] full = {{1, 1, 1, 0, 1, 1}};
+        assertArrayEquals(new int[]{-1, -1}, ai.getNextStep(full, 1));
+        assertArrayEquals(new int[]{0, 3}, ai.getNextStep(full, 2), "白棋没有禁手");
+
+        // 两个空位中 (0,3) 是禁手，只能走 (0,6)
+        int[][] oneLeft = {{1, 1, 1, 0, 1, 1, 0}};
+        assertArrayEquals(new int[]{0, 6}, ai.getNextStep(oneLeft, 1));
+    }
+}
@@ -0,0 +1,69 @@
+package com.wuzi.ai;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SelfPlayTournamentTest - 引擎对弈测试工具的测试
+ */
+@DisplayName("引擎对弈测试")
+class SelfPlayTournamentTest {
+
+    @Test
+    @DisplayName("小规模并行对弈：局数、统计与 JSON 报告完整")
+    void testSmallTournament() throws InterruptedException {
+        SelfPlayTournament t = new SelfPlayTournament(
+                SelfPlayTournament.Engine.parse("A:depth=1,threat=off,proof=off"),
+                SelfPlayTournament.Engine.parse("B:algo=MINIMAX,depth=1,threat=off,proof=off"));
+        t.setGames(3);
+        t.setThreads(2);
+        SelfPlayTournament.Report report = t.run();
+
+        assertEquals(4, report.plannedGames, "局数应向上取偶数");
+        assertEquals(4, report.games());
+        assertTrue(report.statsA.moves > 0 && report.statsB.moves > 0);
+        assertTrue(report.statsA.nodes > 0);
+        assertTrue(report.statsA.nodesPerSecond() > 0);
+
+        String json = report.toJson();
+        for (String key : new String[]{"\"games\": 4", "\"elo\"", "\"eloLow\"", "\"llr\"", "\"nodesPerSecond\"", "\"millisPerMove\""}) {
+            assertTrue(json.contains(key), "报告缺少 " + key);
+        }
+    }
+
+    @Test
+    @DisplayName("Elo 与得分率换算、置信区间与 SPRT")
+    void testStatistics() {
+        assertEquals(0.0, SelfPlayTournament.eloFromScore(0.5), 1e-9);
+        assertEquals(0.7, SelfPlayTournament.scoreFromElo(SelfPlayTournament.eloFromScore(0.7)), 1e-9);
+        assertEquals(-SelfPlayTournament.eloFromScore(0.3), SelfPlayTournament.eloFromScore(0.7), 1e-9);
+
+        SelfPlayTournament.Report report = new SelfPlayTournament.Report("A", "B", 1000);
+        report.alpha = 0.05;
+        report.beta = 0.05;
+        report.elo0 = 0;
+        report.elo1 = 10;
+        report.wins = 600;
+        report.draws = 100;
+        report.losses = 300;
+
+        double[] ci = report.eloInterval();
+        assertTrue(ci[0] < report.elo() && report.elo() < ci[1]);
+        assertTrue(ci[0] > 0, "明显占优时置信区间应在 0 以上");
+        assertEquals("H1", report.sprtResult());
+
+        report.wins = 300;
+        report.losses = 600;
+        assertEquals("H0", report.sprtResult());
+    }
+
+    @Test
+    @DisplayName("引擎配置解析")
+    void testEngineParse() {
+        assertEquals("A", SelfPlayTournament.Engine.parse("A:algo=pvs,time=100").getName());
+        assertThrows(IllegalArgumentException.class, () -> SelfPlayTournament.Engine.parse("A:speed=1"));
+        assertThrows(IllegalArgumentException.class, () -> SelfPlayTournament.Engine.parse("A:threat=maybe"));
+    }
+}
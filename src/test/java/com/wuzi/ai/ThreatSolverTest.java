@@ -0,0 +1,125 @@
+package com.wuzi.ai;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ThreatSolverTest - 威胁空间搜索（VCF/VCT）测试
+ */
+@DisplayName("威胁空间搜索测试")
+class ThreatSolverTest {
+
+    private static final int BOARD_SIZE = 15;
+    private static final int BLACK = 1;
+    private static final int WHITE = 2;
+
+    private BitBoard bb;
+    private ThreatSolver solver;
+
+    @BeforeEach
+    void setUp() {
+        bb = new BitBoard(BOARD_SIZE, BOARD_SIZE);
+        solver = new ThreatSolver(bb, GomokuAI.MAX_THREAT_DEPTH);
+    }
+
+    private void put(int color, int... rc) {
+        for (int i = 0; i < rc.length; i += 2) bb.place(bb.cell(rc[i], rc[i + 1]), color);
+    }
+
+    /**
+     * 黑棋横向 (7,3)-(7,5) 左端被堵，纵向 (4,6)-(6,6) 上端被堵：
+     * 落 (7,6) 同时形成两个冲四
+     */
+    private void setUpDoubleFour() {
+        put(BLACK, 7, 3, 7, 4, 7, 5, 4, 6, 5, 6, 6, 6);
+        put(WHITE, 7, 2, 3, 6, 0, 0, 0, 14, 14, 0, 14, 14);
+    }
+
+    @Test
+    @DisplayName("找到双四的 VCF，且求解后棋盘恢复原状")
+    void testFindsDoubleFour() {
+        setUpDoubleFour();
+        long hash = bb.hash();
+
+        assertEquals(bb.cell(7, 6), solver.findVcf(BLACK, 4, 10_000, GomokuAI.NO_DEADLINE));
+        assertEquals(hash, bb.hash(), "求解不应改变棋盘");
+        assertEquals(-1, solver.findVcf(BLACK, 0, 10_000, GomokuAI.NO_DEADLINE), "深度为 0 时不应找到");
+    }
+
+    @Test
+    @DisplayName("连续冲四：先冲四逼对方堵，再形成双四")
+    void testFindsMultiStepVcf() {
+        // 横向 (2,2)-(2,4) 与 (5,2)-(5,4) 左端被堵，纵向 (3,5)、(4,5) 上端被堵：
+        // 先在一行冲四，对方堵住后另一行的冲四点同时成为纵向冲四
+        put(BLACK, 2, 2, 2, 3, 2, 4, 5, 2, 5, 3, 5, 4, 3, 5, 4, 5);
+        put(WHITE, 2, 1, 5, 1, 1, 5, 0, 14, 14, 0, 14, 14, 10, 10, 12, 12);
+
+        assertEquals(-1, solver.findVcf(BLACK, 1, 10_000, GomokuAI.NO_DEADLINE), "一步内没有双四");
+        int move = solver.findVcf(BLACK, 2, 10_000, GomokuAI.NO_DEADLINE);
+        assertTrue(move == bb.cell(2, 5) || move == bb.cell(5, 5), "第一步应为其中一个冲四: " + move);
+    }
+
+    @Test
+    @DisplayName("双活三只有 VCT 没有 VCF")
+    void testFindsDoubleThreeVct() {
+        put(BLACK, 7, 6, 7, 7, 5, 8, 6, 8);
+        put(WHITE, 0, 0, 0, 14, 14, 0, 14, 14);
+
+        assertEquals(-1, solver.findVcf(BLACK, 6, 10_000, GomokuAI.NO_DEADLINE));
+        int move = solver.findVct(BLACK, 4, 50_000, GomokuAI.NO_DEADLINE);
+        assertEquals(bb.cell(7, 8), move, "应在交叉点形成双活三");
+    }
+
+    @Test
+    @DisplayName("平淡局面没有杀法；节点上限触发中止")
+    void testQuietPositionAndNodeLimit() {
+        put(BLACK, 7, 7);
+        put(WHITE, 7, 8);
+        assertEquals(-1, solver.findVct(BLACK, 4, 50_000, GomokuAI.NO_DEADLINE));
+        assertFalse(solver.aborted());
+
+        setUp();
+        setUpDoubleFour();
+        assertEquals(-1, solver.findVcf(BLACK, 4, 1, GomokuAI.NO_DEADLINE), "节点上限为 1 时应立即中止");
+        assertTrue(solver.aborted());
+    }
+
+    @Test
+    @DisplayName("连珠规则下黑棋只能长连的四不是活四")
+    void testRenjuOverlineIsNotFive() {
+        put(BLACK, 7, 4, 7, 5, 7, 6, 7, 8, 7, 9);
+        put(WHITE, 0, 0, 0, 14, 14, 0, 14, 14);
+        // 自由规则下 (7,7) 连成六子即获胜
+        assertEquals(bb.cell(7, 7), solver.findVcf(BLACK, 10, 100_000, GomokuAI.NO_DEADLINE));
+
+        bb.setRenju(true);
+        assertTrue(RenjuRules.isFoul(bb, bb.cell(7, 7)));
+        // (7,3) 之后的成五点只有 (7,2)，(7,7) 是长连禁手，白棋堵 (7,2) 即可
+        assertEquals(-1, solver.findVcf(BLACK, 10, 100_000, GomokuAI.NO_DEADLINE));
+        assertEquals(-1, solver.findVct(BLACK, 4, 100_000, GomokuAI.NO_DEADLINE));
+    }
+
+    @Test
+    @DisplayName("AI 优先走己方 VCF，对方有 VCF 时选择化解的着法")
+    void testAIUsesThreatSearch() {
+        setUpDoubleFour();
+        int[][] board = new int[BOARD_SIZE][BOARD_SIZE];
+        for (int cell = 0; cell < bb.cellCount; cell++) {
+            board[cell / BOARD_SIZE][cell % BOARD_SIZE] = bb.get(cell);
+        }
+        GomokuAI ai = new GomokuAI();
+
+        assertArrayEquals(new int[]{7, 6}, ai.getNextStep(board, BLACK), "黑棋应直接走双四");
+        assertEquals(0, ai.getLastCompletedDepth(), "由威胁搜索直接给出");
+        assertTrue(ai.getLastThreatNodeCount() > 0);
+
+        int[] defence = ai.getNextStep(board, WHITE);
+        board[defence[0]][defence[1]] = WHITE;
+        BitBoard after = BitBoard.fromArray(board);
+        assertEquals(-1, new ThreatSolver(after, 10).findVcf(BLACK, 10, 100_000, GomokuAI.NO_DEADLINE),
+                "白棋应化解黑棋的连续冲四");
+    }
+}
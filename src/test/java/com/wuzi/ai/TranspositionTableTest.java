@@ -0,0 +1,82 @@
+package com.wuzi.ai;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TranspositionTableTest - 置换表存取与替换策略测试
+ */
+@DisplayName("置换表测试")
+class TranspositionTableTest {
+
+    private TranspositionTable tt;
+
+    @BeforeEach
+    void setUp() {
+        tt = new TranspositionTable(1);
+        tt.newSearch();
+    }
+
+    @Test
+    @DisplayName("容量为不超过内存上限的2的幂")
+    void testCapacity() {
+        int capacity = tt.capacity();
+        assertEquals(Integer.highestOneBit(capacity), capacity);
+        assertTrue((long) capacity * TranspositionTable.ENTRY_BYTES <= 1024 * 1024);
+    }
+
+    @Test
+    @DisplayName("打包数据可完整还原（含负值与无着法）")
+    void testPackRoundTrip() {
+        long d = TranspositionTable.pack(-123456, 224, 7, TranspositionTable.BOUND_UPPER, 5);
+        assertEquals(-123456, TranspositionTable.valueOf(d));
+        assertEquals(224, TranspositionTable.moveOf(d));
+        assertEquals(7, TranspositionTable.depthOf(d));
+        assertEquals(TranspositionTable.BOUND_UPPER, TranspositionTable.boundOf(d));
+        assertEquals(5, TranspositionTable.ageOf(d));
+
+        long none = TranspositionTable.pack(0, -1, 0, TranspositionTable.BOUND_EXACT, 0);
+        assertEquals(-1, TranspositionTable.moveOf(none));
+        assertNotEquals(0L, none, "已使用的表项不应与空槽混淆");
+    }
+
+    @Test
+    @DisplayName("命中与冲突统计")
+    void testHitAndCollisionStats() {
+        long key = 0x1234_5678_9ABC_DEF0L;
+        long sameSlot = key + tt.capacity();
+
+        assertEquals(0L, tt.probe(key), "空表不应命中");
+        tt.store(key, 3, 42, TranspositionTable.BOUND_EXACT, 10);
+
+        long d = tt.probe(key);
+        assertEquals(42, TranspositionTable.valueOf(d));
+        assertEquals(10, TranspositionTable.moveOf(d));
+        assertEquals(0L, tt.probe(sameSlot), "同槽不同键应视为冲突");
+
+        assertEquals(3, tt.probes());
+        assertEquals(1, tt.hits());
+        assertEquals(1, tt.collisions());
+    }
+
+    @Test
+    @DisplayName("同一轮搜索中浅结果不覆盖深结果，新一轮可覆盖")
+    void testDepthPreferredReplacement() {
+        long key = 99L;
+        long sameSlot = key + tt.capacity();
+
+        tt.store(key, 4, 1, TranspositionTable.BOUND_EXACT, 1);
+        tt.store(sameSlot, 2, 2, TranspositionTable.BOUND_EXACT, 2);
+        assertEquals(4, TranspositionTable.depthOf(tt.probe(key)), "浅结果不应替换深结果");
+
+        tt.store(sameSlot, 4, 3, TranspositionTable.BOUND_EXACT, 3);
+        assertEquals(3, TranspositionTable.valueOf(tt.probe(sameSlot)), "等深结果应替换");
+
+        tt.newSearch();
+        tt.store(key, 1, 5, TranspositionTable.BOUND_LOWER, 4);
+        assertEquals(5, TranspositionTable.valueOf(tt.probe(key)), "上一轮的表项应可被覆盖");
+    }
+}
@@ -0,0 +1,191 @@
+package com.wuzi.server;
+
+import com.wuzi.ai.AiWarmup;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * AiRoomTest - 服务端托管人机对战测试
+ */
+@DisplayName("服务端人机对战测试")
+class AiRoomTest {
+
+    private AiComputePool pool;
+    private GameRoom room;
+    private Player human;
+
+    @BeforeEach
+    void setUp() {
+        pool = new AiComputePool(1, 1);
+        room = new GameRoom(1, true);
+        room.setAiComputePool(pool);
+        room.setAiMoveBudget(Duration.ofMillis(200));
+        human = new Player("玩家A", null, null);
+        room.addPlayer(human);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    private static int stones(GameRoom room) {
+        int n = 0;
+        for (int[] row : room.getBoard().getBoard())
+            for (int v : row)
+                if (v != 0) n++;
+        return n;
+    }
+
+    private static void awaitTurn(GameRoom room, String color) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!color.equals(room.getCurrentTurnColor()) && System.nanoTime() < deadline) Thread.sleep(10);
+        assertEquals(color, room.getCurrentTurnColor(), "AI 应在有限时间内落子");
+    }
+
+    @Test
+    @DisplayName("开启人机对战后玩家执黑，房间不再接受其他玩家")
+    void testStartAiGame() {
+        assertTrue(room.startAiGame(human));
+
+        assertTrue(room.isAiGame());
+        assertTrue(room.isGameStarted());
+        assertEquals("black", human.getColor());
+        assertEquals("white", room.getAiColor());
+        assertFalse(room.canEnter());
+        assertFalse(room.addPlayer(new Player("玩家B", null, null)));
+    }
+
+    @Test
+    @DisplayName("未配置计算线程池时拒绝人机对战")
+    void testStartWithoutPool() {
+        GameRoom plain = new GameRoom(2, true);
+        Player p = new Player("玩家B", null, null);
+        plain.addPlayer(p);
+
+        assertFalse(plain.startAiGame(p));
+        assertFalse(plain.isAiGame());
+    }
+
+    @Test
+    @DisplayName("AI 预热结束前拒绝人机对战，结束后开放")
+    void testWarmupGatesAiGame() throws InterruptedException {
+        // 先占住唯一的计算线程，让预热排队，保证检查时尚未结束
+        CountDownLatch release = new CountDownLatch(1);
+        assertTrue(pool.submit(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        AiWarmup warmup = new AiWarmup(Duration.ZERO);
+        CountDownLatch reported = new CountDownLatch(1);
+        pool.startWarmup(warmup, w -> reported.countDown());
+
+        assertFalse(pool.isAiReady());
+        assertFalse(room.startAiGame(human), "预热期间不开放人机对战");
+        assertFalse(room.isAiGame());
+
+        release.countDown();
+        assertTrue(warmup.awaitReady(Duration.ofSeconds(30)));
+        assertTrue(reported.await(5, TimeUnit.SECONDS), "预热结束后回调报告");
+        assertTrue(pool.isAiReady());
+        assertEquals(1, warmup.getRounds(), "时间上限为零时只跑一轮");
+        assertFalse(warmup.isSteady());
+        assertTrue(room.startAiGame(human));
+    }
+
+    @Test
+    @DisplayName("玩家落子后 AI 在计算线程池上应对")
+    void testAiReplies() throws InterruptedException {
+        room.startAiGame(human);
+        room.makeMove("H", "8", "black", human);
+        assertEquals("white", room.getCurrentTurnColor());
+        assertTrue(room.makeMove("G", "8", "black", human).contains("AI 正在思考"), "AI 回合不允许玩家落子");
+
+        assertTrue(room.requestAiMove());
+        awaitTurn(room, "black");
+
+        assertEquals(2, stones(room));
+        assertEquals(0, room.getAiSearchCount());
+        assertFalse(room.isGameOver());
+    }
+
+    @Test
+    @DisplayName("每个房间同时只提交一次搜索，线程池队列满时拒绝并可重试")
+    void testSearchLimits() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(1);
+        // 占住唯一的计算线程
+        assertTrue(pool.submit(() -> {
+            running.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        running.await();
+
+        room.startAiGame(human);
+        room.makeMove("H", "8", "black", human);
+        assertTrue(room.requestAiMove(), "第一次搜索进入等待队列");
+        assertFalse(room.requestAiMove(), "同一房间不应重复提交");
+        assertEquals(1, room.getAiSearchCount());
+
+        GameRoom other = new GameRoom(2, true);
+        other.setAiComputePool(pool);
+        Player p = new Player("玩家B", null, null);
+        other.addPlayer(p);
+        other.startAiGame(p);
+        other.makeMove("H", "8", "black", p);
+        assertFalse(other.requestAiMove(), "队列已满时应拒绝");
+        assertEquals(0, other.getAiSearchCount());
+
+        release.countDown();
+        awaitTurn(room, "black");
+        assertTrue(other.requestAiMove(), "队列空出后可以重试");
+        awaitTurn(other, "black");
+    }
+
+    @Test
+    @DisplayName("玩家离开后作废正在进行的搜索并释放房间")
+    void testLeaveDiscardsSearch() throws InterruptedException {
+        room.startAiGame(human);
+        room.makeMove("H", "8", "black", human);
+        room.requestAiMove();
+        room.removePlayer(human);
+
+        assertFalse(room.isAiGame());
+        assertTrue(room.canEnter());
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (room.getAiSearchCount() > 0 && System.nanoTime() < deadline) Thread.sleep(10);
+        assertEquals(0, room.getAiSearchCount());
+        assertEquals(0, stones(room), "作废的搜索结果不应写回棋盘");
+    }
+
+    @Test
+    @DisplayName("玩家离开时取消正在进行的长时间搜索，立即让出计算线程")
+    void testLeaveCancelsRunningSearch() throws InterruptedException {
+        room.setAiMoveBudget(Duration.ofSeconds(30));
+        room.startAiGame(human);
+        room.makeMove("H", "8", "black", human);
+        room.requestAiMove();
+        Thread.sleep(200);
+        room.removePlayer(human);
+
+        long deadline = System.nanoTime() + 2_000_000_000L;
+        while (room.getAiSearchCount() > 0 && System.nanoTime() < deadline) Thread.sleep(5);
+        assertEquals(0, room.getAiSearchCount(), "搜索应被取消，而不是跑满 30 秒预算");
+        assertEquals(0, stones(room));
+    }
+}
@@ -1,5 +1,6 @@
 package com.wuzi.server;
 
+import com.wuzi.ai.RenjuRules;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -152,5 +153,24 @@ class GameBoardWinTest {
         // 检查是否在边界处正确判胜
         assertTrue(gameBoard.checkWin(0, 2), "边界处五子连珠应判定为获胜");
     }
-}
 
+    @Test
+    @DisplayName("开局前已有棋子时开启连珠规则，禁手按当前棋盘判断")
+    void testRenjuEnabledAfterMoves() {
+        // 自由规则下先落子，此时不做禁手判断
+        gameBoard.makeMove(5, 7, 1);
+        gameBoard.makeMove(6, 7, 1);
+        gameBoard.makeMove(7, 5, 1);
+        gameBoard.makeMove(7, 6, 1);
+        assertEquals(RenjuRules.Foul.NONE, gameBoard.checkFoul(7, 7, 1));
+
+        gameBoard.setRenju(true);
+        assertEquals(RenjuRules.Foul.DOUBLE_THREE, gameBoard.checkFoul(7, 7, 1));
+        assertEquals(RenjuRules.Foul.NONE, gameBoard.checkFoul(7, 7, 2), "白棋没有禁手");
+        assertFalse(gameBoard.makeMove(7, 7, 1), "黑棋禁手不能落子");
+
+        gameBoard.reset();
+        assertEquals(RenjuRules.Foul.NONE, gameBoard.checkFoul(7, 7, 1));
+        assertTrue(gameBoard.makeMove(7, 7, 1));
+    }
+}
@@ -327,6 +327,36 @@ class RoomLogicTest {
         assertTrue(board1 == board2); // 同一个对象被重置
     }
 
+    @Test
+    @DisplayName("连珠规则房间拒绝黑棋禁手，对局中不能改规则")
+    void testRenjuRoomRejectsFoul() {
+        gameRoom.addPlayer(player1);
+        gameRoom.addPlayer(player2);
+        assertTrue(gameRoom.setRenju(player1, true));
+        gameRoom.playerReady(player1);
+        gameRoom.playerReady(player2);
+        assertTrue(gameRoom.isRenju());
+        assertFalse(gameRoom.setRenju(player2, false), "对局进行中不能改规则");
+
+        Player black = player1.getColor().equals("black") ? player1 : player2;
+        Player white = black == player1 ? player2 : player1;
+        String[][] blackMoves = {{"F", "8"}, {"G", "8"}, {"H", "6"}, {"H", "7"}};
+        String[][] whiteMoves = {{"A", "1"}, {"A", "3"}, {"C", "1"}, {"O", "15"}};
+        for (int i = 0; i < blackMoves.length; i++) {
+            gameRoom.makeMove(blackMoves[i][0], blackMoves[i][1], "black", black);
+            gameRoom.makeMove(whiteMoves[i][0], whiteMoves[i][1], "white", white);
+        }
+
+        String result = gameRoom.makeMove("H", "8", "black", black);
+        assertTrue(result.contains("禁手（三三）"), result);
+        assertEquals(0, gameRoom.getBoard().getBoard()[7][7]);
+        assertEquals("black", gameRoom.getCurrentTurnColor(), "禁手被拒绝后仍由黑棋落子");
+
+        // 白棋不受禁手限制
+        gameRoom.makeMove("J", "9", "black", black);
+        assertTrue(gameRoom.makeMove("H", "8", "white", white).startsWith("落子成功"));
+    }
+
     @Test
     @DisplayName("多次离开不出错")
     void testMultipleRemovalSafety() {